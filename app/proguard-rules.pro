@@ -0,0 +1,9 @@
+# Reglas propias de R8. Firebase y AndroidX traen las suyas.
+#
+# Las tareas se convierten a mano en TaskMapper (sin getValue(Task.class)), así que no hace
+# falta conservar getters ni constructores de los modelos para el mapeo por reflexión.
+
+# Conserva los números de línea en los stack traces; el archivo de mapping queda en
+# app/build/outputs/mapping/release/
+-keepattributes SourceFile,LineNumberTable
+-renamesourcefileattribute SourceFile
@@ -0,0 +1,60 @@
+package com.example.tatilist;
+
+import androidx.annotation.Nullable;
+import com.example.tatilist.MainActivity.Task;
+import com.google.firebase.database.DatabaseError;
+import java.util.*;
+
+// Aplica la misma operación a muchas tareas con un updateChildren multi-ruta en lugar de una
+// escritura por tarea. Las selecciones muy grandes se parten en bloques; cada bloque lleva sus
+// propios incrementos de rollups, así cada escritura es atómica y consistente por sí sola.
+final class BulkWriter {
+    // Tareas archivadas: lists/{id}/archive/{key}, fuera de la paginación
+    static final String ARCHIVE = "archive";
+    // Muy por debajo del límite de tamaño de una escritura de Firebase
+    static final int MAX_PATHS_PER_WRITE = 2000;
+
+    interface Operation {
+        // Agrega las rutas de una tarea; false si no hay nada que cambiar
+        boolean apply(Task task, Map<String, Object> updates, ExpenseRollups.Delta delta);
+    }
+
+    interface Callback {
+        void onDone(int changed, @Nullable DatabaseError error);
+    }
+
+    private BulkWriter() {}
+
+    // Devuelve cuántas tareas cambian; callback se llama cuando el servidor confirmó todo
+    static int run(TaskRepository repository, Collection<Task> tasks, Operation operation,
+                   @Nullable Callback callback) {
+        List<Map<String, Object>> writes = new ArrayList<>();
+        Map<String, Object> updates = new HashMap<>();
+        ExpenseRollups.Delta delta = new ExpenseRollups.Delta();
+        int changed = 0;
+        for (Task task : tasks) {
+            if (!operation.apply(task, updates, delta)) continue;
+            changed++;
+            if (updates.size() >= MAX_PATHS_PER_WRITE) {
+                delta.writeTo(updates);
+                writes.add(updates);
+                updates = new HashMap<>();
+                delta = new ExpenseRollups.Delta();
+            }
+        }
+        delta.writeTo(updates);
+        if (!updates.isEmpty()) writes.add(updates);
+
+        int total = changed;
+        int[] pending = {writes.size()};
+        DatabaseError[] firstError = {null};
+        for (Map<String, Object> write : writes) {
+            repository.update(write, callback == null ? null : error -> {
+                if (firstError[0] == null) firstError[0] = error;
+                if (--pending[0] == 0) callback.onDone(total, firstError[0]);
+            });
+        }
+        if (writes.isEmpty() && callback != null) callback.onDone(0, null);
+        return changed;
+    }
+}
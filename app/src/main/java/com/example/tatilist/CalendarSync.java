@@ -0,0 +1,267 @@
+package com.example.tatilist;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.OperationApplicationException;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.RemoteException;
+import android.provider.CalendarContract;
+import android.util.Log;
+import androidx.annotation.Nullable;
+import com.example.tatilist.MainActivity.Task;
+import com.google.firebase.database.DatabaseError;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Refleja las tareas pendientes con fecha como eventos de día completo en el calendario del
+// dispositivo. Guarda qué evento corresponde a cada tarea y una huella de su contenido, así
+// cada cambio toca solo los eventos de las tareas que cambiaron, en lotes de applyBatch.
+class CalendarSync implements TaskStore.Listener {
+    private static final String TAG = "CalendarSync";
+    // Un lote grande puede pasarse del límite de una transacción de Binder
+    private static final int BATCH_SIZE = 100;
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private final ContentResolver resolver;
+    private final TaskCache cache;
+    private final String listId;
+    private final TaskRepository repository;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Map<String, Task> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+    private volatile boolean closed;
+
+    // Solo desde el executor
+    private Map<String, EventRef> events;
+    private long calendarId = -1;
+
+    CalendarSync(Context context, String listId, TaskRepository repository) {
+        this.resolver = context.getApplicationContext().getContentResolver();
+        this.cache = TaskCache.getInstance(context);
+        this.listId = listId;
+        this.repository = repository;
+    }
+
+    @Override
+    public void onTaskPut(@Nullable Task oldTask, Task task) {
+        if (oldTask == null || !sameEvent(oldTask, task)) {
+            enqueue(task.getFirebaseKey(), task);
+        }
+    }
+
+    // Una tarea desalojada de la ventana sigue existiendo. Una quitada en vivo puede haber
+    // salido solo de la consulta: se borra el evento si ya no existe en Firebase
+    @Override
+    public void onTaskRemoved(Task oldTask, boolean evicted) {
+        if (evicted) return;
+        String key = oldTask.getFirebaseKey();
+        repository.readValue("tasks/" + key, new TaskRepository.ValueCallback() {
+            @Override
+            public void onValue(@Nullable Object value) {
+                if (value == null) enqueue(key, null);
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {}
+        });
+    }
+
+    public void close() {
+        closed = true;
+        executor.shutdown();
+    }
+
+    private synchronized void enqueue(String key, @Nullable Task task) {
+        if (closed) return;
+        pending.put(key, task);
+        if (!flushScheduled) {
+            flushScheduled = true;
+            executor.execute(this::flush);
+        }
+    }
+
+    private void flush() {
+        Map<String, Task> batch;
+        synchronized (this) {
+            batch = new LinkedHashMap<>(pending);
+            pending.clear();
+            flushScheduled = false;
+        }
+        try {
+            if (events == null) events = readEvents();
+            if (calendarId < 0) calendarId = findCalendar();
+            if (calendarId < 0) {
+                requeue(batch);
+                return;
+            }
+            List<Map.Entry<String, Task>> entries = new ArrayList<>(batch.entrySet());
+            for (int start = 0; start < entries.size(); start += BATCH_SIZE) {
+                apply(entries.subList(start, Math.min(entries.size(), start + BATCH_SIZE)));
+            }
+        } catch (SecurityException | RemoteException | OperationApplicationException e) {
+            // Permiso revocado o proveedor no disponible: se reintenta con el próximo cambio.
+            // Los lotes que sí se aplicaron ya tienen su huella y se saltean
+            Log.w(TAG, "No se pudo sincronizar el calendario", e);
+            requeue(batch);
+        }
+    }
+
+    // Vuelve a pendientes lo que no se pudo aplicar, sin pisar cambios que llegaron después.
+    // No agenda otro intento: lo hace el próximo enqueue
+    private synchronized void requeue(Map<String, Task> batch) {
+        Map<String, Task> newer = new LinkedHashMap<>(pending);
+        pending.clear();
+        pending.putAll(batch);
+        pending.putAll(newer);
+    }
+
+    private void apply(List<Map.Entry<String, Task>> entries)
+            throws RemoteException, OperationApplicationException {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        // Un Change por operación, en el mismo orden que los resultados
+        List<Change> changes = new ArrayList<>();
+        for (Map.Entry<String, Task> entry : entries) {
+            Task task = entry.getValue();
+            EventRef event = events.get(entry.getKey());
+            if (task == null || task.isCompleted() || !task.hasDueDate()) {
+                if (event == null) continue;
+                operations.add(ContentProviderOperation.newDelete(eventUri(event.eventId)).build());
+                changes.add(new Change(entry.getKey(), event, 0, true));
+            } else {
+                int fingerprint = fingerprint(task);
+                if (event != null && event.fingerprint == fingerprint) continue;
+                ContentProviderOperation.Builder builder = event == null
+                        ? ContentProviderOperation.newInsert(CalendarContract.Events.CONTENT_URI)
+                        .withValue(CalendarContract.Events.CALENDAR_ID, calendarId)
+                        : ContentProviderOperation.newUpdate(eventUri(event.eventId));
+                operations.add(builder.withValues(eventValues(task)).build());
+                changes.add(new Change(entry.getKey(), event, fingerprint, false));
+            }
+        }
+        if (operations.isEmpty()) return;
+
+        ContentProviderResult[] results = resolver.applyBatch(CalendarContract.AUTHORITY, operations);
+        SQLiteDatabase db = cache.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < results.length; i++) {
+                Change change = changes.get(i);
+                if (change.removed) {
+                    deleteEventRef(db, change.key);
+                } else if (change.event == null) {
+                    long eventId = ContentUris.parseId(results[i].uri);
+                    putEventRef(db, change.key, new EventRef(eventId, change.fingerprint));
+                } else if (results[i].count != null && results[i].count == 0) {
+                    // El usuario borró el evento a mano: se vuelve a crear en el próximo cambio
+                    deleteEventRef(db, change.key);
+                } else {
+                    putEventRef(db, change.key, new EventRef(change.event.eventId, change.fingerprint));
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private Map<String, EventRef> readEvents() {
+        Map<String, EventRef> result = new HashMap<>();
+        try (Cursor cursor = cache.getReadableDatabase().query(TaskCache.TABLE_CALENDAR_EVENTS,
+                new String[]{"firebase_key", "event_id", "fingerprint"}, "list_id = ?",
+                new String[]{listId}, null, null, null)) {
+            while (cursor.moveToNext()) {
+                result.put(cursor.getString(0), new EventRef(cursor.getLong(1), cursor.getInt(2)));
+            }
+        }
+        return result;
+    }
+
+    private void putEventRef(SQLiteDatabase db, String key, EventRef event) {
+        events.put(key, event);
+        ContentValues values = new ContentValues();
+        values.put("list_id", listId);
+        values.put("firebase_key", key);
+        values.put("event_id", event.eventId);
+        values.put("fingerprint", event.fingerprint);
+        db.insertWithOnConflict(TaskCache.TABLE_CALENDAR_EVENTS, null, values,
+                SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    private void deleteEventRef(SQLiteDatabase db, String key) {
+        events.remove(key);
+        db.delete(TaskCache.TABLE_CALENDAR_EVENTS, "list_id = ? AND firebase_key = ?",
+                new String[]{listId, key});
+    }
+
+    // El calendario visible y editable principal de la cuenta, o el primero que aparezca
+    private long findCalendar() {
+        try (Cursor cursor = resolver.query(CalendarContract.Calendars.CONTENT_URI,
+                new String[]{CalendarContract.Calendars._ID},
+                CalendarContract.Calendars.VISIBLE + " = 1 AND " +
+                        CalendarContract.Calendars.CALENDAR_ACCESS_LEVEL + " >= " +
+                        CalendarContract.Calendars.CAL_ACCESS_CONTRIBUTOR,
+                null, CalendarContract.Calendars.IS_PRIMARY + " DESC")) {
+            return cursor != null && cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        }
+    }
+
+    private static android.net.Uri eventUri(long eventId) {
+        return ContentUris.withAppendedId(CalendarContract.Events.CONTENT_URI, eventId);
+    }
+
+    private static ContentValues eventValues(Task task) {
+        // Los eventos de día completo van en UTC a medianoche del día de vencimiento
+        Calendar local = Calendar.getInstance();
+        local.setTimeInMillis(task.dueMillis());
+        Calendar utc = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+        utc.clear();
+        utc.set(local.get(Calendar.YEAR), local.get(Calendar.MONTH),
+                local.get(Calendar.DAY_OF_MONTH));
+        ContentValues values = new ContentValues();
+        values.put(CalendarContract.Events.TITLE, task.getTitle());
+        values.put(CalendarContract.Events.DESCRIPTION, task.getDescription());
+        values.put(CalendarContract.Events.DTSTART, utc.getTimeInMillis());
+        values.put(CalendarContract.Events.DTEND, utc.getTimeInMillis() + DAY_MILLIS);
+        values.put(CalendarContract.Events.ALL_DAY, 1);
+        values.put(CalendarContract.Events.EVENT_TIMEZONE, "UTC");
+        return values;
+    }
+
+    private static boolean sameEvent(Task a, Task b) {
+        return a.isCompleted() == b.isCompleted() && fingerprint(a) == fingerprint(b);
+    }
+
+    private static int fingerprint(Task task) {
+        return Objects.hash(task.getTitle(), task.getDescription(), task.getDueDate());
+    }
+
+    private static final class Change {
+        final String key;
+        final EventRef event;
+        final int fingerprint;
+        final boolean removed;
+
+        Change(String key, @Nullable EventRef event, int fingerprint, boolean removed) {
+            this.key = key;
+            this.event = event;
+            this.fingerprint = fingerprint;
+            this.removed = removed;
+        }
+    }
+
+    private static final class EventRef {
+        final long eventId;
+        final int fingerprint;
+
+        EventRef(long eventId, int fingerprint) {
+            this.eventId = eventId;
+            this.fingerprint = fingerprint;
+        }
+    }
+}
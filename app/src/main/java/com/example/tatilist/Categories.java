@@ -0,0 +1,39 @@
+package com.example.tatilist;
+
+import androidx.annotation.Nullable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Categorías como enteros chicos: cada nombre distinto se guarda una sola vez en el proceso
+// y las tareas llevan solo el índice. Son pocas (las de category_array más las que haya
+// escrito otra versión), así que la tabla no se limpia.
+final class Categories {
+    static final int NONE = -1;
+
+    private static final Map<String, Integer> ids = new HashMap<>();
+    // Se reemplaza entera al crecer: name() lee sin bloquear
+    private static volatile String[] names = new String[0];
+
+    private Categories() {}
+
+    static synchronized int intern(@Nullable String name) {
+        if (name == null) return NONE;
+        Integer id = ids.get(name);
+        if (id != null) return id;
+        String[] grown = Arrays.copyOf(names, names.length + 1);
+        grown[names.length] = name;
+        ids.put(name, names.length);
+        names = grown;
+        return names.length - 1;
+    }
+
+    @Nullable
+    static String name(int id) {
+        return id == NONE ? null : names[id];
+    }
+
+    static int count() {
+        return names.length;
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.tatilist;
+
+import androidx.annotation.Nullable;
+import com.example.tatilist.MainActivity.Task;
+import com.google.firebase.database.*;
+import java.util.*;
+
+// Totales de gastos guardados junto a la lista en lists/{id}/rollups/{yyyy-MM}/{categoría}
+// (en centavos). Cada escritura de tareas lleva sus incrementos en el mismo updateChildren,
+// así que el total y la tarea cambian juntos y la cabecera lee unos pocos bytes.
+final class ExpenseRollups {
+    static final String ROLLUPS = "rollups";
+    static final String VERSION = "rollupsVersion";
+    private static final int CURRENT_VERSION = 1;
+    private static final int MAX_REBUILD_ATTEMPTS = 5;
+    // Mientras un dispositivo reconstruye, VERSION tiene su reserva en lugar del número
+    private static final String CLAIMED_AT = "claimedAt";
+    private static final long CLAIM_TIMEOUT_MS = 10 * 60 * 1000L;
+    private static final String NO_CATEGORY = "Sin categoría";
+
+    interface RebuildCallback {
+        void onRebuilt(boolean success);
+    }
+
+    private ExpenseRollups() {}
+
+    static String monthKey(int bucket) {
+        return String.format(Locale.US, "%04d-%02d", bucket / 12, bucket % 12 + 1);
+    }
+
+    // Las claves de Firebase no admiten . # $ [ ] /
+    static String categoryKey(String category) {
+        if (category == null || category.isEmpty()) return NO_CATEGORY;
+        return category.replaceAll("[.#$\\[\\]/]", "_");
+    }
+
+    static long sum(Map<String, Long> categories) {
+        long total = 0;
+        for (Long cents : categories.values()) {
+            total += cents;
+        }
+        return total;
+    }
+
+    static Map<String, Long> parseMonth(@Nullable Object value) {
+        Map<String, Long> categories = new TreeMap<>();
+        if (!(value instanceof Map)) return categories;
+        for (Map.Entry<?, ?> child : ((Map<?, ?>) value).entrySet()) {
+            if (child.getValue() instanceof Number && ((Number) child.getValue()).longValue() != 0) {
+                categories.put(String.valueOf(child.getKey()), ((Number) child.getValue()).longValue());
+            }
+        }
+        return categories;
+    }
+
+    // Recalcula todos los totales desde las tareas, para corregir desvíos. Las archivadas
+    // siguen contando: el gasto ocurrió aunque ya no se muestren.
+    static void rebuild(TaskRepository repository, RebuildCallback callback) {
+        rebuild(repository, MAX_REBUILD_ATTEMPTS, callback);
+    }
+
+    // Los rollups se leen antes que las tareas y se reemplazan solo si siguen iguales: toda
+    // escritura con gasto los incrementa, así que un incremento que llegue entre la lectura y
+    // la escritura hace fallar la comparación y se vuelve a calcular en lugar de perderse
+    private static void rebuild(TaskRepository repository, int attempts, RebuildCallback callback) {
+        repository.readValue(ROLLUPS, new ReadStep(callback) {
+            @Override
+            public void onValue(@Nullable Object rollups) {
+                repository.readValue("tasks", new ReadStep(callback) {
+                    @Override
+                    public void onValue(@Nullable Object tasks) {
+                        repository.readValue(BulkWriter.ARCHIVE, new ReadStep(callback) {
+                            @Override
+                            public void onValue(@Nullable Object archive) {
+                                Map<String, Map<String, Long>> months = new HashMap<>();
+                                addTotals(tasks, months);
+                                addTotals(archive, months);
+                                repository.compareAndSet(ROLLUPS, rollups,
+                                        months.isEmpty() ? null : months, (written, error) -> {
+                                    if (error != null) {
+                                        callback.onRebuilt(false);
+                                    } else if (!written) {
+                                        if (attempts > 1) {
+                                            rebuild(repository, attempts - 1, callback);
+                                        } else {
+                                            callback.onRebuilt(false);
+                                        }
+                                    } else {
+                                        repository.update(Collections.<String, Object>singletonMap(
+                                                VERSION, CURRENT_VERSION),
+                                                versionError -> callback.onRebuilt(versionError == null));
+                                    }
+                                });
+                            }
+                        });
+                    }
+                });
+            }
+        });
+    }
+
+    private static void addTotals(@Nullable Object tasks, Map<String, Map<String, Long>> months) {
+        if (!(tasks instanceof Map)) return;
+        for (Object value : ((Map<?, ?>) tasks).values()) {
+            if (!(value instanceof Map)) continue;
+            Task task = TaskMapper.fromMap((Map<?, ?>) value);
+            if (task.expenseCents() == 0 || task.monthBucket() == ExpenseTotals.NO_MONTH) continue;
+            String month = monthKey(task.monthBucket());
+            Map<String, Long> categories = months.get(month);
+            if (categories == null) {
+                categories = new HashMap<>();
+                months.put(month, categories);
+            }
+            String category = categoryKey(task.getCategory());
+            Long current = categories.get(category);
+            categories.put(category, (current != null ? current : 0) + task.expenseCents());
+        }
+    }
+
+    // Listas creadas antes de los rollups: se construyen una vez, en un solo dispositivo. El
+    // que reserva VERSION lee las tareas y el archivo; los demás esperan al número. Una
+    // reserva que no terminó (se cerró la app a mitad) se retoma pasado un rato
+    static void ensureBuilt(TaskRepository repository) {
+        ensureBuilt(repository, System.currentTimeMillis(), success -> {});
+    }
+
+    static void ensureBuilt(TaskRepository repository, long now, RebuildCallback callback) {
+        repository.readValue(VERSION, new ReadStep(callback) {
+            @Override
+            public void onValue(@Nullable Object version) {
+                if (version == null || isStaleClaim(version, now)) {
+                    claimAndRebuild(repository, version, now, callback);
+                }
+            }
+        });
+    }
+
+    private static boolean isStaleClaim(Object version, long now) {
+        if (!(version instanceof Map)) return false;
+        Object claimedAt = ((Map<?, ?>) version).get(CLAIMED_AT);
+        return claimedAt instanceof Number &&
+                now - ((Number) claimedAt).longValue() >= CLAIM_TIMEOUT_MS;
+    }
+
+    private static void claimAndRebuild(TaskRepository repository, @Nullable Object expected,
+                                        long now, RebuildCallback callback) {
+        Map<String, Object> claim = Collections.<String, Object>singletonMap(CLAIMED_AT, now);
+        repository.compareAndSet(VERSION, expected, claim, (claimed, error) -> {
+            if (!claimed) return;
+            rebuild(repository, success -> {
+                // Si no se pudo, se suelta para que lo intente el próximo que abra la lista
+                if (!success) {
+                    repository.compareAndSet(VERSION, claim, null, (released, releaseError) -> {});
+                }
+                callback.onRebuilt(success);
+            });
+        });
+    }
+
+    // Un paso de lectura que informa el error al callback de rebuild
+    private abstract static class ReadStep implements TaskRepository.ValueCallback {
+        private final RebuildCallback callback;
+
+        ReadStep(RebuildCallback callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void onCancelled(DatabaseError error) {
+            callback.onRebuilt(false);
+        }
+    }
+
+    // Acumula los cambios de una escritura; un mismo mes/categoría se compensa antes de subir
+    static final class Delta {
+        private final Map<String, Long> deltas = new HashMap<>();
+
+        Delta add(Task task, int sign) {
+            long cents = task.expenseCents();
+            int bucket = task.monthBucket();
+            if (cents == 0 || bucket == ExpenseTotals.NO_MONTH) return this;
+            String path = ROLLUPS + "/" + monthKey(bucket) + "/" + categoryKey(task.getCategory());
+            Long current = deltas.get(path);
+            deltas.put(path, (current != null ? current : 0) + sign * cents);
+            return this;
+        }
+
+        void writeTo(Map<String, Object> updates) {
+            for (Map.Entry<String, Long> entry : deltas.entrySet()) {
+                if (entry.getValue() != 0) {
+                    updates.put(entry.getKey(), ServerValue.increment(entry.getValue()));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.tatilist;
+
+import androidx.annotation.Nullable;
+import com.example.tatilist.MainActivity.Task;
+import java.util.*;
+
+// Totales de gastos por mes y por categoría, en centavos, mantenidos con cada delta del
+// TaskStore: sumar o restar una tarea es O(1) y no hace falta recorrer la lista.
+// Cada mes es un long[] indexado por el id de Categories, sin un Long por suma.
+class ExpenseTotals implements TaskStore.Listener {
+    static final int NO_MONTH = -1;
+
+    private static final ThreadLocal<Calendar> CALENDAR = new ThreadLocal<Calendar>() {
+        @Override
+        protected Calendar initialValue() {
+            return Calendar.getInstance();
+        }
+    };
+
+    private final Map<Integer, MonthTotals> months = new HashMap<>();
+
+    // Año * 12 + mes, según la zona horaria del dispositivo
+    static int monthBucket(long millis) {
+        Calendar calendar = CALENDAR.get();
+        calendar.setTimeInMillis(millis);
+        return calendar.get(Calendar.YEAR) * 12 + calendar.get(Calendar.MONTH);
+    }
+
+    static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    @Override
+    public void onTaskPut(@Nullable Task oldTask, Task task) {
+        if (oldTask != null) {
+            apply(oldTask, -1);
+        }
+        apply(task, 1);
+    }
+
+    @Override
+    public void onTaskRemoved(Task oldTask, boolean evicted) {
+        apply(oldTask, -1);
+    }
+
+    public long monthTotal(int bucket) {
+        MonthTotals month = months.get(bucket);
+        return month != null ? month.total : 0;
+    }
+
+    // Sin categoría queda como ""
+    public Map<String, Long> categoryTotals(int bucket) {
+        MonthTotals month = months.get(bucket);
+        if (month == null) return Collections.emptyMap();
+        Map<String, Long> totals = new TreeMap<>();
+        for (int i = 0; i < month.byCategory.length; i++) {
+            if (month.byCategory[i] == 0) continue;
+            String category = Categories.name(i - 1);
+            if (category == null) category = "";
+            Long current = totals.get(category);
+            totals.put(category, (current != null ? current : 0) + month.byCategory[i]);
+        }
+        return Collections.unmodifiableMap(totals);
+    }
+
+    private void apply(Task task, int sign) {
+        long cents = task.expenseCents();
+        int bucket = task.monthBucket();
+        if (cents == 0 || bucket == NO_MONTH) return;
+        MonthTotals month = months.get(bucket);
+        if (month == null) {
+            month = new MonthTotals();
+            months.put(bucket, month);
+        }
+        month.add(task.categoryId() + 1, sign, cents);
+        if (month.tasks == 0) {
+            months.remove(bucket);
+        }
+    }
+
+    private static final class MonthTotals {
+        long total;
+        // Posición 0: sin categoría; i + 1: categoría i
+        long[] byCategory = new long[Categories.count() + 1];
+        // Tareas con gasto que suman acá; en 0 el mes se descarta
+        int tasks;
+
+        void add(int index, int sign, long cents) {
+            if (index >= byCategory.length) {
+                byCategory = Arrays.copyOf(byCategory, Categories.count() + 1);
+            }
+            byCategory[index] += sign * cents;
+            total += sign * cents;
+            tasks += sign;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.tatilist;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import com.example.tatilist.MainActivity.Task;
+import com.google.firebase.database.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// TaskRepository sobre Realtime Database. Los callbacks llegan al hilo principal.
+class FirebaseTaskRepository implements TaskRepository {
+    private final DatabaseReference listRef;
+    private final Query byDueDate;
+    private final Query byCompleted;
+    private final Query byCompletedAt;
+
+    FirebaseTaskRepository(DatabaseReference listRef) {
+        this.listRef = listRef;
+        // Requieren la regla ".indexOn": ["dueDate", "completed", "completedAt"]
+        this.byDueDate = listRef.child("tasks").orderByChild(TaskMapper.DUE_DATE);
+        this.byCompleted = listRef.child("tasks").orderByChild(TaskMapper.COMPLETED);
+        this.byCompletedAt = listRef.child("tasks").orderByChild(TaskMapper.COMPLETED_AT);
+    }
+
+    @Override
+    public String newKey() {
+        return listRef.push().getKey();
+    }
+
+    @Override
+    public void update(Map<String, Object> updates, @Nullable WriteCallback callback) {
+        Metrics.count(Metrics.WRITES);
+        Metrics.size(Metrics.WRITE_PATHS, "paths", updates.size());
+        long start = System.nanoTime();
+        // Sin conexión la confirmación llega al reconectar: también eso se mide
+        listRef.updateChildren(updates, (error, ref) -> {
+            Metrics.elapsed(Metrics.WRITE_ROUND_TRIP, start);
+            if (error != null) Metrics.count(Metrics.WRITE_ERRORS);
+            if (callback != null) callback.onComplete(error);
+        });
+    }
+
+    private Query query(Range range) {
+        if (range.completed) {
+            return byCompleted.equalTo(true).limitToLast(range.limit);
+        }
+        Query query;
+        if (range.undated) {
+            query = byDueDate.startAt((String) null, range.startKey).endAt((String) null);
+        } else {
+            // Empezar en un número deja afuera los null
+            Query ordered = range.byCompletedAt ? byCompletedAt : byDueDate;
+            query = ordered.startAt(range.startDueDate, range.startKey);
+            if (range.hasEnd()) query = query.endAt(range.endDueDate, range.endKey);
+        }
+        return range.last ? query.limitToLast(range.limit) : query.limitToFirst(range.limit);
+    }
+
+    @Override
+    public Registration listenTasks(Range range, TaskEvents events) {
+        Query query = query(range);
+        ChildEventListener children = new ChildEventListener() {
+            @Override
+            public void onChildAdded(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                events.onTaskAdded(new SnapshotTask(snapshot));
+            }
+
+            @Override
+            public void onChildChanged(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                events.onTaskChanged(new SnapshotTask(snapshot));
+            }
+
+            @Override
+            public void onChildRemoved(@NonNull DataSnapshot snapshot) {
+                events.onTaskRemoved(snapshot.getKey());
+            }
+
+            @Override
+            public void onChildMoved(@NonNull DataSnapshot snapshot, @Nullable String previousChildName) {
+                // El orden se resuelve en el cliente
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                events.onCancelled(error);
+            }
+        };
+        ValueEventListener[] initialLoad = new ValueEventListener[1];
+        initialLoad[0] = new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                initialLoad[0] = null;
+                events.onInitialLoad(snapshot.getChildrenCount());
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                // Ya lo informa el ChildEventListener de la misma consulta
+                initialLoad[0] = null;
+            }
+        };
+        Query listened = query;
+        listened.addChildEventListener(children);
+        // Firebase entrega los onChildAdded iniciales antes que este evento de valor
+        listened.addListenerForSingleValueEvent(initialLoad[0]);
+        return () -> {
+            listened.removeEventListener(children);
+            if (initialLoad[0] != null) {
+                listened.removeEventListener(initialLoad[0]);
+                initialLoad[0] = null;
+            }
+        };
+    }
+
+    @Override
+    public void readTasks(Range range, TasksCallback callback) {
+        readTasks(query(range), callback);
+    }
+
+    private static void readTasks(Query query, TasksCallback callback) {
+        query.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                List<Task> tasks = new ArrayList<>();
+                for (DataSnapshot child : snapshot.getChildren()) {
+                    Task task = TaskMapper.fromSnapshot(child);
+                    if (task != null) tasks.add(task);
+                }
+                callback.onTasks(tasks);
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                callback.onCancelled(error);
+            }
+        });
+    }
+
+    @Override
+    public Registration listenValue(String path, ValueCallback callback) {
+        DatabaseReference ref = listRef.child(path);
+        ValueEventListener listener = new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                callback.onValue(snapshot.getValue());
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                callback.onCancelled(error);
+            }
+        };
+        ref.addValueEventListener(listener);
+        return () -> ref.removeEventListener(listener);
+    }
+
+    @Override
+    public void readValue(String path, ValueCallback callback) {
+        listRef.child(path).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(@NonNull DataSnapshot snapshot) {
+                callback.onValue(snapshot.getValue());
+            }
+
+            @Override
+            public void onCancelled(@NonNull DatabaseError error) {
+                callback.onCancelled(error);
+            }
+        });
+    }
+
+    @Override
+    public void compareAndSet(String path, @Nullable Object expected, @Nullable Object value,
+                              CompareCallback callback) {
+        listRef.child(path).runTransaction(new Transaction.Handler() {
+            private boolean matched;
+
+            @NonNull
+            @Override
+            public Transaction.Result doTransaction(@NonNull MutableData currentData) {
+                Object current = currentData.getValue();
+                matched = Objects.equals(current, expected);
+                if (matched) {
+                    currentData.setValue(value);
+                    return Transaction.success(currentData);
+                }
+                // Sin copia local la primera pasada ve null: se deja igual para que responda
+                // el servidor. Con un valor distinto ya no hay nada que escribir
+                return current == null ? Transaction.success(currentData) : Transaction.abort();
+            }
+
+            @Override
+            public void onComplete(@Nullable DatabaseError error, boolean committed,
+                                   @Nullable DataSnapshot currentData) {
+                // El último doTransaction es el que se confirmó en el servidor
+                callback.onComplete(error == null && committed && matched, error);
+            }
+        });
+    }
+
+    private static final class SnapshotTask implements RemoteTask {
+        private final DataSnapshot snapshot;
+
+        SnapshotTask(DataSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public String getKey() {
+            return snapshot.getKey();
+        }
+
+        @Nullable
+        @Override
+        public Task toTask() {
+            Object value = snapshot.getValue();
+            if (Metrics.enabled()) {
+                Metrics.size(Metrics.SYNC_TASK_BYTES, "bytes", TaskMapper.estimateBytes(value));
+            }
+            if (!(value instanceof Map)) return null;
+            Task task = TaskMapper.fromMap((Map<?, ?>) value);
+            task.setFirebaseKey(snapshot.getKey());
+            return task;
+        }
+    }
+}
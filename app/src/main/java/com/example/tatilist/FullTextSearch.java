@@ -0,0 +1,80 @@
+package com.example.tatilist;
+
+import androidx.annotation.Nullable;
+import com.example.tatilist.MainActivity.Task;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+// Búsqueda sobre título, descripción y categoría con un índice FTS4 en TaskCache. La copia se
+// llena solo con lo que ya entrega la sincronización (los deltas del store): guarda también las
+// tareas que salieron de la ventana, así que se puede encontrar lo que se cargó alguna vez
+// aunque ya no esté en memoria, sin recorrer la lista en el servidor.
+class FullTextSearch implements TaskStore.Listener, TaskStore.Searcher {
+    static final int MAX_RESULTS = 500;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final String[] NO_TOKENS = new String[0];
+    // Una sola letra coincide con casi todo y es la consulta más cara: se empieza a filtrar
+    // desde la segunda
+    private static final int MIN_PREFIX = 2;
+
+    private final TaskCache cache;
+    private final TaskCache.SearchWriter writer;
+    private final String listId;
+
+    // changed se llama en el hilo de la caché cada vez que se escribe la copia
+    FullTextSearch(TaskCache cache, String listId, Runnable changed) {
+        this.cache = cache;
+        this.writer = cache.searchWriterFor(listId, changed);
+        this.listId = listId;
+    }
+
+    // La consulta corre en el hilo de la caché, detrás de las escrituras pendientes: con
+    // decenas de miles de tareas y un prefijo corto tarda más que un cuadro
+    @Override
+    public void search(String[] terms, TaskStore.SearchCallback callback) {
+        cache.searchTasks(listId, terms, MAX_RESULTS, callback);
+    }
+
+    @Override
+    public void onTaskPut(@Nullable Task oldTask, Task task) {
+        if (oldTask == null || !oldTask.hasSameContent(task)) {
+            writer.put(task);
+        }
+    }
+
+    // Desalojada sigue existiendo y se queda en la copia. Quitada en vivo se borró o dejó de
+    // cumplir la consulta; en el segundo caso vuelve cuando otro delta la traiga
+    @Override
+    public void onTaskRemoved(Task oldTask, boolean evicted) {
+        if (!evicted) writer.delete(oldTask.getFirebaseKey());
+    }
+
+    // Palabras de la consulta, la más larga primero; null si todavía no alcanza para filtrar
+    @Nullable
+    static String[] terms(String query) {
+        String[] terms = tokenize(query);
+        if (terms.length == 0) return null;
+        // MATCH no depende del orden, pero así el más selectivo queda primero
+        Arrays.sort(terms, (a, b) -> b.length() - a.length());
+        return terms[0].length() < MIN_PREFIX ? null : terms;
+    }
+
+    static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    // Palabras normalizadas y sin repetir ("Alimentación" queda como "alimentacion")
+    static String[] tokenize(String... texts) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String text : texts) {
+            if (text == null || text.isEmpty()) continue;
+            for (String token : SEPARATORS.split(normalize(text))) {
+                if (!token.isEmpty()) tokens.add(token);
+            }
+        }
+        return tokens.isEmpty() ? NO_TOKENS : tokens.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,447 @@
+package com.example.tatilist;
+
+import androidx.annotation.Nullable;
+import com.example.tatilist.MainActivity.Task;
+import java.util.*;
+import java.util.concurrent.Executor;
+
+// TaskRepository en memoria para pruebas y benchmarks en la JVM. Imita lo que la app usa
+// del servidor: updates multi-ruta atómicos (rechaza rutas superpuestas), ServerValue.increment,
+// transacciones que comparan y reemplazan, ventanas limitToFirst/limitToLast que reciben
+// altas, cambios y bajas al moverse los datos, y valores escuchados en una ruta.
+// Cada ventana mantiene ordenado lo que cumple su rango y en cada escritura reubica solo las
+// tareas escritas, así una escritura no recorre ni reordena la lista entera.
+// Las claves se comparan como texto, sin el orden numérico que Firebase da a claves enteras.
+class InMemoryTaskRepository implements TaskRepository {
+    private static final String SERVER_VALUE = ".sv";
+    private static final String INCREMENT = "increment";
+    private static final String TASKS = "tasks";
+
+    private final Executor callbackExecutor;
+    private final Map<String, Object> root = new HashMap<>();
+    private final List<Window> windows = new ArrayList<>();
+    private final List<Watcher> watchers = new ArrayList<>();
+    private long nextKey;
+
+    // Entrega los eventos en el mismo hilo que hace la escritura
+    InMemoryTaskRepository() {
+        this(Runnable::run);
+    }
+
+    InMemoryTaskRepository(Executor callbackExecutor) {
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    @Override
+    public synchronized String newKey() {
+        return String.format(Locale.US, "-K%018d", nextKey++);
+    }
+
+    @Override
+    public void update(Map<String, Object> updates, @Nullable WriteCallback callback) {
+        List<Runnable> events = new ArrayList<>();
+        synchronized (this) {
+            checkNoOverlap(updates.keySet());
+            for (Map.Entry<String, Object> entry : updates.entrySet()) {
+                set(split(entry.getKey()), entry.getValue());
+            }
+            refreshListeners(events, writtenTasks(updates.keySet()));
+        }
+        for (Runnable event : events) {
+            callbackExecutor.execute(event);
+        }
+        if (callback != null) {
+            callbackExecutor.execute(() -> callback.onComplete(null));
+        }
+    }
+
+    @Override
+    public Registration listenTasks(Range range, TaskEvents events) {
+        Window window = new Window(range, events);
+        List<Runnable> initial = new ArrayList<>();
+        synchronized (this) {
+            windows.add(window);
+            window.refresh(initial, null);
+        }
+        long childCount = initial.size();
+        initial.add(() -> {
+            if (window.active) events.onInitialLoad(childCount);
+        });
+        for (Runnable event : initial) {
+            callbackExecutor.execute(event);
+        }
+        return () -> {
+            synchronized (InMemoryTaskRepository.this) {
+                window.active = false;
+                windows.remove(window);
+            }
+        };
+    }
+
+    @Override
+    public Registration listenValue(String path, ValueCallback callback) {
+        Watcher watcher = new Watcher(path, callback);
+        List<Runnable> initial = new ArrayList<>();
+        synchronized (this) {
+            watchers.add(watcher);
+            watcher.refresh(initial, true);
+        }
+        for (Runnable event : initial) {
+            callbackExecutor.execute(event);
+        }
+        return () -> {
+            synchronized (InMemoryTaskRepository.this) {
+                watcher.active = false;
+                watchers.remove(watcher);
+            }
+        };
+    }
+
+    @Override
+    public void readTasks(Range range, TasksCallback callback) {
+        List<Task> tasks = new ArrayList<>();
+        synchronized (this) {
+            Window window = new Window(range, null);
+            window.reload();
+            for (Map.Entry<String, Map<?, ?>> entry : window.slice().entrySet()) {
+                tasks.add(new MapTask(entry.getKey(), entry.getValue()).toTask());
+            }
+        }
+        callbackExecutor.execute(() -> callback.onTasks(tasks));
+    }
+
+    @Override
+    public void readValue(String path, ValueCallback callback) {
+        Object value = get(path);
+        callbackExecutor.execute(() -> callback.onValue(value));
+    }
+
+    @Override
+    public void compareAndSet(String path, @Nullable Object expected, @Nullable Object value,
+                              CompareCallback callback) {
+        List<Runnable> events = new ArrayList<>();
+        boolean matched;
+        synchronized (this) {
+            matched = Objects.equals(get(path), copy(expected));
+            if (matched) {
+                set(split(path), value);
+                refreshListeners(events, writtenTasks(Collections.singleton(path)));
+            }
+        }
+        for (Runnable event : events) {
+            callbackExecutor.execute(event);
+        }
+        callbackExecutor.execute(() -> callback.onComplete(matched, null));
+    }
+
+    // Copia del valor en una ruta relativa a la lista (p. ej. "rollups/2024-05/total")
+    @Nullable
+    public synchronized Object get(String path) {
+        Object node = root;
+        for (String part : split(path)) {
+            if (!(node instanceof Map)) return null;
+            node = ((Map<?, ?>) node).get(part);
+        }
+        return copy(node);
+    }
+
+    // written: claves de las tareas escritas; null si pudo cambiar cualquiera
+    private void refreshListeners(List<Runnable> events, @Nullable Set<String> written) {
+        if (written == null || !written.isEmpty()) {
+            for (Window window : windows) {
+                window.refresh(events, written);
+            }
+        }
+        for (Watcher watcher : watchers) {
+            watcher.refresh(events, false);
+        }
+    }
+
+    private static void checkNoOverlap(Collection<String> paths) {
+        List<String> sorted = new ArrayList<>();
+        for (String path : paths) {
+            StringBuilder normalized = new StringBuilder();
+            for (String part : split(path)) {
+                normalized.append(part).append('/');
+            }
+            sorted.add(normalized.toString());
+        }
+        Collections.sort(sorted);
+        for (int i = 1; i < sorted.size(); i++) {
+            if (sorted.get(i).startsWith(sorted.get(i - 1))) {
+                throw new IllegalArgumentException("Rutas superpuestas en un update: " +
+                        sorted.get(i - 1) + " y " + sorted.get(i));
+            }
+        }
+    }
+
+    // Tareas bajo tasks/ que tocan las rutas; null si alguna escribe tasks entero o la raíz
+    @Nullable
+    private static Set<String> writtenTasks(Collection<String> paths) {
+        Set<String> keys = new HashSet<>();
+        for (String path : paths) {
+            List<String> parts = split(path);
+            if (parts.isEmpty()) return null;
+            if (!parts.get(0).equals(TASKS)) continue;
+            if (parts.size() == 1) return null;
+            keys.add(parts.get(1));
+        }
+        return keys;
+    }
+
+    private static List<String> split(String path) {
+        List<String> parts = new ArrayList<>();
+        for (String part : path.split("/")) {
+            if (!part.isEmpty()) parts.add(part);
+        }
+        return parts;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void set(List<String> path, @Nullable Object value) {
+        Deque<Map<String, Object>> parents = new ArrayDeque<>();
+        Map<String, Object> node = root;
+        for (int i = 0; i < path.size() - 1; i++) {
+            parents.push(node);
+            Object child = node.get(path.get(i));
+            if (!(child instanceof Map)) {
+                child = new HashMap<String, Object>();
+                node.put(path.get(i), child);
+            }
+            node = (Map<String, Object>) child;
+        }
+        String last = path.get(path.size() - 1);
+        Object stored = copy(resolve(node.get(last), value));
+        if (stored != null) {
+            node.put(last, stored);
+            return;
+        }
+        node.remove(last);
+        // Como en Firebase, un nodo sin hijos deja de existir
+        for (int i = path.size() - 2; i >= 0 && node.isEmpty(); i--) {
+            node = parents.pop();
+            node.remove(path.get(i));
+        }
+    }
+
+    // Resuelve ServerValue.increment contra el valor actual
+    @Nullable
+    private static Object resolve(@Nullable Object current, @Nullable Object value) {
+        if (!(value instanceof Map)) return value;
+        Object serverValue = ((Map<?, ?>) value).get(SERVER_VALUE);
+        if (!(serverValue instanceof Map)) return value;
+        Object delta = ((Map<?, ?>) serverValue).get(INCREMENT);
+        if (!(delta instanceof Number)) return value;
+        Number base = current instanceof Number ? (Number) current : 0L;
+        if (isIntegral(base) && isIntegral((Number) delta)) {
+            return base.longValue() + ((Number) delta).longValue();
+        }
+        return base.doubleValue() + ((Number) delta).doubleValue();
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Long || number instanceof Integer || number instanceof Short ||
+                number instanceof Byte;
+    }
+
+    // Copia profunda sin hijos null; un mapa vacío equivale a borrar
+    @Nullable
+    private static Object copy(@Nullable Object value) {
+        if (!(value instanceof Map)) return value;
+        Map<String, Object> copy = new HashMap<>();
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+            Object child = copy(entry.getValue());
+            if (child != null) copy.put(String.valueOf(entry.getKey()), child);
+        }
+        return copy.isEmpty() ? null : copy;
+    }
+
+    // Un valor escuchado: como addValueEventListener, avisa solo si cambió
+    private final class Watcher {
+        final String path;
+        final ValueCallback callback;
+        @Nullable Object delivered;
+        volatile boolean active = true;
+
+        Watcher(String path, ValueCallback callback) {
+            this.path = path;
+            this.callback = callback;
+        }
+
+        void refresh(List<Runnable> out, boolean initial) {
+            Object current = get(path);
+            if (!initial && Objects.equals(current, delivered)) return;
+            delivered = current;
+            // El que recibe puede modificar su copia
+            Object value = copy(current);
+            out.add(() -> {
+                if (active) callback.onValue(value);
+            });
+        }
+    }
+
+    // Una consulta escuchada. Guarda ordenadas por (valor de orden, clave) todas las tareas que
+    // cumplen el rango, sin el límite; el límite se toma de ahí y se emiten solo las
+    // diferencias con lo que ya entregó
+    private final class Window {
+        final Range range;
+        final TaskEvents events;
+        final TreeSet<Match> matches;
+        final Map<String, Match> matchesByKey = new HashMap<>();
+        Map<String, Map<?, ?>> delivered = new HashMap<>();
+        volatile boolean active = true;
+
+        Window(Range range, TaskEvents events) {
+            this.range = range;
+            this.events = events;
+            matches = new TreeSet<>((a, b) -> {
+                int result = range.completed ? 0 : Double.compare(a.order, b.order);
+                return result != 0 ? result : a.key.compareTo(b.key);
+            });
+        }
+
+        // written: tareas escritas desde el último refresh; null para recorrer todas
+        void refresh(List<Runnable> out, @Nullable Set<String> written) {
+            if (written == null) {
+                reload();
+            } else {
+                for (String key : written) {
+                    reindex(key, tasks().get(key));
+                }
+            }
+            Map<String, Map<?, ?>> current = slice();
+            for (String key : delivered.keySet()) {
+                if (!current.containsKey(key)) {
+                    out.add(() -> {
+                        if (active) events.onTaskRemoved(key);
+                    });
+                }
+            }
+            for (Map.Entry<String, Map<?, ?>> entry : current.entrySet()) {
+                Map<?, ?> before = delivered.get(entry.getKey());
+                if (before == null) {
+                    RemoteTask task = new MapTask(entry.getKey(), entry.getValue());
+                    out.add(() -> {
+                        if (active) events.onTaskAdded(task);
+                    });
+                } else if (before != entry.getValue() && !before.equals(entry.getValue())) {
+                    // Solo las reubicadas tienen un valor nuevo
+                    RemoteTask task = new MapTask(entry.getKey(), entry.getValue());
+                    out.add(() -> {
+                        if (active) events.onTaskChanged(task);
+                    });
+                }
+            }
+            delivered = current;
+        }
+
+        void reload() {
+            matches.clear();
+            matchesByKey.clear();
+            for (Map.Entry<?, ?> entry : tasks().entrySet()) {
+                reindex((String) entry.getKey(), entry.getValue());
+            }
+        }
+
+        // Igual que orderByChild("dueDate" o "completedAt").startAt(...).endAt(...)
+        // .limitToFirst/Last(limit), u orderByChild("completed").equalTo(true), que deja las
+        // completadas por clave
+        Map<String, Map<?, ?>> slice() {
+            Map<String, Map<?, ?>> window = new LinkedHashMap<>();
+            if (range.last) {
+                Deque<Match> tail = new ArrayDeque<>();
+                Iterator<Match> iterator = matches.descendingIterator();
+                while (iterator.hasNext() && tail.size() < range.limit) {
+                    tail.addFirst(iterator.next());
+                }
+                for (Match match : tail) {
+                    window.put(match.key, match.value);
+                }
+            } else {
+                for (Match match : matches) {
+                    if (window.size() == range.limit) break;
+                    window.put(match.key, match.value);
+                }
+            }
+            return window;
+        }
+
+        // Saca la versión anterior y, si la nueva cumple el rango, la ubica en su lugar
+        private void reindex(String key, @Nullable Object value) {
+            Match old = matchesByKey.remove(key);
+            if (old != null) matches.remove(old);
+            if (!(value instanceof Map) || !inRange(key, (Map<?, ?>) value)) return;
+            Map<?, ?> task = (Map<?, ?>) copy(value);
+            Match match = new Match(key, order(task), task);
+            matches.add(match);
+            matchesByKey.put(key, match);
+        }
+
+        private Map<?, ?> tasks() {
+            Object tasks = root.get(TASKS);
+            return tasks instanceof Map ? (Map<?, ?>) tasks : Collections.emptyMap();
+        }
+
+        private boolean inRange(String key, Map<?, ?> value) {
+            if (range.completed) {
+                return Boolean.TRUE.equals(value.get(TaskMapper.COMPLETED));
+            }
+            Object dueDate = value.get(orderChild());
+            if (range.undated) {
+                return !(dueDate instanceof Number) &&
+                        (range.startKey == null || key.compareTo(range.startKey) >= 0);
+            }
+            if (!(dueDate instanceof Number)) return false;
+            double due = ((Number) dueDate).doubleValue();
+            boolean afterStart = due != range.startDueDate ? due > range.startDueDate
+                    : range.startKey == null || key.compareTo(range.startKey) >= 0;
+            if (!afterStart || !range.hasEnd()) return afterStart;
+            if (due != range.endDueDate) return due < range.endDueDate;
+            return range.endKey == null || key.compareTo(range.endKey) <= 0;
+        }
+
+        private String orderChild() {
+            return range.byCompletedAt ? TaskMapper.COMPLETED_AT : TaskMapper.DUE_DATE;
+        }
+
+        private double order(Map<?, ?> value) {
+            Object order = value.get(orderChild());
+            return order instanceof Number ? ((Number) order).doubleValue() : 0;
+        }
+    }
+
+    private static final class Match {
+        final String key;
+        final double order;
+        final Map<?, ?> value;
+
+        Match(String key, double order, Map<?, ?> value) {
+            this.key = key;
+            this.order = order;
+            this.value = value;
+        }
+    }
+
+    private static final class MapTask implements RemoteTask {
+        private final String key;
+        private final Map<?, ?> value;
+
+        MapTask(String key, Map<?, ?> value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Nullable
+        @Override
+        public Task toTask() {
+            Task task = TaskMapper.fromMap(value);
+            task.setFirebaseKey(key);
+            return task;
+        }
+    }
+}
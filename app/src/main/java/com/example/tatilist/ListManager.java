@@ -0,0 +1,111 @@
+package com.example.tatilist;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import com.google.firebase.database.DatabaseReference;
+import java.util.*;
+
+// Listas abiertas recientemente, con su store en memoria (LRU). Solo la lista visible y las
+// fijadas escuchan a Firebase; las demás quedan en memoria sin listeners hasta que se
+// vuelve a ellas o salen del LRU. Todas comparten la misma conexión de FirebaseDatabase.
+class ListManager {
+    private static final int MAX_WARM_LISTS = 3;
+    private static final String PREF_PINNED = "pinnedLists";
+
+    private final Context context;
+    private final DatabaseReference listsRef;
+    private final SharedPreferences prefs;
+    private final ListSession.RepositoryFactory repositories;
+    private final ListSession.Listener listener;
+    private final LinkedHashMap<String, ListSession> sessions = new LinkedHashMap<>(8, 0.75f, true);
+    private final Set<String> pinned;
+    private ListSession current;
+    private boolean started;
+
+    ListManager(Context context, DatabaseReference listsRef, SharedPreferences prefs,
+                ListSession.RepositoryFactory repositories, ListSession.Listener listener) {
+        this.context = context.getApplicationContext();
+        this.listsRef = listsRef;
+        this.prefs = prefs;
+        this.repositories = repositories;
+        this.listener = listener;
+        this.pinned = new HashSet<>(prefs.getStringSet(PREF_PINNED, Collections.<String>emptySet()));
+    }
+
+    public ListSession switchTo(String listId) {
+        ListSession previous = current;
+        current = session(listId);
+        if (started) {
+            if (previous != null && previous != current && !pinned.contains(previous.listId)) {
+                previous.detach();
+            }
+            current.attach();
+        }
+        evict();
+        return current;
+    }
+
+    public void start() {
+        started = true;
+        for (String listId : pinned) {
+            session(listId).attach();
+        }
+        if (current != null) current.attach();
+        evict();
+    }
+
+    public void stop() {
+        started = false;
+        for (ListSession session : sessions.values()) {
+            session.detach();
+        }
+    }
+
+    public void close() {
+        stop();
+        for (ListSession session : sessions.values()) {
+            session.close();
+        }
+        sessions.clear();
+        current = null;
+    }
+
+    public boolean isPinned(String listId) {
+        return pinned.contains(listId);
+    }
+
+    // Una lista fijada sigue sincronizada aunque no sea la visible
+    public void setPinned(String listId, boolean pin) {
+        if (pin ? !pinned.add(listId) : !pinned.remove(listId)) return;
+        prefs.edit().putStringSet(PREF_PINNED, new HashSet<>(pinned)).apply();
+        ListSession session = sessions.get(listId);
+        if (!started || session == null) return;
+        if (pin) {
+            session.attach();
+        } else if (session != current) {
+            session.detach();
+        }
+        evict();
+    }
+
+    private ListSession session(String listId) {
+        ListSession session = sessions.get(listId);
+        if (session == null) {
+            session = new ListSession(context, listId,
+                    repositories.create(listsRef.child(listId)), listener);
+            sessions.put(listId, session);
+        }
+        return session;
+    }
+
+    // Cierra las menos usadas; la visible y las fijadas no se desalojan
+    private void evict() {
+        Iterator<ListSession> iterator = sessions.values().iterator();
+        while (sessions.size() > MAX_WARM_LISTS && iterator.hasNext()) {
+            ListSession session = iterator.next();
+            if (session == current || pinned.contains(session.listId)) continue;
+            iterator.remove();
+            session.close();
+        }
+    }
+}
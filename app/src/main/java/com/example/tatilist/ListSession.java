@@ -0,0 +1,90 @@
+package com.example.tatilist;
+
+import android.content.Context;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.DatabaseReference;
+
+// Todo lo que mantiene viva una lista: su TaskStore (dentro de TaskSync), la ventana
+// paginada y las subtareas expandidas. Mientras está en memoria conserva las últimas vistas,
+// así volver a la lista las muestra sin esperar a la red.
+class ListSession {
+    // Crea el repositorio de cada lista (Firebase, o el backend local de los benchmarks)
+    interface RepositoryFactory {
+        TaskRepository create(DatabaseReference listRef);
+    }
+
+    interface Listener {
+        void onTasksChanged(ListSession session, TaskStore.Views views);
+        void onSyncError(ListSession session, DatabaseError error);
+        void onSubtasksChanged(ListSession session, String taskKey);
+    }
+
+    final String listId;
+    final TaskRepository repository;
+    final TaskSync sync;
+    final TaskPager pager;
+    final SubtaskLoader subtasks;
+    final FullTextSearch fullText;
+    private TaskStore.Views views = TaskStore.Views.EMPTY;
+    private boolean attached;
+
+    ListSession(Context context, String listId, TaskRepository repository, Listener listener) {
+        this.listId = listId;
+        this.repository = repository;
+        this.sync = new TaskSync(repository, new TaskStore(), new TaskSync.Listener() {
+            @Override
+            public void onTasksChanged(TaskStore.Views newViews) {
+                views = newViews;
+                listener.onTasksChanged(ListSession.this, newViews);
+            }
+
+            @Override
+            public void onSyncError(DatabaseError error) {
+                listener.onSyncError(ListSession.this, error);
+            }
+        });
+        this.pager = new TaskPager(sync, repository);
+        this.subtasks = new SubtaskLoader(repository,
+                (taskKey, loaded) -> listener.onSubtasksChanged(this, taskKey));
+        // Pinta la última copia local antes de que responda Firebase
+        sync.restoreFromCache(TaskCache.getInstance(context), listId);
+        this.fullText = new FullTextSearch(TaskCache.getInstance(context), listId,
+                sync::refreshSearch);
+        sync.addStoreListener(fullText);
+        sync.setSearcher(fullText);
+    }
+
+    TaskStore.Views getViews() {
+        return views;
+    }
+
+    // Busca en todo lo que se llegó a cargar de la lista (ver FullTextSearch)
+    void search(String query) {
+        sync.setSearchQuery(query);
+    }
+
+    boolean isAttached() {
+        return attached;
+    }
+
+    // Empieza a escuchar la lista en vivo
+    void attach() {
+        if (attached) return;
+        attached = true;
+        pager.start();
+        subtasks.start();
+    }
+
+    // Deja de escuchar pero conserva el store en memoria
+    void detach() {
+        if (!attached) return;
+        attached = false;
+        pager.stop();
+        subtasks.stop();
+    }
+
+    void close() {
+        detach();
+        sync.shutdown();
+    }
+}
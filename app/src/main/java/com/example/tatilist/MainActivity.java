@@ -1,40 +1,94 @@
 package com.example.tatilist;
 
+import android.Manifest;
 import android.app.DatePickerDialog;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
 import android.view.LayoutInflater;
+import android.view.Menu;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.*;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.appcompat.widget.Toolbar;
+import androidx.core.content.ContextCompat;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.ListAdapter;
 import androidx.recyclerview.widget.RecyclerView;
+import com.google.android.material.card.MaterialCardView;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import com.google.android.material.tabs.TabLayout;
 import com.google.firebase.database.*;
-import java.text.SimpleDateFormat;
 import java.util.*;
 
 public class MainActivity extends AppCompatActivity {
+    private static final String TAG = "MainActivity";
+    private static final int REQUEST_NOTIFICATIONS = 1;
+    private static final int REQUEST_CALENDAR = 2;
+    private static final int REQUEST_EXPORT = 3;
+    private static final int REQUEST_IMPORT = 4;
+    // Importación en curso o a medias de cada lista: prefijo + id de la lista
+    private static final String PREF_IMPORT_ID = "importId_";
+    private static final String PREF_IMPORT_URI = "importUri_";
+    private static final String[] CALENDAR_PERMISSIONS =
+            {Manifest.permission.READ_CALENDAR, Manifest.permission.WRITE_CALENDAR};
+    // Reservas de instancias de tareas recurrentes (ver addNextOccurrence)
+    static final String OCCURRENCES = "occurrences";
+    private static final long OCCURRENCE_CLAIM_TIMEOUT_MS = 10 * 60 * 1000L;
+
     private RecyclerView recyclerView;
     private TaskAdapter taskAdapter;
     private FloatingActionButton fabAddTask;
     private TabLayout tabLayout;
-    private TextView tvTotalExpenses, tvSharedWith;
+    private TextView tvTotalExpenses, tvSharedWith, tvCompletedMore;
     private Button btnShareList, btnJoinList;
     private List<Task> allTasks;
     private DatabaseReference databaseRef;
     private String currentListId;
     private SharedPreferences prefs;
-    private ValueEventListener tasksListener;
+    private ListManager listManager;
+    // Lista visible
+    private ListSession session;
+    private ReminderIndex reminderIndex;
+    private CalendarSync calendarSync;
+    private Toolbar toolbar;
+    private EditText etSearch;
+    private CharSequence appTitle;
+    // Solo en debug, se crea al activarlo desde el menú
+    private MetricsOverlay metricsOverlay;
+    private boolean selectionMode;
+    // A lo sumo una exportación o importación a la vez
+    private TaskExporter exporter;
+    private TaskImporter importer;
+    private AlertDialog transferDialog;
+    private boolean started;
+    private TaskStore.Views taskViews = TaskStore.Views.EMPTY;
+    private int currentFilter = TaskStore.FILTER_ALL;
+    private boolean firstTaskShown;
+    private long createdAt;
+    private String deviceId;
+    // Cabecera: lists/{id}/memberCount y los totales del mes según lists/{id}/rollups
+    private TaskRepository.Registration memberCountRegistration;
+    private TaskRepository.Registration monthRollupRegistration;
+    // null hasta que llegan (se usan los locales)
+    private Map<String, Long> monthRollup;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        createdAt = SystemClock.uptimeMillis();
         setContentView(R.layout.activity_main);
         prefs = getSharedPreferences("tatilist", MODE_PRIVATE);
         currentListId = prefs.getString("listId", null);
@@ -42,10 +96,79 @@ public class MainActivity extends AppCompatActivity {
             currentListId = UUID.randomUUID().toString();
             prefs.edit().putString("listId", currentListId).apply();
         }
+        deviceId = prefs.getString("deviceId", null);
+        if (deviceId == null) {
+            deviceId = UUID.randomUUID().toString();
+            prefs.edit().putString("deviceId", deviceId).apply();
+        }
         databaseRef = FirebaseDatabase.getInstance().getReference();
         allTasks = new ArrayList<>();
+        ListSession.RepositoryFactory repositories = FirebaseTaskRepository::new;
+        int seedTasks = BuildConfig.STAND_IN_BACKEND
+                ? getIntent().getIntExtra(StandInBackend.EXTRA_SEED_TASKS, 0) : 0;
+        if (seedTasks > 0) {
+            currentListId = StandInBackend.LIST_ID;
+            repositories = listRef -> StandInBackend.create(this, seedTasks);
+        }
+        // Solo la lista visible actualiza la pantalla; las demás guardan sus vistas
+        listManager = new ListManager(this, databaseRef.child("lists"), prefs, repositories,
+                new ListSession.Listener() {
+            @Override
+            public void onTasksChanged(ListSession changed, TaskStore.Views views) {
+                if (isDestroyed() || changed != session) return;
+                taskViews = views;
+                showCurrentView();
+            }
+
+            @Override
+            public void onSyncError(ListSession failed, DatabaseError error) {
+                if (failed != session) return;
+                Toast.makeText(MainActivity.this, "Firebase Error: " + error.getMessage(),
+                        Toast.LENGTH_SHORT).show();
+            }
+
+            @Override
+            public void onSubtasksChanged(ListSession changed, String taskKey) {
+                if (changed == session) taskAdapter.onSubtasksChanged(taskKey);
+            }
+        });
         initViews();
         setupTabLayout();
+        requestNotificationPermission();
+        switchToList(currentListId);
+        if (hasPendingImport()) offerImportResume();
+    }
+
+    // Cambia de lista sin recrear la actividad: si la lista sigue en memoria se muestra
+    // al instante y solo se mueven los listeners
+    private void switchToList(String listId) {
+        taskAdapter.clearSelection();
+        if (session != null) {
+            if (started) detachListHeader();
+            session.sync.removeStoreListener(reminderIndex);
+            reminderIndex.stop();
+            ReminderScheduler.cancel(this);
+            closeCalendarSync();
+        }
+        currentListId = listId;
+        Set<String> knownLists = new HashSet<>(prefs.getStringSet("lists",
+                Collections.<String>emptySet()));
+        knownLists.add(listId);
+        prefs.edit().putString("listId", listId).putStringSet("lists", knownLists).apply();
+
+        session = listManager.switchTo(listId);
+        reminderIndex = new ReminderIndex(this, session.repository, listId);
+        session.sync.addStoreListener(reminderIndex);
+        if (prefs.getBoolean("calendarSync", false) && hasCalendarPermission()) {
+            startCalendarSync();
+        }
+        session.search(etSearch.getText().toString());
+        taskViews = session.getViews();
+        updateHeader();
+        updateListMenu();
+        showCurrentView();
+        recyclerView.scrollToPosition(0);
+        if (started) attachListHeader();
     }
 
     @Override
@@ -54,13 +177,312 @@ public class MainActivity extends AppCompatActivity {
         if (currentListId != null && !currentListId.isEmpty()) {
             setupFirebaseListener(); // ← Solo si hay lista válida
         }
+        if (metricsOverlay != null) metricsOverlay.onStart();
     }
 
     @Override
     protected void onStop() {
         super.onStop();
-        if (tasksListener != null) {
-            databaseRef.removeEventListener(tasksListener);
+        stopFirebaseListeners();
+        if (metricsOverlay != null) metricsOverlay.onStop();
+    }
+
+    // Android 13+: sin este permiso los avisos de vencimiento no se muestran
+    private void requestNotificationPermission() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.TIRAMISU ||
+                prefs.getBoolean("askedNotifications", false) ||
+                ContextCompat.checkSelfPermission(this, Manifest.permission.POST_NOTIFICATIONS)
+                        == PackageManager.PERMISSION_GRANTED) {
+            return;
+        }
+        prefs.edit().putBoolean("askedNotifications", true).apply();
+        requestPermissions(new String[]{Manifest.permission.POST_NOTIFICATIONS},
+                REQUEST_NOTIFICATIONS);
+    }
+
+    private boolean hasCalendarPermission() {
+        for (String permission : CALENDAR_PERMISSIONS) {
+            if (ContextCompat.checkSelfPermission(this, permission)
+                    != PackageManager.PERMISSION_GRANTED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void toggleCalendarSync() {
+        if (calendarSync != null) {
+            stopCalendarSync();
+            Toast.makeText(this, "Sincronización con el calendario desactivada",
+                    Toast.LENGTH_SHORT).show();
+        } else if (hasCalendarPermission()) {
+            startCalendarSync();
+        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            requestPermissions(CALENDAR_PERMISSIONS, REQUEST_CALENDAR);
+        }
+    }
+
+    // Los eventos ya creados se conservan al desactivarla
+    private void startCalendarSync() {
+        calendarSync = new CalendarSync(this, currentListId, session.repository);
+        session.sync.addStoreListener(calendarSync);
+        prefs.edit().putBoolean("calendarSync", true).apply();
+        updateListMenu();
+    }
+
+    private void stopCalendarSync() {
+        closeCalendarSync();
+        prefs.edit().putBoolean("calendarSync", false).apply();
+        updateListMenu();
+    }
+
+    private void closeCalendarSync() {
+        if (calendarSync == null) return;
+        session.sync.removeStoreListener(calendarSync);
+        calendarSync.close();
+        calendarSync = null;
+    }
+
+    private void updateListMenu() {
+        if (selectionMode) return;
+        Menu menu = toolbar.getMenu();
+        menu.findItem(R.id.action_calendar_sync).setChecked(calendarSync != null);
+        menu.findItem(R.id.action_pin_list).setChecked(listManager.isPinned(currentListId));
+        menu.findItem(R.id.action_metrics_overlay).setVisible(BuildConfig.DEBUG)
+                .setChecked(metricsOverlay != null && metricsOverlay.isShown());
+    }
+
+    private void toggleMetricsOverlay() {
+        if (metricsOverlay == null) metricsOverlay = new MetricsOverlay(this);
+        metricsOverlay.setShown(!metricsOverlay.isShown());
+        updateListMenu();
+    }
+
+    private void exportMetrics() {
+        Intent shareIntent = new Intent(Intent.ACTION_SEND);
+        shareIntent.setType("text/plain");
+        shareIntent.putExtra(Intent.EXTRA_SUBJECT, "Métricas de TATILIST");
+        shareIntent.putExtra(Intent.EXTRA_TEXT, Metrics.toJson());
+        startActivity(Intent.createChooser(shareIntent, "Exportar métricas"));
+    }
+
+    private boolean isTransferRunning() {
+        if (exporter == null && importer == null) return false;
+        Toast.makeText(this, "Ya hay una exportación o importación en curso",
+                Toast.LENGTH_SHORT).show();
+        return true;
+    }
+
+    // El botón la detiene al terminar el bloque en curso
+    private void showTransferDialog(String title, String stopLabel, Runnable onStop) {
+        transferDialog = new AlertDialog.Builder(this)
+                .setTitle(title)
+                .setMessage("Preparando...")
+                .setCancelable(false)
+                .setNegativeButton(stopLabel, (dialog, which) -> onStop.run())
+                .show();
+    }
+
+    private void dismissTransferDialog() {
+        if (transferDialog != null) transferDialog.dismiss();
+        transferDialog = null;
+    }
+
+    private void showExportDialog() {
+        if (isTransferRunning()) return;
+        String[] formats = {"CSV (hojas de cálculo)", "JSON"};
+        new AlertDialog.Builder(this)
+                .setTitle("Exportar tareas")
+                .setItems(formats, (dialog, which) -> {
+                    boolean json = which == 1;
+                    Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+                    intent.addCategory(Intent.CATEGORY_OPENABLE);
+                    intent.setType(json ? TaskFile.MIME_JSON : TaskFile.MIME_CSV);
+                    intent.putExtra(Intent.EXTRA_TITLE, "tatilist-" +
+                            currentListId.substring(0, Math.min(8, currentListId.length())) +
+                            (json ? ".json" : ".csv"));
+                    startActivityForResult(intent, REQUEST_EXPORT);
+                })
+                .setNegativeButton("Cancelar", null)
+                .show();
+    }
+
+    private void startExport(Uri uri) {
+        String mimeType = TaskFile.MIME_JSON.equals(getContentResolver().getType(uri))
+                ? TaskFile.MIME_JSON : TaskFile.MIME_CSV;
+        exporter = new TaskExporter(getContentResolver(), uri, mimeType, session.repository,
+                new TaskExporter.Listener() {
+            @Override
+            public void onProgress(int tasks) {
+                if (transferDialog != null) transferDialog.setMessage(tasks + " tareas exportadas");
+            }
+
+            @Override
+            public void onDone(int tasks, boolean cancelled, @Nullable String error) {
+                exporter = null;
+                dismissTransferDialog();
+                if (isDestroyed()) return;
+                String message = error != null ? "No se pudo exportar: " + error
+                        : cancelled ? "Exportación cancelada" : tasks + " tareas exportadas";
+                Toast.makeText(MainActivity.this, message, Toast.LENGTH_LONG).show();
+            }
+        });
+        TaskExporter running = exporter;
+        showTransferDialog("Exportando tareas", "Cancelar", running::cancel);
+        running.start();
+    }
+
+    private void showImportDialog() {
+        if (isTransferRunning()) return;
+        if (hasPendingImport()) {
+            offerImportResume();
+            return;
+        }
+        Intent intent = new Intent(Intent.ACTION_OPEN_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType("*/*");
+        intent.putExtra(Intent.EXTRA_MIME_TYPES, new String[]{TaskFile.MIME_CSV,
+                "text/comma-separated-values", "text/plain", TaskFile.MIME_JSON});
+        startActivityForResult(intent, REQUEST_IMPORT);
+    }
+
+    private boolean hasPendingImport() {
+        return prefs.getString(PREF_IMPORT_ID + currentListId, null) != null;
+    }
+
+    private void offerImportResume() {
+        new AlertDialog.Builder(this)
+                .setTitle("Importación sin terminar")
+                .setMessage("Esta lista tiene una importación a medias. ¿Continuar donde quedó? " +
+                        "Si la descartas, las tareas ya importadas se conservan.")
+                .setPositiveButton("Continuar", (dialog, which) -> startImport())
+                .setNeutralButton("Descartar", (dialog, which) -> discardImport())
+                .setNegativeButton("Más tarde", null)
+                .show();
+    }
+
+    // Se guarda antes de empezar: si la app se cierra, la importación se retoma desde el menú
+    private void beginImport(Uri uri) {
+        try {
+            getContentResolver().takePersistableUriPermission(uri,
+                    Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        } catch (SecurityException e) {
+            // Sin permiso persistente solo se puede retomar mientras la app siga abierta
+        }
+        prefs.edit()
+                .putString(PREF_IMPORT_ID + currentListId, session.repository.newKey())
+                .putString(PREF_IMPORT_URI + currentListId, uri.toString())
+                .apply();
+        startImport();
+    }
+
+    private void startImport() {
+        String listId = currentListId;
+        String importId = prefs.getString(PREF_IMPORT_ID + listId, null);
+        String uri = prefs.getString(PREF_IMPORT_URI + listId, null);
+        if (importId == null || uri == null || isTransferRunning()) return;
+        if (TaskImporter.isRunning(importId)) {
+            Toast.makeText(this, "La importación todavía se está deteniendo, prueba en unos segundos",
+                    Toast.LENGTH_SHORT).show();
+            return;
+        }
+        importer = new TaskImporter(getContentResolver(), Uri.parse(uri), session.repository,
+                importId, new TaskImporter.Listener() {
+            @Override
+            public void onProgress(int rows, int imported) {
+                if (transferDialog != null) {
+                    transferDialog.setMessage(imported + " tareas importadas (" + rows + " filas leídas)");
+                }
+            }
+
+            @Override
+            public void onFinished(int rows, int imported) {
+                importer = null;
+                dismissTransferDialog();
+                forgetImport(listId);
+                if (isDestroyed()) return;
+                String message = imported + " tareas importadas";
+                if (rows > imported) message += ", " + (rows - imported) + " filas no válidas omitidas";
+                Toast.makeText(MainActivity.this, message, Toast.LENGTH_LONG).show();
+            }
+
+            @Override
+            public void onStopped(int rows, int imported, @Nullable String error) {
+                importer = null;
+                dismissTransferDialog();
+                if (isDestroyed()) return;
+                Toast.makeText(MainActivity.this, (error != null ? "Importación detenida: " + error
+                                : "Importación en pausa") + ". Puedes continuarla desde el menú",
+                        Toast.LENGTH_LONG).show();
+            }
+        });
+        TaskImporter running = importer;
+        showTransferDialog("Importando tareas", "Pausar", running::cancel);
+        running.start();
+    }
+
+    private void discardImport() {
+        String importId = prefs.getString(PREF_IMPORT_ID + currentListId, null);
+        if (importId == null || TaskImporter.isRunning(importId)) return;
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(TaskImporter.IMPORTS + "/" + importId, null);
+        session.repository.update(updates, null);
+        forgetImport(currentListId);
+    }
+
+    private void forgetImport(String listId) {
+        String uri = prefs.getString(PREF_IMPORT_URI + listId, null);
+        prefs.edit().remove(PREF_IMPORT_ID + listId).remove(PREF_IMPORT_URI + listId).apply();
+        if (uri == null) return;
+        try {
+            getContentResolver().releasePersistableUriPermission(Uri.parse(uri),
+                    Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        } catch (SecurityException e) {
+            // No se había concedido de forma persistente
+        }
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (resultCode != RESULT_OK || data == null || data.getData() == null) return;
+        if (requestCode == REQUEST_EXPORT) {
+            startExport(data.getData());
+        } else if (requestCode == REQUEST_IMPORT) {
+            beginImport(data.getData());
+        }
+    }
+
+    private void showListsDialog() {
+        List<String> lists = new ArrayList<>(prefs.getStringSet("lists",
+                Collections.<String>emptySet()));
+        Collections.sort(lists);
+        String[] labels = new String[lists.size() + 1];
+        for (int i = 0; i < lists.size(); i++) {
+            String listId = lists.get(i);
+            labels[i] = (listId.equals(currentListId) ? "● " : "") +
+                    listId.substring(0, Math.min(8, listId.length())) + "...";
+        }
+        labels[lists.size()] = "➕ Nueva lista";
+        new AlertDialog.Builder(this)
+                .setTitle("Mis listas")
+                .setItems(labels, (dialog, which) -> {
+                    if (which == lists.size()) {
+                        switchToList(UUID.randomUUID().toString());
+                    } else if (!lists.get(which).equals(currentListId)) {
+                        switchToList(lists.get(which));
+                    }
+                })
+                .setNegativeButton("Cancelar", null)
+                .show();
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions,
+                                           @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode == REQUEST_CALENDAR && hasCalendarPermission() && calendarSync == null) {
+            startCalendarSync();
         }
     }
 
@@ -70,11 +492,77 @@ public class MainActivity extends AppCompatActivity {
         tabLayout = findViewById(R.id.tabLayout);
         tvTotalExpenses = findViewById(R.id.tvTotalExpenses);
         tvSharedWith = findViewById(R.id.tvSharedWith);
+        tvCompletedMore = findViewById(R.id.tvCompletedMore);
+        tvCompletedMore.setOnClickListener(v -> session.sync.loadMoreCompleted());
         btnShareList = findViewById(R.id.btnShareList);
         btnJoinList = findViewById(R.id.btnJoinList);
+        etSearch = findViewById(R.id.etSearch);
+        etSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+            @Override
+            public void afterTextChanged(Editable text) {
+                session.search(text.toString());
+            }
+        });
+
+        toolbar = findViewById(R.id.toolbar);
+        toolbar.inflateMenu(R.menu.menu_main);
+        appTitle = toolbar.getTitle();
+        toolbar.setOnMenuItemClickListener(item -> {
+            if (selectionMode) return onSelectionItemClicked(item.getItemId());
+            if (item.getItemId() == R.id.action_rebuild_totals) {
+                rebuildExpenseRollups();
+                return true;
+            }
+            if (item.getItemId() == R.id.action_calendar_sync) {
+                toggleCalendarSync();
+                return true;
+            }
+            if (item.getItemId() == R.id.action_lists) {
+                showListsDialog();
+                return true;
+            }
+            if (item.getItemId() == R.id.action_pin_list) {
+                listManager.setPinned(currentListId, !listManager.isPinned(currentListId));
+                updateListMenu();
+                return true;
+            }
+            if (item.getItemId() == R.id.action_archive_completed) {
+                showArchiveDialog();
+                return true;
+            }
+            if (item.getItemId() == R.id.action_export_tasks) {
+                showExportDialog();
+                return true;
+            }
+            if (item.getItemId() == R.id.action_import_tasks) {
+                showImportDialog();
+                return true;
+            }
+            if (item.getItemId() == R.id.action_metrics_overlay) {
+                toggleMetricsOverlay();
+                return true;
+            }
+            if (item.getItemId() == R.id.action_export_metrics) {
+                exportMetrics();
+                return true;
+            }
+            return false;
+        });
 
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
-        taskAdapter = new TaskAdapter(allTasks, this);
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView rv, int dx, int dy) {
+                onTasksScrolled();
+            }
+        });
+        taskAdapter = new TaskAdapter(this);
         recyclerView.setAdapter(taskAdapter);
 
         updateHeader();
@@ -97,6 +585,7 @@ public class MainActivity extends AppCompatActivity {
         });
 
         btnJoinList.setOnClickListener(v -> showJoinListDialog());
+        tvTotalExpenses.setOnClickListener(v -> showMonthCategories());
     }
 
     private void updateHeader() {
@@ -110,49 +599,87 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void setupFirebaseListener() {
-        tasksListener = new ValueEventListener() {
+        started = true;
+        listManager.start();
+        attachListHeader();
+    }
+
+    private void stopFirebaseListeners() {
+        started = false;
+        listManager.stop();
+        detachListHeader();
+    }
+
+    // Cabecera de la lista visible: miembros y gastos del mes
+    private void attachListHeader() {
+        TaskRepository repository = session.repository;
+        memberCountRegistration = repository.listenValue(Membership.MEMBER_COUNT,
+                new TaskRepository.ValueCallback() {
             @Override
-            public void onDataChange(@NonNull DataSnapshot snapshot) {
-                allTasks.clear();
-                for (DataSnapshot taskSnapshot : snapshot.child("lists").child(currentListId)
-                        .child("tasks").getChildren()) {
-                    Task task = taskSnapshot.getValue(Task.class);
-                    if (task != null) {
-                        task.setFirebaseKey(taskSnapshot.getKey());
-                        allTasks.add(task);
-                    }
-                }
-                Collections.sort(allTasks, (t1, t2) -> {
-                    if (t1.getDueDate() == null) return 1;
-                    if (t2.getDueDate() == null) return -1;
-                    return Long.compare(t1.getDueDate(), t2.getDueDate());
-                });
-                taskAdapter.notifyDataSetChanged();
-                updateTotalExpenses();
-                updateSharedUsersList();
+            public void onValue(@Nullable Object value) {
+                updateSharedUsersList(value instanceof Number ? ((Number) value).longValue() : null);
             }
 
             @Override
-            public void onCancelled(@NonNull DatabaseError error) {
-                Toast.makeText(MainActivity.this, "Firebase Error: " + error.getMessage(),
-                        Toast.LENGTH_SHORT).show();
+            public void onCancelled(DatabaseError error) {}
+        });
+        monthRollupRegistration = repository.listenValue(ExpenseRollups.ROLLUPS + "/" +
+                ExpenseRollups.monthKey(ExpenseTotals.monthBucket(System.currentTimeMillis())),
+                new TaskRepository.ValueCallback() {
+            @Override
+            public void onValue(@Nullable Object value) {
+                monthRollup = ExpenseRollups.parseMonth(value);
+                updateTotalExpenses();
             }
-        };
-        databaseRef.addValueEventListener(tasksListener);
+
+            @Override
+            public void onCancelled(DatabaseError error) {}
+        });
+        ExpenseRollups.ensureBuilt(repository);
+        registerMembership(currentListId, repository);
     }
 
-    private void updateSharedUsersList() {
-        databaseRef.child("lists").child(currentListId).child("users")
-                .addListenerForSingleValueEvent(new ValueEventListener() {
-                    @Override
-                    public void onDataChange(@NonNull DataSnapshot snapshot) {
-                        long userCount = snapshot.getChildrenCount();
-                        tvSharedWith.setText("Lista compartida con " + userCount +
-                                " usuario(s) • ID: " + currentListId.substring(0, 8) + "...");
-                    }
-                    @Override
-                    public void onCancelled(@NonNull DatabaseError error) {}
-                });
+    private void detachListHeader() {
+        if (memberCountRegistration != null) {
+            memberCountRegistration.remove();
+            memberCountRegistration = null;
+        }
+        if (monthRollupRegistration != null) {
+            monthRollupRegistration.remove();
+            monthRollupRegistration = null;
+        }
+        monthRollup = null;
+    }
+
+    // Registra este dispositivo una sola vez por lista (ver Membership)
+    private void registerMembership(String listId, TaskRepository repository) {
+        String prefKey = "member_" + listId;
+        if (prefs.getBoolean(prefKey, false)) return;
+        Membership.register(repository, deviceId,
+                () -> prefs.edit().putBoolean(prefKey, true).apply());
+    }
+
+    // Desliza la ventana de TaskPager según lo que se ve, medido sobre la vista "Todas"
+    private void onTasksScrolled() {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        int last = layoutManager.findLastVisibleItemPosition();
+        List<Task> shown = taskAdapter.getCurrentList();
+        // Los resultados de búsqueda no mueven la ventana
+        if (taskViews.getSearchResults() != null) return;
+        // "Hoy" y "Completadas" tienen sus propias consultas y no dependen de la ventana
+        if (currentFilter != TaskStore.FILTER_ALL) return;
+        if (first == RecyclerView.NO_POSITION || last >= shown.size()) return;
+        session.pager.onVisibleRange(first, last, taskViews.get(TaskStore.FILTER_ALL));
+    }
+
+    private void updateSharedUsersList(Long userCount) {
+        if (userCount == null) {
+            updateHeader();
+            return;
+        }
+        tvSharedWith.setText("Lista compartida con " + userCount +
+                " usuario(s) • ID: " + currentListId.substring(0, 8) + "...");
     }
 
     private void shareListId() {
@@ -183,20 +710,16 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void joinList(String newListId) {
-        databaseRef.child("lists").child(newListId).addListenerForSingleValueEvent(
+        // Basta con un hijo de users para saber si la lista existe
+        databaseRef.child("lists").child(newListId).child(Membership.USERS).limitToFirst(1)
+                .addListenerForSingleValueEvent(
                 new ValueEventListener() {
                     @Override
                     public void onDataChange(@NonNull DataSnapshot snapshot) {
                         if (snapshot.exists()) {
-                            currentListId = newListId;
-                            prefs.edit().putString("listId", currentListId).apply();
-                            String userId = UUID.randomUUID().toString();
-                            databaseRef.child("lists").child(currentListId)
-                                    .child("users").child(userId).setValue(true);
                             Toast.makeText(MainActivity.this,
                                     "✅ Te has unido a la lista", Toast.LENGTH_SHORT).show();
-                            updateHeader();
-                            recreate();
+                            switchToList(newListId);
                         } else {
                             Toast.makeText(MainActivity.this,
                                     "❌ La lista no existe", Toast.LENGTH_SHORT).show();
@@ -225,57 +748,41 @@ public class MainActivity extends AppCompatActivity {
         });
     }
 
-    private boolean isSameDay(long date1, long date2) {
-        Calendar c1 = Calendar.getInstance();
-        Calendar c2 = Calendar.getInstance();
-        c1.setTimeInMillis(date1);
-        c2.setTimeInMillis(date2);
-        return c1.get(Calendar.YEAR) == c2.get(Calendar.YEAR) &&
-                c1.get(Calendar.MONTH) == c2.get(Calendar.MONTH) &&
-                c1.get(Calendar.DAY_OF_MONTH) == c2.get(Calendar.DAY_OF_MONTH);
+    private void filterTasks(int position) {
+        currentFilter = position;
+        showCurrentView();
+        session.sync.requestPublish();
     }
 
-    private void filterTasks(int position) {
-        if (currentListId == null) return;
-        databaseRef.child("lists").child(currentListId).child("tasks")
-                .addListenerForSingleValueEvent(new ValueEventListener() {
-                    @Override
-                    public void onDataChange(@NonNull DataSnapshot snapshot) {
-                        allTasks.clear();
-                        long today = System.currentTimeMillis();
-                        for (DataSnapshot taskSnapshot : snapshot.getChildren()) {
-                            Task task = taskSnapshot.getValue(Task.class);
-                            if (task != null) {
-                                task.setFirebaseKey(taskSnapshot.getKey());
-                                boolean addTask = false;
-                                switch (position) {
-                                    case 0:
-                                        addTask = true;
-                                        break;
-                                    case 1:
-                                        if (task.getDueDate() != null && !task.isCompleted()) {
-                                            if (isSameDay(task.getDueDate(), today)) {
-                                                addTask = true;
-                                            }
-                                        }
-                                        break;
-                                    case 2:
-                                        if (task.isCompleted()) {
-                                            addTask = true;
-                                        }
-                                        break;
-                                }
-                                if (addTask) {
-                                    allTasks.add(task);
-                                }
-                            }
-                        }
-                        taskAdapter.notifyDataSetChanged();
-                        updateTotalExpenses();
-                    }
-                    @Override
-                    public void onCancelled(@NonNull DatabaseError error) {}
-                });
+    // Las pestañas son vistas en memoria del TaskStore: cambiar de pestaña no toca la red
+    private void showCurrentView() {
+        List<Task> searchResults = taskViews.getSearchResults();
+        allTasks = searchResults != null ? searchResults : taskViews.get(currentFilter);
+        // Incluye el DiffUtil en segundo plano y la espera hasta el commit
+        long diffStart = System.nanoTime();
+        taskAdapter.submitList(allTasks, () -> {
+            Metrics.elapsed(Metrics.UI_DIFF, diffStart);
+            if (!firstTaskShown && !allTasks.isEmpty()) {
+                firstTaskShown = true;
+                Log.i(TAG, "Primera tarea visible en " +
+                        (SystemClock.uptimeMillis() - createdAt) + " ms");
+                reportFullyDrawn();
+            }
+        });
+        updateTotalExpenses();
+        updateCompletedMore(searchResults == null);
+    }
+
+    // "Completadas" trae de a páginas las últimas creadas: si quedó corta se avisa y se
+    // puede pedir la siguiente
+    private void updateCompletedMore(boolean showingTab) {
+        if (showingTab && currentFilter == TaskStore.FILTER_COMPLETED && session.sync.isCompletedTruncated()) {
+            tvCompletedMore.setText("Se muestran las últimas " + allTasks.size() +
+                    " completadas · Toca para ver más");
+            tvCompletedMore.setVisibility(View.VISIBLE);
+        } else {
+            tvCompletedMore.setVisibility(View.GONE);
+        }
     }
 
     private void showAddTaskDialog() {
@@ -287,7 +794,9 @@ public class MainActivity extends AppCompatActivity {
         Spinner spinnerPriority = dialogView.findViewById(R.id.spinnerPriority);
         Spinner spinnerCategory = dialogView.findViewById(R.id.spinnerCategory);
         Button btnSelectDate = dialogView.findViewById(R.id.btnSelectDate);
-        CheckBox cbRecurring = dialogView.findViewById(R.id.cbRecurring);
+        Spinner spinnerRecurrence = dialogView.findViewById(R.id.spinnerRecurrence);
+        List<Subtask> subtasks = new ArrayList<>();
+        setupSubtaskEditor(dialogView, subtasks);
 
         ArrayAdapter<CharSequence> priorityAdapter = ArrayAdapter.createFromResource(this,
                 R.array.priority_array, android.R.layout.simple_spinner_item);
@@ -299,14 +808,18 @@ public class MainActivity extends AppCompatActivity {
         categoryAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
         spinnerCategory.setAdapter(categoryAdapter);
 
+        ArrayAdapter<CharSequence> recurrenceAdapter = ArrayAdapter.createFromResource(this,
+                R.array.recurrence_array, android.R.layout.simple_spinner_item);
+        recurrenceAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinnerRecurrence.setAdapter(recurrenceAdapter);
+
         final Long[] selectedDate = {null};
         btnSelectDate.setOnClickListener(v -> {
             Calendar calendar = Calendar.getInstance();
             new DatePickerDialog(this, (view, year, month, day) -> {
                 calendar.set(year, month, day);
                 selectedDate[0] = calendar.getTimeInMillis();
-                SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-                btnSelectDate.setText(sdf.format(new Date(selectedDate[0])));
+                btnSelectDate.setText(TaskFormat.formatDate(selectedDate[0]));
             }, calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH),
                     calendar.get(Calendar.DAY_OF_MONTH)).show();
         });
@@ -324,40 +837,341 @@ public class MainActivity extends AppCompatActivity {
                     double expense = expenseStr.isEmpty() ? 0 : Double.parseDouble(expenseStr);
                     int priority = spinnerPriority.getSelectedItemPosition() + 1;
                     String category = spinnerCategory.getSelectedItem().toString();
-                    boolean isRecurring = cbRecurring.isChecked();
+                    String recurrence = recurrenceRule(spinnerRecurrence.getSelectedItemPosition(),
+                            selectedDate[0], null);
 
                     Task task = new Task(title, description, selectedDate[0], priority,
-                            false, expense, category, isRecurring);
+                            false, expense, category, recurrence);
 
-                    String taskId = databaseRef.child("lists").child(currentListId)
-                            .child("tasks").push().getKey();
+                    String taskId = session.repository.newKey();
                     if (taskId != null) {
-                        databaseRef.child("lists").child(currentListId)
-                                .child("tasks").child(taskId).setValue(task);
-                        String userId = UUID.randomUUID().toString();
-                        databaseRef.child("lists").child(currentListId)
-                                .child("users").child(userId).setValue(true);
+                        Map<String, Object> updates = new HashMap<>();
+                        // Tarea nueva: el resumen de subtareas va completo dentro del nodo
+                        SubtaskChanges changes = SubtaskChanges.collect(session.repository, taskId,
+                                Collections.<Subtask>emptyList(), subtasks, updates);
+                        task.setSubtaskTotals(changes.countDelta(), changes.centsDelta());
+                        updates.put("tasks/" + taskId, TaskMapper.toMap(task));
+                        new ExpenseRollups.Delta().add(task, 1).writeTo(updates);
+                        session.repository.update(updates, null);
                     }
                 })
                 .setNegativeButton("Cancelar", null)
                 .show();
     }
 
-    public void updateTask(Task task) {
-        if (task.getFirebaseKey() != null) {
-            databaseRef.child("lists").child(currentListId)
-                    .child("tasks").child(task.getFirebaseKey()).setValue(task);
+    public void updateTask(Task original, Task task) {
+        updateTask(original, task, new HashMap<>());
+    }
+
+    // Solo sube los campos que cambiaron: un toggle son unos pocos bytes y las
+    // ediciones concurrentes de otros campos no se pisan. Si cambia el gasto, la fecha o
+    // la categoría, los rollups se ajustan en la misma escritura.
+    private void updateTask(Task original, Task task, Map<String, Object> updates) {
+        if (task.getFirebaseKey() == null) return;
+        ExpenseRollups.Delta delta = new ExpenseRollups.Delta();
+        if (!collectTaskUpdate(original, task, updates, delta) && updates.isEmpty()) return;
+        delta.writeTo(updates);
+        TaskRepository repository = session.repository;
+        boolean completed = !original.isCompleted() && task.isCompleted();
+        repository.update(updates, !completed ? null : error -> {
+            if (error == null) addNextOccurrence(repository, task, System.currentTimeMillis());
+        });
+    }
+
+    // Agrega a updates y delta lo que cambió de original a task, sin escribir
+    private boolean collectTaskUpdate(Task original, Task task, Map<String, Object> updates,
+                                      ExpenseRollups.Delta delta) {
+        Map<String, Object> changes = TaskMapper.toChangedFields(task);
+        task.clearDirtyFields();
+        // El gasto también cambia con las subtareas, aunque la tarea no tenga campos sucios
+        delta.add(original, -1).add(task, 1);
+        if (changes.isEmpty()) return false;
+        String taskPath = "tasks/" + task.getFirebaseKey() + "/";
+        for (Map.Entry<String, Object> change : changes.entrySet()) {
+            updates.put(taskPath + change.getKey(), change.getValue());
+        }
+        return true;
+    }
+
+    // Completar una tarea recurrente crea solo la próxima instancia, después de confirmada
+    // la escritura. Su clave sale de la serie y la fecha, y se reserva en occurrences/{clave}
+    // con una transacción que exige que no exista; la tarea y su gasto en rollups van después
+    // en un solo update, que además marca la reserva como cumplida. Completar dos veces (o
+    // desde dos dispositivos) no la duplica ni suma dos veces su gasto, aunque la instancia no
+    // esté entre las tareas cargadas
+    static void addNextOccurrence(TaskRepository repository, Task task, long now) {
+        Recurrence recurrence = Recurrence.parse(task.getRecurrence());
+        if (recurrence == null) return;
+        long next = recurrence.nextAfterCompletion(
+                task.hasDueDate() ? task.dueMillis() : now, now);
+        // Las subtareas son de cada instancia y no se copian
+        Task occurrence = new Task(task.getTitle(), task.getDescription(), next,
+                task.getPriority(), false, task.getExpense(), task.getCategory(),
+                task.getRecurrence());
+        String key = Recurrence.occurrenceKey(task.getFirebaseKey(), next);
+        String claimPath = OCCURRENCES + "/" + key;
+        repository.compareAndSet(claimPath, null, now, (written, error) -> {
+            if (written) {
+                writeOccurrence(repository, key, occurrence, now);
+                return;
+            }
+            if (error != null) return;
+            // Una reserva sin cumplir (el dispositivo que la hizo se cerró antes de escribir)
+            // se puede retomar pasado un rato; true es que la instancia ya se escribió
+            repository.readValue(claimPath, new TaskRepository.ValueCallback() {
+                @Override
+                public void onValue(@Nullable Object claim) {
+                    if (!(claim instanceof Number) ||
+                            now - ((Number) claim).longValue() < OCCURRENCE_CLAIM_TIMEOUT_MS) {
+                        return;
+                    }
+                    repository.compareAndSet(claimPath, claim, now, (taken, takeError) -> {
+                        if (taken) writeOccurrence(repository, key, occurrence, now);
+                    });
+                }
+
+                @Override
+                public void onCancelled(DatabaseError readError) {}
+            });
+        });
+    }
+
+    private static void writeOccurrence(TaskRepository repository, String key, Task occurrence,
+                                        long claim) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("tasks/" + key, TaskMapper.toMap(occurrence));
+        updates.put(OCCURRENCES + "/" + key, true);
+        new ExpenseRollups.Delta().add(occurrence, 1).writeTo(updates);
+        repository.update(updates, error -> {
+            // Se suelta la reserva para que otro intento la pueda tomar enseguida
+            if (error != null) {
+                repository.compareAndSet(OCCURRENCES + "/" + key, claim, null,
+                        (released, releaseError) -> {});
+            }
+        });
+    }
+
+    // recurrence_array sigue el orden de Recurrence.DAILY..DAY_OF_MONTH; 0 es "no se repite"
+    private static int recurrencePosition(String rule) {
+        Recurrence recurrence = Recurrence.parse(rule);
+        return recurrence != null ? recurrence.frequency : 0;
+    }
+
+    // El día fijo sale de la fecha de vencimiento; si no cambió, se conserva la regla anterior
+    private static String recurrenceRule(int position, Long dueDate, String previousRule) {
+        switch (position) {
+            case Recurrence.DAILY: return Recurrence.daily().toRule();
+            case Recurrence.WEEKLY: return Recurrence.weekly().toRule();
+            case Recurrence.MONTHLY: return Recurrence.monthly().toRule();
+            case Recurrence.DAY_OF_MONTH:
+                if (recurrencePosition(previousRule) == Recurrence.DAY_OF_MONTH) {
+                    return previousRule;
+                }
+                Calendar calendar = Calendar.getInstance();
+                if (dueDate != null) calendar.setTimeInMillis(dueDate);
+                return Recurrence.onDayOfMonth(calendar.get(Calendar.DAY_OF_MONTH)).toRule();
+            default:
+                return null;
+        }
+    }
+
+    // Modo selección: la barra muestra las acciones masivas en lugar del menú normal
+    void onSelectionChanged(int count) {
+        boolean selecting = count > 0;
+        if (selecting != selectionMode) {
+            selectionMode = selecting;
+            toolbar.getMenu().clear();
+            toolbar.inflateMenu(selecting ? R.menu.menu_selection : R.menu.menu_main);
+            if (!selecting) {
+                toolbar.setTitle(appTitle);
+                updateListMenu();
+            }
+        }
+        if (selecting) {
+            toolbar.setTitle(count == 1 ? "1 seleccionada" : count + " seleccionadas");
+        }
+    }
+
+    @Override
+    public void onBackPressed() {
+        if (selectionMode) {
+            taskAdapter.clearSelection();
+            return;
+        }
+        super.onBackPressed();
+    }
+
+    private boolean onSelectionItemClicked(int itemId) {
+        if (itemId == R.id.action_select_all) {
+            taskAdapter.selectAll();
+            return true;
+        }
+        if (itemId == R.id.action_select_cancel) {
+            taskAdapter.clearSelection();
+            return true;
+        }
+        List<Task> selected = selectedTasks();
+        if (itemId == R.id.action_select_complete) {
+            int count = completeTasks(selected);
+            taskAdapter.clearSelection();
+            Toast.makeText(this, "✅ " + count + " tareas completadas", Toast.LENGTH_SHORT).show();
+            return true;
+        }
+        if (itemId == R.id.action_select_category) {
+            String[] categories = getResources().getStringArray(R.array.category_array);
+            new AlertDialog.Builder(this)
+                    .setTitle("Cambiar categoría")
+                    .setItems(categories, (dialog, which) -> {
+                        recategorizeTasks(selected, categories[which]);
+                        taskAdapter.clearSelection();
+                    })
+                    .setNegativeButton("Cancelar", null)
+                    .show();
+            return true;
+        }
+        if (itemId == R.id.action_select_delete) {
+            new AlertDialog.Builder(this)
+                    .setTitle("Eliminar tareas")
+                    .setMessage("¿Estás seguro de eliminar " + selected.size() + " tareas?")
+                    .setPositiveButton("Eliminar", (dialog, which) -> {
+                        deleteTasks(selected);
+                        taskAdapter.clearSelection();
+                    })
+                    .setNegativeButton("Cancelar", null)
+                    .show();
+            return true;
+        }
+        return false;
+    }
+
+    // La selección guarda la tarea al momento de marcarla; se usa la versión más reciente
+    private List<Task> selectedTasks() {
+        Map<String, Task> current = new HashMap<>();
+        for (int filter : new int[]{TaskStore.FILTER_ALL, TaskStore.FILTER_TODAY,
+                TaskStore.FILTER_COMPLETED}) {
+            for (Task task : taskViews.get(filter)) {
+                current.put(task.getFirebaseKey(), task);
+            }
+        }
+        List<Task> tasks = new ArrayList<>();
+        for (Task selected : taskAdapter.getSelectedTasks()) {
+            Task latest = current.get(selected.getFirebaseKey());
+            tasks.add(latest != null ? latest : selected);
+        }
+        return tasks;
+    }
+
+    // Las operaciones masivas van en un solo updateChildren (o pocos, ver BulkWriter)
+    private int completeTasks(Collection<Task> tasks) {
+        TaskRepository repository = session.repository;
+        List<Task> completed = new ArrayList<>();
+        return BulkWriter.run(repository, tasks, (task, updates, delta) -> {
+            if (task.isCompleted()) return false;
+            Task updated = task.copy();
+            updated.setCompleted(true);
+            completed.add(updated);
+            return collectTaskUpdate(task, updated, updates, delta);
+        }, (changed, error) -> {
+            onBulkWriteDone(changed, error);
+            // Con un error no se sabe qué bloques quedaron: se crean al volver a completarlas
+            if (error != null) return;
+            long now = System.currentTimeMillis();
+            for (Task task : completed) {
+                addNextOccurrence(repository, task, now);
+            }
+        });
+    }
+
+    private void recategorizeTasks(Collection<Task> tasks, String category) {
+        BulkWriter.run(session.repository, tasks, (task, updates, delta) -> {
+            Task updated = task.copy();
+            updated.setCategory(category);
+            return collectTaskUpdate(task, updated, updates, delta);
+        }, this::onBulkWriteDone);
+    }
+
+    private void deleteTasks(Collection<Task> tasks) {
+        int count = BulkWriter.run(session.repository, tasks, (task, updates, delta) -> {
+            updates.put("tasks/" + task.getFirebaseKey(), null);
+            updates.put("subtasks/" + task.getFirebaseKey(), null);
+            delta.add(task, -1);
+            return true;
+        }, this::onBulkWriteDone);
+        for (Task task : tasks) {
+            if (session.subtasks.isExpanded(task.getFirebaseKey())) {
+                session.subtasks.toggle(task.getFirebaseKey());
+            }
         }
+        Toast.makeText(this, "🗑️ " + count + " tareas eliminadas", Toast.LENGTH_SHORT).show();
     }
 
-    public void deleteTask(Task task) {
-        if (task.getFirebaseKey() != null) {
-            databaseRef.child("lists").child(currentListId)
-                    .child("tasks").child(task.getFirebaseKey()).removeValue();
+    private void onBulkWriteDone(int changed, @Nullable DatabaseError error) {
+        if (error != null && !isDestroyed()) {
+            Toast.makeText(this, "Error al guardar: " + error.getMessage(),
+                    Toast.LENGTH_SHORT).show();
         }
     }
 
-    public void showEditDialog(Task task) {
+    // "Hace más de N días" se mide desde que se completó; en las completadas antes de que se
+    // guardara esa fecha, desde el vencimiento (ver TaskArchiver)
+    private void showArchiveDialog() {
+        View dialogView = getLayoutInflater().inflate(R.layout.dialog_archive, null);
+        EditText etDays = dialogView.findViewById(R.id.etArchiveDays);
+        new AlertDialog.Builder(this)
+                .setView(dialogView)
+                .setTitle("Archivar completadas")
+                .setPositiveButton("Archivar", (dialog, which) -> {
+                    int days;
+                    try {
+                        days = Integer.parseInt(etDays.getText().toString().trim());
+                    } catch (NumberFormatException e) {
+                        Toast.makeText(this, "Ingresa un número de días", Toast.LENGTH_SHORT).show();
+                        return;
+                    }
+                    long cutoff = System.currentTimeMillis() - days * 24L * 60 * 60 * 1000;
+                    // La lista puede cambiar antes de que terminen las lecturas
+                    TaskArchiver.archiveCompleted(session.repository, cutoff,
+                            this::onBulkWriteDone, (count, error) -> {
+                        if (error != null) {
+                            onBulkWriteDone(count, error);
+                            return;
+                        }
+                        if (isDestroyed()) return;
+                        Toast.makeText(MainActivity.this, count == 0
+                                ? "No hay tareas para archivar"
+                                : "📦 " + count + " tareas archivadas", Toast.LENGTH_SHORT).show();
+                    });
+                })
+                .setNegativeButton("Cancelar", null)
+                .show();
+    }
+
+    public void setSubtaskCompleted(Task task, Subtask subtask, boolean completed) {
+        if (task.getFirebaseKey() == null || subtask.getKey() == null) return;
+        session.repository.update(Collections.<String, Object>singletonMap("subtasks/" +
+                task.getFirebaseKey() + "/" + subtask.getKey() + "/" +
+                TaskMapper.SUBTASK_COMPLETED, completed), null);
+    }
+
+    // Las filas editan en el lugar los objetos de "subtasks"
+    private SubtaskAdapter setupSubtaskEditor(View dialogView, List<Subtask> subtasks) {
+        RecyclerView rvSubtasks = dialogView.findViewById(R.id.rvSubtasks);
+        rvSubtasks.setLayoutManager(new LinearLayoutManager(this));
+        rvSubtasks.setNestedScrollingEnabled(false);
+        SubtaskAdapter adapter = new SubtaskAdapter(true, null);
+        rvSubtasks.setAdapter(adapter);
+        adapter.submitList(new ArrayList<>(subtasks));
+        Button btnAddSubtask = dialogView.findViewById(R.id.btnAddSubtask);
+        btnAddSubtask.setOnClickListener(v -> {
+            subtasks.add(new Subtask("", 0, false));
+            adapter.submitList(new ArrayList<>(subtasks));
+        });
+        return adapter;
+    }
+
+    public void showEditDialog(Task original) {
+        // Se edita una copia: las instancias que ya tiene el adapter no se mutan
+        Task task = original.copy();
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         View dialogView = getLayoutInflater().inflate(R.layout.dialog_add_task, null);
         EditText etTitle = dialogView.findViewById(R.id.etTitle);
@@ -366,7 +1180,24 @@ public class MainActivity extends AppCompatActivity {
         Spinner spinnerPriority = dialogView.findViewById(R.id.spinnerPriority);
         Spinner spinnerCategory = dialogView.findViewById(R.id.spinnerCategory);
         Button btnSelectDate = dialogView.findViewById(R.id.btnSelectDate);
-        CheckBox cbRecurring = dialogView.findViewById(R.id.cbRecurring);
+        Spinner spinnerRecurrence = dialogView.findViewById(R.id.spinnerRecurrence);
+
+        // Las subtareas se cargan recién ahora; hasta que llegan no se pueden editar
+        List<Subtask> originalSubtasks = new ArrayList<>();
+        List<Subtask> subtasks = new ArrayList<>();
+        final boolean[] subtasksLoaded = {false};
+        SubtaskAdapter subtaskAdapter = setupSubtaskEditor(dialogView, subtasks);
+        Button btnAddSubtask = dialogView.findViewById(R.id.btnAddSubtask);
+        btnAddSubtask.setEnabled(false);
+        session.subtasks.loadOnce(task.getFirebaseKey(), (taskKey, loaded) -> {
+            originalSubtasks.addAll(loaded);
+            for (Subtask subtask : loaded) {
+                subtasks.add(subtask.copy());
+            }
+            subtasksLoaded[0] = true;
+            subtaskAdapter.submitList(new ArrayList<>(subtasks));
+            btnAddSubtask.setEnabled(true);
+        });
 
         etTitle.setText(task.getTitle());
         etDescription.setText(task.getDescription());
@@ -392,11 +1223,14 @@ public class MainActivity extends AppCompatActivity {
             }
         }
 
-        cbRecurring.setChecked(task.isRecurring());
+        ArrayAdapter<CharSequence> recurrenceAdapter = ArrayAdapter.createFromResource(this,
+                R.array.recurrence_array, android.R.layout.simple_spinner_item);
+        recurrenceAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinnerRecurrence.setAdapter(recurrenceAdapter);
+        spinnerRecurrence.setSelection(recurrencePosition(task.getRecurrence()));
         final Long[] selectedDate = {task.getDueDate()};
         if (selectedDate[0] != null) {
-            SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-            btnSelectDate.setText(sdf.format(new Date(selectedDate[0])));
+            btnSelectDate.setText(TaskFormat.formatDate(selectedDate[0]));
         }
         btnSelectDate.setOnClickListener(v -> {
             Calendar calendar = Calendar.getInstance();
@@ -406,8 +1240,7 @@ public class MainActivity extends AppCompatActivity {
             new DatePickerDialog(this, (view, year, month, day) -> {
                 calendar.set(year, month, day);
                 selectedDate[0] = calendar.getTimeInMillis();
-                SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-                btnSelectDate.setText(sdf.format(new Date(selectedDate[0])));
+                btnSelectDate.setText(TaskFormat.formatDate(selectedDate[0]));
             }, calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH),
                     calendar.get(Calendar.DAY_OF_MONTH)).show();
         });
@@ -422,171 +1255,499 @@ public class MainActivity extends AppCompatActivity {
                     task.setPriority(spinnerPriority.getSelectedItemPosition() + 1);
                     task.setCategory(spinnerCategory.getSelectedItem().toString());
                     task.setDueDate(selectedDate[0]);
-                    task.setRecurring(cbRecurring.isChecked());
-                    updateTask(task);
+                    task.setRecurrence(recurrenceRule(spinnerRecurrence.getSelectedItemPosition(),
+                            selectedDate[0], Objects.equals(selectedDate[0], original.getDueDate())
+                                    ? original.getRecurrence() : null));
+                    Map<String, Object> updates = new HashMap<>();
+                    if (subtasksLoaded[0]) {
+                        SubtaskChanges.collect(session.repository, task.getFirebaseKey(), originalSubtasks,
+                                subtasks, updates).writeTotals(task, updates);
+                    }
+                    updateTask(original, task, updates);
                 })
                 .setNegativeButton("Cancelar", null)
                 .show();
     }
 
+    // El total sale de ExpenseTotals: no depende de la pestaña y no recorre la lista
+    // Con paginado el store no tiene todas las tareas: manda el rollup del servidor
     private void updateTotalExpenses() {
-        Calendar calendar = Calendar.getInstance();
-        int currentMonth = calendar.get(Calendar.MONTH);
-        int currentYear = calendar.get(Calendar.YEAR);
-        double total = 0;
-        for (Task task : allTasks) {
-            if (task.getExpense() > 0 && task.getDueDate() != null) {
-                calendar.setTimeInMillis(task.getDueDate());
-                if (calendar.get(Calendar.MONTH) == currentMonth &&
-                        calendar.get(Calendar.YEAR) == currentYear) {
-                    total += task.getExpense();
-                }
-            }
+        long start = Metrics.begin(Metrics.UI_TOTALS);
+        long cents = monthRollup != null ? ExpenseRollups.sum(monthRollup)
+                : taskViews.getMonthExpenseCents();
+        tvTotalExpenses.setText("Gastos del mes: " + TaskFormat.formatCents(cents));
+        Metrics.end(Metrics.UI_TOTALS, start);
+    }
+
+    private void rebuildExpenseRollups() {
+        ExpenseRollups.rebuild(session.repository, success -> Toast.makeText(this,
+                success ? "Totales recalculados" : "No se pudieron recalcular los totales",
+                Toast.LENGTH_SHORT).show());
+    }
+
+    private void showMonthCategories() {
+        Map<String, Long> totals = monthRollup != null ? monthRollup
+                : taskViews.getMonthCategoryCents();
+        if (totals.isEmpty()) {
+            Toast.makeText(this, "Sin gastos este mes", Toast.LENGTH_SHORT).show();
+            return;
         }
-        tvTotalExpenses.setText(String.format(Locale.getDefault(),
-                "Gastos del mes: $%.2f", total));
+        StringBuilder message = new StringBuilder();
+        for (Map.Entry<String, Long> entry : totals.entrySet()) {
+            message.append(entry.getKey()).append(": ")
+                    .append(TaskFormat.formatCents(entry.getValue())).append('\n');
+        }
+        new AlertDialog.Builder(this)
+                .setTitle("Gastos del mes por categoría")
+                .setMessage(message.toString().trim())
+                .setPositiveButton("Cerrar", null)
+                .show();
     }
 
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (tasksListener != null) {
-            databaseRef.removeEventListener(tasksListener);
-        }
+        stopFirebaseListeners();
+        // La importación se retoma al volver; la exportación a medias se borra
+        if (exporter != null) exporter.cancel();
+        if (importer != null) importer.cancel();
+        dismissTransferDialog();
+        if (calendarSync != null) calendarSync.close();
+        listManager.close();
     }
 
     // === CLASES INTERNAS ===
 
     static class Task {
+        // Campos modificados desde la última escritura, para subir solo esos
+        static final int FIELD_TITLE = 1;
+        static final int FIELD_DESCRIPTION = 1 << 1;
+        static final int FIELD_DUE_DATE = 1 << 2;
+        static final int FIELD_PRIORITY = 1 << 3;
+        static final int FIELD_COMPLETED = 1 << 4;
+        static final int FIELD_EXPENSE = 1 << 5;
+        static final int FIELD_CATEGORY = 1 << 6;
+        static final int FIELD_RECURRING = 1 << 7;
+        // Sin fecha: ordena después de cualquier fecha real
+        static final long NO_DUE_DATE = Long.MAX_VALUE;
+        private static final int UNKNOWN_MONTH = Integer.MIN_VALUE;
+
+        // Los campos que se ordenan, filtran y suman son primitivos: sin Long ni double
+        // por tarea, el gasto en centavos exactos y la categoría como índice en Categories
         private String title;
         private String description;
-        private Long dueDate;
-        private int priority;
+        private long dueDate = NO_DUE_DATE;
+        private byte priority;
         private boolean completed;
-        private double expense;
-        private String category;
-        private boolean isRecurring;
+        // Cuándo se completó (ver TaskArchiver); 0 si no está completada o es de antes
+        private long completedAt;
+        private long expenseCents;
+        private int category = Categories.NONE;
+        // Regla de Recurrence en texto; null si no se repite
+        private String recurrence;
         private String firebaseKey;
+        // Resumen de lists/{id}/subtasks/{key}, mantenido con incrementos al escribir subtareas
+        private int subtaskCount;
+        private long subtaskExpenseCents;
+        // Textos para la fila, calculados una vez por instancia
+        private String dueDateText;
+        private String expenseText;
+        private String subtasksText;
+        private int monthBucket = UNKNOWN_MONTH;
+        private int dirtyFields;
 
         public Task() {}
 
         public Task(String title, String description, Long dueDate, int priority,
-                    boolean completed, double expense, String category, boolean isRecurring) {
+                    boolean completed, double expense, String category, String recurrence) {
+            this.title = title;
+            this.description = description;
+            this.dueDate = dueDate != null ? dueDate : NO_DUE_DATE;
+            this.priority = (byte) priority;
+            this.completed = completed;
+            this.expenseCents = ExpenseTotals.toCents(expense);
+            this.category = Categories.intern(category);
+            this.recurrence = recurrence;
+        }
+
+        // Para TaskColumns: los campos tal como se guardan, sin pasar por Long, double ni el
+        // nombre de la categoría
+        Task(String firebaseKey, String title, String description, long dueDate, byte priority,
+             boolean completed, long completedAt, long expenseCents, int category,
+             String recurrence, int subtaskCount, long subtaskExpenseCents) {
+            this.firebaseKey = firebaseKey;
             this.title = title;
             this.description = description;
             this.dueDate = dueDate;
             this.priority = priority;
             this.completed = completed;
-            this.expense = expense;
+            this.completedAt = completedAt;
+            this.expenseCents = expenseCents;
             this.category = category;
-            this.isRecurring = isRecurring;
+            this.recurrence = recurrence;
+            this.subtaskCount = subtaskCount;
+            this.subtaskExpenseCents = subtaskExpenseCents;
         }
 
         public String getTitle() { return title; }
-        public void setTitle(String title) { this.title = title; }
+        public void setTitle(String title) {
+            markDirty(FIELD_TITLE, !Objects.equals(this.title, title));
+            this.title = title;
+        }
         public String getDescription() { return description; }
-        public void setDescription(String description) { this.description = description; }
-        public Long getDueDate() { return dueDate; }
-        public void setDueDate(Long dueDate) { this.dueDate = dueDate; }
+        public void setDescription(String description) {
+            markDirty(FIELD_DESCRIPTION, !Objects.equals(this.description, description));
+            this.description = description;
+        }
+        // Crea un Long en cada llamada: en bucles, hasDueDate() y dueMillis()
+        public Long getDueDate() { return dueDate != NO_DUE_DATE ? dueDate : null; }
+        public void setDueDate(Long dueDate) {
+            long millis = dueDate != null ? dueDate : NO_DUE_DATE;
+            markDirty(FIELD_DUE_DATE, this.dueDate != millis);
+            this.dueDate = millis;
+            dueDateText = null;
+            monthBucket = UNKNOWN_MONTH;
+        }
+        boolean hasDueDate() { return dueDate != NO_DUE_DATE; }
+        // NO_DUE_DATE si no tiene fecha
+        long dueMillis() { return dueDate; }
         public int getPriority() { return priority; }
-        public void setPriority(int priority) { this.priority = priority; }
+        public void setPriority(int priority) {
+            markDirty(FIELD_PRIORITY, this.priority != priority);
+            this.priority = (byte) priority;
+        }
         public boolean isCompleted() { return completed; }
-        public void setCompleted(boolean completed) { this.completed = completed; }
-        public double getExpense() { return expense; }
-        public void setExpense(double expense) { this.expense = expense; }
-        public String getCategory() { return category; }
-        public void setCategory(String category) { this.category = category; }
-        public boolean isRecurring() { return isRecurring; }
-        public void setRecurring(boolean recurring) { isRecurring = recurring; }
+        public void setCompleted(boolean completed) {
+            if (this.completed == completed) return;
+            markDirty(FIELD_COMPLETED, true);
+            this.completed = completed;
+            completedAt = completed ? System.currentTimeMillis() : 0;
+        }
+        long getCompletedAt() { return completedAt; }
+        // Lo que guarda el servidor; no se marca como modificado
+        void setCompletedAt(long completedAt) { this.completedAt = completedAt; }
+        // En pesos, para formularios y Firebase; las cuentas van con ownExpenseCents()
+        public double getExpense() { return expenseCents / 100.0; }
+        public void setExpense(double expense) {
+            long cents = ExpenseTotals.toCents(expense);
+            markDirty(FIELD_EXPENSE, this.expenseCents != cents);
+            this.expenseCents = cents;
+            expenseText = null;
+        }
+        public String getCategory() { return Categories.name(category); }
+        public void setCategory(String category) {
+            int id = Categories.intern(category);
+            markDirty(FIELD_CATEGORY, this.category != id);
+            this.category = id;
+        }
+        int categoryId() { return category; }
+        public boolean isRecurring() { return recurrence != null; }
+        public String getRecurrence() { return recurrence; }
+        public void setRecurrence(String recurrence) {
+            markDirty(FIELD_RECURRING, !Objects.equals(this.recurrence, recurrence));
+            this.recurrence = recurrence;
+        }
         public String getFirebaseKey() { return firebaseKey; }
         public void setFirebaseKey(String key) { this.firebaseKey = key; }
+
+        public int getSubtaskCount() { return subtaskCount; }
+        public long getSubtaskExpenseCents() { return subtaskExpenseCents; }
+        // No se marca como modificado: en Firebase se sube como incremento
+        void setSubtaskTotals(int count, long expenseCents) {
+            subtaskCount = count;
+            subtaskExpenseCents = expenseCents;
+            expenseText = null;
+            subtasksText = null;
+        }
+
+        private void markDirty(int field, boolean changed) {
+            if (changed) dirtyFields |= field;
+        }
+
+        int dirtyFields() { return dirtyFields; }
+        void clearDirtyFields() { dirtyFields = 0; }
+
+        String dueDateText() {
+            if (dueDateText == null && dueDate != NO_DUE_DATE) {
+                dueDateText = TaskFormat.formatDate(dueDate);
+            }
+            return dueDateText;
+        }
+
+        String expenseText() {
+            if (expenseText == null) {
+                expenseText = TaskFormat.formatCents(expenseCents());
+            }
+            return expenseText;
+        }
+
+        String subtasksText() {
+            if (subtasksText == null) {
+                subtasksText = subtaskCount == 1 ? "1 subtarea" : subtaskCount + " subtareas";
+            }
+            return subtasksText;
+        }
+
+        // Mes del vencimiento, calculado una sola vez por instancia
+        int monthBucket() {
+            if (monthBucket == UNKNOWN_MONTH) {
+                monthBucket = dueDate != NO_DUE_DATE ? ExpenseTotals.monthBucket(dueDate)
+                        : ExpenseTotals.NO_MONTH;
+            }
+            return monthBucket;
+        }
+
+        // Gasto propio más el de las subtareas
+        long expenseCents() {
+            return expenseCents + subtaskExpenseCents;
+        }
+
+        long ownExpenseCents() {
+            return expenseCents;
+        }
+
+        Task copy() {
+            Task copy = new Task();
+            copy.title = title;
+            copy.description = description;
+            copy.dueDate = dueDate;
+            copy.priority = priority;
+            copy.completed = completed;
+            copy.completedAt = completedAt;
+            copy.expenseCents = expenseCents;
+            copy.category = category;
+            copy.recurrence = recurrence;
+            copy.firebaseKey = firebaseKey;
+            copy.subtaskCount = subtaskCount;
+            copy.subtaskExpenseCents = subtaskExpenseCents;
+            copy.dueDateText = dueDateText;
+            copy.expenseText = expenseText;
+            copy.subtasksText = subtasksText;
+            copy.monthBucket = monthBucket;
+            return copy;
+        }
+
+        boolean hasSameContent(Task other) {
+            return Objects.equals(title, other.title) &&
+                    Objects.equals(description, other.description) &&
+                    dueDate == other.dueDate &&
+                    priority == other.priority &&
+                    completed == other.completed &&
+                    completedAt == other.completedAt &&
+                    expenseCents == other.expenseCents &&
+                    category == other.category &&
+                    Objects.equals(recurrence, other.recurrence) &&
+                    subtaskCount == other.subtaskCount &&
+                    subtaskExpenseCents == other.subtaskExpenseCents;
+        }
     }
 
-    static class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder> {
-        private List<Task> tasks;
+    static class TaskAdapter extends ListAdapter<Task, TaskAdapter.TaskViewHolder> {
+        static final DiffUtil.ItemCallback<Task> DIFF_CALLBACK =
+                new DiffUtil.ItemCallback<Task>() {
+                    @Override
+                    public boolean areItemsTheSame(@NonNull Task oldTask, @NonNull Task newTask) {
+                        return Objects.equals(oldTask.getFirebaseKey(), newTask.getFirebaseKey());
+                    }
+
+                    @Override
+                    public boolean areContentsTheSame(@NonNull Task oldTask, @NonNull Task newTask) {
+                        return oldTask.hasSameContent(newTask);
+                    }
+                };
+
+        private static final Object PAYLOAD_SUBTASKS = new Object();
+        private static final Object PAYLOAD_SELECTION = new Object();
+
         private MainActivity activity;
+        // Tareas marcadas con pulsación larga, en orden de selección
+        private final Map<String, Task> selectedTasks = new LinkedHashMap<>();
+        // Las listas de subtareas de todas las filas reciclan sus vistas en un mismo pool
+        private final RecyclerView.RecycledViewPool subtaskViewPool = new RecyclerView.RecycledViewPool();
 
-        public TaskAdapter(List<Task> tasks, MainActivity activity) {
-            this.tasks = tasks;
+        public TaskAdapter(MainActivity activity) {
+            super(DIFF_CALLBACK);
             this.activity = activity;
         }
 
+        private static final int[] PRIORITY_COLORS = {0xFFFF5252, 0xFFFFAB40, 0xFF69F0AE};
+        private static final int DEFAULT_PRIORITY_COLOR = 0xFF90A4AE;
+
+        // Los listeners se crean una vez por ViewHolder y leen la tarea de su posición
         @Override
         public TaskViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
             View view = LayoutInflater.from(parent.getContext())
                     .inflate(R.layout.item_task, parent, false);
-            return new TaskViewHolder(view);
+            TaskViewHolder holder = new TaskViewHolder(view);
+
+            LinearLayoutManager subtaskLayout = new LinearLayoutManager(parent.getContext());
+            subtaskLayout.setRecycleChildrenOnDetach(true);
+            holder.rvSubtasks.setLayoutManager(subtaskLayout);
+            holder.rvSubtasks.setRecycledViewPool(subtaskViewPool);
+            holder.rvSubtasks.setNestedScrollingEnabled(false);
+            holder.subtaskAdapter = new SubtaskAdapter(false, (subtask, completed) -> {
+                Task task = taskAt(holder);
+                if (task != null) activity.setSubtaskCompleted(task, subtask, completed);
+            });
+            holder.rvSubtasks.setAdapter(holder.subtaskAdapter);
+            holder.tvSubtasks.setOnClickListener(v -> {
+                Task task = taskAt(holder);
+                if (task != null) activity.session.subtasks.toggle(task.getFirebaseKey());
+            });
+
+            holder.cbCompleted.setOnClickListener(v -> {
+                Task task = taskAt(holder);
+                if (task == null) return;
+                Task updated = task.copy();
+                updated.setCompleted(holder.cbCompleted.isChecked());
+                activity.updateTask(task, updated);
+            });
+
+            // Con una selección activa, tocar una fila la marca o desmarca
+            holder.itemView.setOnClickListener(v -> {
+                Task task = taskAt(holder);
+                if (task == null) return;
+                if (!selectedTasks.isEmpty()) {
+                    toggleSelection(holder.getBindingAdapterPosition(), task);
+                } else {
+                    activity.showEditDialog(task);
+                }
+            });
+
+            holder.itemView.setOnLongClickListener(v -> {
+                Task task = taskAt(holder);
+                if (task == null) return false;
+                toggleSelection(holder.getBindingAdapterPosition(), task);
+                return true;
+            });
+            return holder;
+        }
+
+        boolean isSelected(String taskKey) {
+            return selectedTasks.containsKey(taskKey);
+        }
+
+        List<Task> getSelectedTasks() {
+            return new ArrayList<>(selectedTasks.values());
+        }
+
+        private void toggleSelection(int position, Task task) {
+            if (selectedTasks.remove(task.getFirebaseKey()) == null) {
+                selectedTasks.put(task.getFirebaseKey(), task);
+            }
+            notifyItemChanged(position, PAYLOAD_SELECTION);
+            activity.onSelectionChanged(selectedTasks.size());
+        }
+
+        void selectAll() {
+            for (Task task : getCurrentList()) {
+                selectedTasks.put(task.getFirebaseKey(), task);
+            }
+            notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
+            activity.onSelectionChanged(selectedTasks.size());
+        }
+
+        void clearSelection() {
+            if (selectedTasks.isEmpty()) return;
+            selectedTasks.clear();
+            notifyItemRangeChanged(0, getItemCount(), PAYLOAD_SELECTION);
+            activity.onSelectionChanged(0);
+        }
+
+        private Task taskAt(TaskViewHolder holder) {
+            int position = holder.getBindingAdapterPosition();
+            return position != RecyclerView.NO_POSITION ? getItem(position) : null;
+        }
+
+        // Solo se rebindean las subtareas de la fila afectada
+        void onSubtasksChanged(String taskKey) {
+            List<Task> tasks = getCurrentList();
+            for (int i = 0; i < tasks.size(); i++) {
+                if (taskKey.equals(tasks.get(i).getFirebaseKey())) {
+                    notifyItemChanged(i, PAYLOAD_SUBTASKS);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void onBindViewHolder(TaskViewHolder holder, int position, List<Object> payloads) {
+            if (!payloads.isEmpty() && payloads.get(0) == PAYLOAD_SUBTASKS) {
+                bindSubtasks(holder, getItem(position));
+            } else if (!payloads.isEmpty() && payloads.get(0) == PAYLOAD_SELECTION) {
+                holder.card.setChecked(isSelected(getItem(position).getFirebaseKey()));
+            } else {
+                onBindViewHolder(holder, position);
+            }
         }
 
         @Override
         public void onBindViewHolder(TaskViewHolder holder, int position) {
-            Task task = tasks.get(position);
+            long start = Metrics.begin(Metrics.UI_BIND);
+            Task task = getItem(position);
             holder.tvTitle.setText(task.getTitle());
             holder.tvDescription.setText(task.getDescription());
             holder.cbCompleted.setChecked(task.isCompleted());
 
-            if (task.getExpense() > 0) {
+            if (task.expenseCents() > 0) {
                 holder.tvExpense.setVisibility(View.VISIBLE);
-                holder.tvExpense.setText(String.format(Locale.getDefault(), "$%.2f", task.getExpense()));
+                holder.tvExpense.setText(task.expenseText());
             } else {
                 holder.tvExpense.setVisibility(View.GONE);
             }
 
             holder.tvCategory.setText(task.getCategory());
-            if (task.getDueDate() != null) {
-                SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
-                holder.tvDueDate.setText(sdf.format(new Date(task.getDueDate())));
+            if (task.hasDueDate()) {
+                holder.tvDueDate.setText(task.dueDateText());
                 holder.tvDueDate.setVisibility(View.VISIBLE);
             } else {
                 holder.tvDueDate.setVisibility(View.GONE);
             }
 
-            int priorityColor;
-            switch (task.getPriority()) {
-                case 1: priorityColor = 0xFFFF5252; break;
-                case 2: priorityColor = 0xFFFFAB40; break;
-                case 3: priorityColor = 0xFF69F0AE; break;
-                default: priorityColor = 0xFF90A4AE; break;
-            }
-            holder.viewPriority.setBackgroundColor(priorityColor);
-
-            if (task.isRecurring()) {
-                holder.ivRecurring.setVisibility(View.VISIBLE);
-            } else {
-                holder.ivRecurring.setVisibility(View.GONE);
-            }
-
-            holder.cbCompleted.setOnClickListener(v -> {
-                task.setCompleted(holder.cbCompleted.isChecked());
-                activity.updateTask(task);
-            });
-
-            holder.itemView.setOnClickListener(v -> activity.showEditDialog(task));
+            int priority = task.getPriority();
+            holder.viewPriority.setBackgroundColor(priority >= 1 && priority <= PRIORITY_COLORS.length
+                    ? PRIORITY_COLORS[priority - 1] : DEFAULT_PRIORITY_COLOR);
 
-            holder.itemView.setOnLongClickListener(v -> {
-                new AlertDialog.Builder(activity)
-                        .setTitle("Eliminar tarea")
-                        .setMessage("¿Estás seguro de eliminar esta tarea?")
-                        .setPositiveButton("Eliminar", (dialog, which) -> activity.deleteTask(task))
-                        .setNegativeButton("Cancelar", null)
-                        .show();
-                return true;
-            });
+            holder.ivRecurring.setVisibility(task.isRecurring() ? View.VISIBLE : View.GONE);
+            holder.card.setChecked(isSelected(task.getFirebaseKey()));
+            bindSubtasks(holder, task);
+            Metrics.end(Metrics.UI_BIND, start);
         }
 
-        @Override
-        public int getItemCount() {
-            return tasks.size();
+        private void bindSubtasks(TaskViewHolder holder, Task task) {
+            boolean expanded = activity.session.subtasks.isExpanded(task.getFirebaseKey());
+            if (task.getSubtaskCount() == 0 && !expanded) {
+                holder.tvSubtasks.setVisibility(View.GONE);
+            } else {
+                holder.tvSubtasks.setVisibility(View.VISIBLE);
+                holder.tvSubtasks.setText(task.subtasksText());
+                holder.tvSubtasks.setCompoundDrawablesWithIntrinsicBounds(expanded
+                        ? android.R.drawable.arrow_up_float : android.R.drawable.arrow_down_float,
+                        0, 0, 0);
+            }
+            if (expanded) {
+                List<Subtask> subtasks = activity.session.subtasks.get(task.getFirebaseKey());
+                holder.rvSubtasks.setVisibility(View.VISIBLE);
+                holder.subtaskAdapter.submitList(subtasks);
+            } else {
+                // Devuelve las filas al pool compartido
+                holder.rvSubtasks.setVisibility(View.GONE);
+                holder.subtaskAdapter.submitList(null);
+            }
         }
 
         static class TaskViewHolder extends RecyclerView.ViewHolder {
+            MaterialCardView card;
             CheckBox cbCompleted;
-            TextView tvTitle, tvDescription, tvExpense, tvCategory, tvDueDate;
+            TextView tvTitle, tvDescription, tvExpense, tvCategory, tvDueDate, tvSubtasks;
             View viewPriority;
             ImageView ivRecurring;
+            RecyclerView rvSubtasks;
+            SubtaskAdapter subtaskAdapter;
 
             public TaskViewHolder(View itemView) {
                 super(itemView);
+                card = (MaterialCardView) itemView;
                 cbCompleted = itemView.findViewById(R.id.cbCompleted);
                 tvTitle = itemView.findViewById(R.id.tvTitle);
                 tvDescription = itemView.findViewById(R.id.tvDescription);
@@ -595,6 +1756,8 @@ public class MainActivity extends AppCompatActivity {
                 tvDueDate = itemView.findViewById(R.id.tvDueDate);
                 viewPriority = itemView.findViewById(R.id.viewPriority);
                 ivRecurring = itemView.findViewById(R.id.ivRecurring);
+                tvSubtasks = itemView.findViewById(R.id.tvSubtasks);
+                rvSubtasks = itemView.findViewById(R.id.rvTaskSubtasks);
             }
         }
     }
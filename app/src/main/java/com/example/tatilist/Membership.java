@@ -0,0 +1,73 @@
+package com.example.tatilist;
+
+import androidx.annotation.Nullable;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.ServerValue;
+import java.util.HashMap;
+import java.util.Map;
+
+// Miembros de una lista: una entrada por dispositivo en lists/{id}/users y el total en
+// memberCount, así la cabecera lee un número en lugar de todo el nodo users. La entrada y el
+// incremento van en el mismo update multi-ruta, detrás de la comprobación de que la entrada
+// no existe: o se escriben los dos o ninguno.
+final class Membership {
+    static final String USERS = "users";
+    static final String MEMBER_COUNT = "memberCount";
+
+    private Membership() {}
+
+    // registered se llama (en el hilo del repositorio) cuando el dispositivo ya cuenta en
+    // memberCount; si algo falla no se llama y se reintenta la próxima vez
+    static void register(TaskRepository repository, String deviceId, Runnable registered) {
+        ensureCounted(repository, () -> repository.readValue(USERS + "/" + deviceId,
+                new TaskRepository.ValueCallback() {
+            @Override
+            public void onValue(@Nullable Object value) {
+                if (value != null) {
+                    registered.run();
+                    return;
+                }
+                Map<String, Object> updates = new HashMap<>();
+                updates.put(USERS + "/" + deviceId, true);
+                updates.put(MEMBER_COUNT, ServerValue.increment(1));
+                repository.update(updates, error -> {
+                    if (error == null) registered.run();
+                });
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {}
+        }));
+    }
+
+    // Las listas de antes de memberCount lo cuentan una sola vez desde users. Nadie se
+    // registra antes de verlo escrito, así que el conteo de quien gana no se queda corto
+    private static void ensureCounted(TaskRepository repository, Runnable done) {
+        repository.readValue(MEMBER_COUNT, new TaskRepository.ValueCallback() {
+            @Override
+            public void onValue(@Nullable Object value) {
+                if (value != null) {
+                    done.run();
+                    return;
+                }
+                repository.readValue(USERS, new TaskRepository.ValueCallback() {
+                    @Override
+                    public void onValue(@Nullable Object users) {
+                        long count = users instanceof Map ? ((Map<?, ?>) users).size() : 0;
+                        // Si otro dispositivo lo escribió antes, vale el suyo
+                        repository.compareAndSet(MEMBER_COUNT, null, count,
+                                (written, error) -> {
+                            if (error == null) done.run();
+                        });
+                    }
+
+                    @Override
+                    public void onCancelled(DatabaseError error) {}
+                });
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {}
+        });
+    }
+}
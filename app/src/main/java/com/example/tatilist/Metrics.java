@@ -0,0 +1,167 @@
+package com.example.tatilist;
+
+import android.os.Trace;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Contadores e histogramas en proceso, más secciones de Trace para Perfetto/systrace.
+// Sirven para poner números a "la lista va lenta" sin un profiler conectado: se ven en
+// el overlay de debug (MetricsOverlay) y se exportan como JSON desde el menú.
+// Los tiempos se guardan en microsegundos; cada registro cuesta un par de operaciones atómicas.
+final class Metrics {
+    // Tiempos (us)
+    static final String SYNC_PARSE = "sync.parse";
+    static final String SYNC_APPLY = "sync.apply";
+    static final String SYNC_PUBLISH = "sync.publish";
+    static final String SYNC_INITIAL_LOAD = "sync.initialLoad";
+    static final String UI_DIFF = "ui.diff";
+    static final String UI_BIND = "ui.bind";
+    static final String UI_TOTALS = "ui.totals";
+    static final String WRITE_ROUND_TRIP = "write.roundTrip";
+    // Tamaños
+    static final String SYNC_TASK_BYTES = "sync.taskBytes";
+    static final String SYNC_INITIAL_CHILDREN = "sync.initialChildren";
+    static final String WRITE_PATHS = "write.paths";
+    // Contadores
+    static final String SYNC_EVENTS = "sync.events";
+    static final String SYNC_PUBLISHES = "sync.publishes";
+    static final String WRITES = "writes";
+    static final String WRITE_ERRORS = "write.errors";
+
+    private static final String UNIT_MICROS = "us";
+    private static final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private static final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+
+    private Metrics() {}
+
+    // Contar y registrar un valor cuesta casi nada y se hace siempre. Lo que hay que calcular
+    // aparte para poder medirlo (p. ej. recorrer una tarea para estimar su tamaño) se
+    // pregunta antes acá: solo en debug
+    static boolean enabled() {
+        return BuildConfig.DEBUG;
+    }
+
+    // begin/end deben ir en el mismo hilo (lo exige Trace)
+    static long begin(String section) {
+        Trace.beginSection(section);
+        return System.nanoTime();
+    }
+
+    static void end(String section, long startNanos) {
+        Trace.endSection();
+        record(section, UNIT_MICROS, (System.nanoTime() - startNanos) / 1000);
+    }
+
+    // Para tiempos que empiezan y terminan en hilos distintos (escrituras, diff)
+    static void elapsed(String name, long startNanos) {
+        record(name, UNIT_MICROS, (System.nanoTime() - startNanos) / 1000);
+    }
+
+    static void size(String name, String unit, long value) {
+        record(name, unit, value);
+    }
+
+    static void count(String name) {
+        AtomicLong counter = counters.get(name);
+        if (counter == null) {
+            counters.putIfAbsent(name, new AtomicLong());
+            counter = counters.get(name);
+        }
+        counter.incrementAndGet();
+    }
+
+    static void reset() {
+        counters.clear();
+        histograms.clear();
+    }
+
+    private static void record(String name, String unit, long value) {
+        Histogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histograms.putIfAbsent(name, new Histogram(unit));
+            histogram = histograms.get(name);
+        }
+        histogram.record(value);
+    }
+
+    // Una línea por métrica, para el overlay
+    static List<String> summary() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            Histogram h = entry.getValue();
+            synchronized (h) {
+                lines.add(String.format(Locale.US, "%-18s n=%-6d p50=%-6d p90=%-6d max=%d %s",
+                        entry.getKey(), h.count, h.percentile(0.5), h.percentile(0.9), h.max, h.unit));
+            }
+        }
+        for (Map.Entry<String, AtomicLong> entry : new TreeMap<>(counters).entrySet()) {
+            lines.add(String.format(Locale.US, "%-18s %d", entry.getKey(), entry.getValue().get()));
+        }
+        return lines;
+    }
+
+    static String toJson() {
+        StringBuilder json = new StringBuilder("{\"timestamp\":").append(System.currentTimeMillis());
+        json.append(",\"counters\":{");
+        String separator = "";
+        for (Map.Entry<String, AtomicLong> entry : new TreeMap<>(counters).entrySet()) {
+            json.append(separator).append('"').append(entry.getKey()).append("\":")
+                    .append(entry.getValue().get());
+            separator = ",";
+        }
+        json.append("},\"histograms\":{");
+        separator = "";
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(histograms).entrySet()) {
+            Histogram h = entry.getValue();
+            synchronized (h) {
+                json.append(separator).append('"').append(entry.getKey()).append("\":{")
+                        .append("\"unit\":\"").append(h.unit).append('"')
+                        .append(",\"count\":").append(h.count)
+                        .append(",\"mean\":").append(h.count > 0 ? h.sum / h.count : 0)
+                        .append(",\"p50\":").append(h.percentile(0.5))
+                        .append(",\"p90\":").append(h.percentile(0.9))
+                        .append(",\"p99\":").append(h.percentile(0.99))
+                        .append(",\"max\":").append(h.max)
+                        .append('}');
+            }
+            separator = ",";
+        }
+        return json.append("}}").toString();
+    }
+
+    // Cubetas por potencia de dos: memoria fija y percentiles con error menor a 2x
+    private static final class Histogram {
+        private static final int BUCKETS = 40;
+
+        final String unit;
+        final long[] buckets = new long[BUCKETS];
+        long count, sum, max;
+
+        Histogram(String unit) {
+            this.unit = unit;
+        }
+
+        synchronized void record(long value) {
+            if (value < 0) value = 0;
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+            buckets[bucket]++;
+            count++;
+            sum += value;
+            if (value > max) max = value;
+        }
+
+        // Límite superior de la cubeta donde cae el percentil, acotado por el máximo visto
+        long percentile(double p) {
+            long target = (long) Math.ceil(p * count);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= target && seen > 0) {
+                    return Math.min(max, i == 0 ? 0 : (1L << i) - 1);
+                }
+            }
+            return max;
+        }
+    }
+}
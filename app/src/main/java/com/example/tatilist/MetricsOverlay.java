@@ -0,0 +1,71 @@
+package com.example.tatilist;
+
+import android.app.Activity;
+import android.graphics.Color;
+import android.graphics.Typeface;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.util.TypedValue;
+import android.view.Gravity;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+// Resumen de Metrics sobre la pantalla, refrescado cada segundo mientras se ve.
+// Solo en builds de debug; no intercepta toques.
+final class MetricsOverlay {
+    private static final long REFRESH_MS = 1000;
+
+    private final TextView view;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable refresh = new Runnable() {
+        @Override
+        public void run() {
+            view.setText(TextUtils.join("\n", Metrics.summary()));
+            handler.postDelayed(this, REFRESH_MS);
+        }
+    };
+    private boolean shown;
+    private boolean resumed = true;
+
+    MetricsOverlay(Activity activity) {
+        view = new TextView(activity);
+        view.setTypeface(Typeface.MONOSPACE);
+        view.setTextSize(TypedValue.COMPLEX_UNIT_SP, 9);
+        view.setTextColor(Color.WHITE);
+        view.setBackgroundColor(0xB0000000);
+        view.setPadding(16, 16, 16, 16);
+        view.setVisibility(View.GONE);
+        FrameLayout content = activity.findViewById(android.R.id.content);
+        content.addView(view, new FrameLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT,
+                ViewGroup.LayoutParams.WRAP_CONTENT, Gravity.BOTTOM));
+    }
+
+    boolean isShown() {
+        return shown;
+    }
+
+    void setShown(boolean shown) {
+        this.shown = shown;
+        view.setVisibility(shown ? View.VISIBLE : View.GONE);
+        update();
+    }
+
+    // Sigue el ciclo de vida de la actividad: no refresca en segundo plano
+    void onStart() {
+        resumed = true;
+        update();
+    }
+
+    void onStop() {
+        resumed = false;
+        update();
+    }
+
+    private void update() {
+        handler.removeCallbacks(refresh);
+        if (shown && resumed) handler.post(refresh);
+    }
+}
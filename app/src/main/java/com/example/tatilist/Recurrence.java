@@ -0,0 +1,159 @@
+package com.example.tatilist;
+
+import androidx.annotation.Nullable;
+import java.util.Calendar;
+
+// Regla de repetición de una tarea, guardada como texto en el campo "recurrence":
+// "daily", "weekly", "monthly" o "day:N" (día N de cada mes; si el mes es más corto,
+// el último día). No se crean instancias por adelantado: al completar una tarea se
+// materializa solo la siguiente.
+final class Recurrence {
+    static final int DAILY = 1;
+    static final int WEEKLY = 2;
+    // Un mes después del vencimiento anterior
+    static final int MONTHLY = 3;
+    // Siempre el mismo día del mes, aunque un mes intermedio sea más corto
+    static final int DAY_OF_MONTH = 4;
+
+    // Tareas de antes de las reglas: el checkbox decía "recurrente (mensual)"
+    static final String LEGACY_RULE = "monthly";
+
+    private static final String DAY_PREFIX = "day:";
+    private static final ThreadLocal<Calendar> CALENDAR = new ThreadLocal<Calendar>() {
+        @Override
+        protected Calendar initialValue() {
+            return Calendar.getInstance();
+        }
+    };
+
+    // Se llama por cada ocurrencia; devolver false corta la expansión
+    interface Visitor {
+        boolean onOccurrence(long millis);
+    }
+
+    final int frequency;
+    final int dayOfMonth;
+
+    private Recurrence(int frequency, int dayOfMonth) {
+        this.frequency = frequency;
+        this.dayOfMonth = dayOfMonth;
+    }
+
+    static Recurrence daily() {
+        return new Recurrence(DAILY, 0);
+    }
+
+    static Recurrence weekly() {
+        return new Recurrence(WEEKLY, 0);
+    }
+
+    static Recurrence monthly() {
+        return new Recurrence(MONTHLY, 0);
+    }
+
+    static Recurrence onDayOfMonth(int day) {
+        return new Recurrence(DAY_OF_MONTH, Math.max(1, Math.min(31, day)));
+    }
+
+    // null si la regla no se reconoce
+    @Nullable
+    static Recurrence parse(@Nullable String rule) {
+        if (rule == null) return null;
+        switch (rule) {
+            case "daily": return daily();
+            case "weekly": return weekly();
+            case "monthly": return monthly();
+        }
+        if (rule.startsWith(DAY_PREFIX)) {
+            try {
+                return onDayOfMonth(Integer.parseInt(rule.substring(DAY_PREFIX.length())));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    String toRule() {
+        switch (frequency) {
+            case DAILY: return "daily";
+            case WEEKLY: return "weekly";
+            case MONTHLY: return "monthly";
+            default: return DAY_PREFIX + dayOfMonth;
+        }
+    }
+
+    // Primera ocurrencia estrictamente posterior a "after", con la misma hora del día
+    long next(long after) {
+        Calendar calendar = CALENDAR.get();
+        calendar.setTimeInMillis(after);
+        switch (frequency) {
+            case DAILY:
+                calendar.add(Calendar.DAY_OF_MONTH, 1);
+                break;
+            case WEEKLY:
+                calendar.add(Calendar.WEEK_OF_YEAR, 1);
+                break;
+            case MONTHLY:
+                calendar.add(Calendar.MONTH, 1);
+                break;
+            default:
+                if (calendar.get(Calendar.DAY_OF_MONTH) >= clampedDay(calendar)) {
+                    calendar.set(Calendar.DAY_OF_MONTH, 1);
+                    calendar.add(Calendar.MONTH, 1);
+                }
+                calendar.set(Calendar.DAY_OF_MONTH, clampedDay(calendar));
+                break;
+        }
+        return calendar.getTimeInMillis();
+    }
+
+    // Siguiente ocurrencia después de "due" que no quede antes de hoy: completar una tarea
+    // atrasada no genera una cadena de instancias vencidas
+    long nextAfterCompletion(long due, long now) {
+        Calendar calendar = CALENDAR.get();
+        calendar.setTimeInMillis(now);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        long todayStart = calendar.getTimeInMillis();
+        long next = next(due);
+        while (next < todayStart) {
+            next = next(next);
+        }
+        return next;
+    }
+
+    // Recorre las ocurrencias en [from, to) a partir de "first", hasta "limit" como máximo.
+    // No reserva memoria por ocurrencia.
+    int expand(long first, long from, long to, int limit, Visitor visitor) {
+        int count = 0;
+        long occurrence = first;
+        while (occurrence < from) {
+            occurrence = next(occurrence);
+        }
+        while (occurrence < to && count < limit) {
+            count++;
+            if (!visitor.onOccurrence(occurrence)) break;
+            occurrence = next(occurrence);
+        }
+        return count;
+    }
+
+    private int clampedDay(Calendar calendar) {
+        return Math.min(dayOfMonth, calendar.getActualMaximum(Calendar.DAY_OF_MONTH));
+    }
+
+    // Clave de la ocurrencia siguiente, derivada de la serie y la fecha: completar dos veces
+    // la misma tarea no crea dos instancias
+    static String occurrenceKey(String key, long due) {
+        int separator = key.indexOf('~');
+        String seriesKey = separator >= 0 ? key.substring(0, separator) : key;
+        Calendar calendar = CALENDAR.get();
+        calendar.setTimeInMillis(due);
+        int date = calendar.get(Calendar.YEAR) * 10000 +
+                (calendar.get(Calendar.MONTH) + 1) * 100 + calendar.get(Calendar.DAY_OF_MONTH);
+        return seriesKey + "~" + date;
+    }
+}
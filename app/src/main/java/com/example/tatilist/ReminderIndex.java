@@ -0,0 +1,219 @@
+package com.example.tatilist;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.Nullable;
+import com.example.tatilist.MainActivity.Task;
+import com.google.firebase.database.DatabaseError;
+import java.util.*;
+
+// Próxima tarea a vencer para la alarma, a partir de un índice local por fecha que siguen los
+// deltas del TaskStore. "Hoy" está fijada y trae todas las tareas del día, así que si queda
+// alguna pendiente hoy sale del índice sin consultar nada. Más allá de hoy la ventana puede
+// no estar cargada: solo entonces se pregunta al servidor, y la respuesta se guarda hasta que
+// un delta pueda cambiarla. Solo se vuelve a armar la alarma cuando cambia la tarea o su
+// vencimiento.
+class ReminderIndex implements TaskStore.Listener {
+    // Los deltas llegan en ráfagas: se espera un poco y se decide una sola vez
+    private static final long DEBOUNCE_MS = 500;
+
+    private final Context context;
+    private final TaskRepository repository;
+    private final String listId;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable update = this::update;
+    // Las tocan el hilo de TaskSync y el principal. serverNext es la respuesta del servidor
+    // para lo que vence desde serverFrom; vale mientras ningún delta pueda cambiarla
+    private final DueIndex index = new DueIndex();
+    private long serverFrom = Long.MAX_VALUE;
+    @Nullable private Task serverNext;
+    private boolean serverValid;
+    private boolean serverPending;
+    private boolean serverDirty;
+    // Solo en el hilo principal; una consulta vieja no pisa a una más nueva
+    private int generation;
+    private boolean stopped;
+    private String armedKey;
+    private long armedDueDate;
+    private String armedTitle;
+
+    ReminderIndex(Context context, TaskRepository repository, String listId) {
+        this.context = context.getApplicationContext();
+        this.repository = repository;
+        this.listId = listId;
+        refresh();
+    }
+
+    // Hilo de TaskSync
+    @Override
+    public void onTaskPut(@Nullable Task oldTask, Task task) {
+        if (!isPending(oldTask) && !isPending(task)) return;
+        synchronized (this) {
+            index.put(task);
+            invalidateServer(oldTask);
+            invalidateServer(task);
+        }
+        refresh();
+    }
+
+    // Desalojada o no, sale del índice: si sigue siendo de hoy la trae "Hoy" y si es de
+    // después, la respuesta del servidor la sigue contando
+    @Override
+    public void onTaskRemoved(Task oldTask, boolean evicted) {
+        if (!isPending(oldTask)) return;
+        synchronized (this) {
+            index.remove(oldTask.getFirebaseKey());
+            if (!evicted) invalidateServer(oldTask);
+        }
+        refresh();
+    }
+
+    // Hilo principal; la alarma armada queda, la cancela quien cambia de lista
+    void stop() {
+        stopped = true;
+        generation++;
+        mainHandler.removeCallbacks(update);
+    }
+
+    private void refresh() {
+        mainHandler.removeCallbacks(update);
+        mainHandler.postDelayed(update, DEBOUNCE_MS);
+    }
+
+    private static boolean isPending(@Nullable Task task) {
+        return task != null && !task.isCompleted() && task.hasDueDate();
+    }
+
+    // Un cambio antes de la respuesta guardada (o en ella misma) puede adelantarla o quitarla
+    private void invalidateServer(@Nullable Task task) {
+        if (task == null || !task.hasDueDate() || task.dueMillis() < serverFrom) return;
+        if (serverPending) {
+            serverDirty = true;
+        } else if (serverValid && (serverNext == null ||
+                task.dueMillis() <= serverNext.dueMillis() ||
+                task.getFirebaseKey().equals(serverNext.getFirebaseKey()))) {
+            serverValid = false;
+        }
+    }
+
+    private void update() {
+        if (stopped) return;
+        long now = System.currentTimeMillis();
+        long tomorrow = startOfTomorrow(now);
+        Task next;
+        synchronized (this) {
+            next = index.first(now);
+            if (next == null || next.dueMillis() >= tomorrow) {
+                // Lo que vence después de hoy puede no estar cargado
+                if (serverPending && serverFrom == tomorrow && !serverDirty) return;
+                if (!serverValid || serverFrom != tomorrow) {
+                    query(tomorrow);
+                    return;
+                }
+                // Lo que llegó por delta después de la respuesta también cuenta
+                next = earliest(next, serverNext);
+            }
+        }
+        arm(next);
+    }
+
+    private void query(long from) {
+        int queryGeneration = ++generation;
+        serverFrom = from;
+        serverValid = false;
+        serverPending = true;
+        serverDirty = false;
+        ReminderScheduler.findNext(repository, from, "", new ReminderScheduler.NextCallback() {
+            @Override
+            public void onNext(@Nullable Task found) {
+                if (queryGeneration != generation) return;
+                Task next;
+                synchronized (ReminderIndex.this) {
+                    serverPending = false;
+                    serverNext = found;
+                    serverValid = !serverDirty;
+                    next = earliest(index.first(System.currentTimeMillis()), found);
+                }
+                // Si un delta la pudo cambiar mientras tanto se vuelve a preguntar
+                if (!serverValid) {
+                    refresh();
+                    return;
+                }
+                arm(next);
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                // Queda la alarma anterior; el próximo delta vuelve a intentar
+                synchronized (ReminderIndex.this) {
+                    if (queryGeneration == generation) serverPending = false;
+                }
+            }
+        });
+    }
+
+    @Nullable
+    private static Task earliest(@Nullable Task a, @Nullable Task b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return TaskStore.BY_DUE_DATE.compare(a, b) <= 0 ? a : b;
+    }
+
+    private static long startOfTomorrow(long now) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(TaskStore.startOfDay(now));
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        return calendar.getTimeInMillis();
+    }
+
+    private void arm(@Nullable Task next) {
+        if (next == null) {
+            if (armedKey != null) {
+                ReminderScheduler.cancel(context);
+                armedKey = null;
+            }
+            return;
+        }
+        if (next.getFirebaseKey().equals(armedKey) && next.dueMillis() == armedDueDate &&
+                Objects.equals(next.getTitle(), armedTitle)) {
+            return;
+        }
+        armedKey = next.getFirebaseKey();
+        armedDueDate = next.dueMillis();
+        armedTitle = next.getTitle();
+        ReminderScheduler.arm(context, listId, armedKey, armedTitle, armedDueDate);
+    }
+
+    // Tareas pendientes con fecha, ordenadas por vencimiento
+    static final class DueIndex {
+        private final TreeSet<Task> byDueDate = new TreeSet<>(TaskStore.BY_DUE_DATE);
+        private final Map<String, Task> byKey = new HashMap<>();
+
+        void put(Task task) {
+            remove(task.getFirebaseKey());
+            if (isPending(task)) {
+                byDueDate.add(task);
+                byKey.put(task.getFirebaseKey(), task);
+            }
+        }
+
+        void remove(String key) {
+            Task old = byKey.remove(key);
+            if (old != null) byDueDate.remove(old);
+        }
+
+        // Primera que vence en from o después
+        @Nullable
+        Task first(long from) {
+            return byDueDate.ceiling(probe(from));
+        }
+
+        // Ordena antes que cualquier tarea con esa fecha (las claves no son vacías)
+        private static Task probe(long dueDate) {
+            Task probe = new Task("", "", dueDate, 0, false, 0, null, null);
+            probe.setFirebaseKey("");
+            return probe;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.tatilist;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import com.google.firebase.database.FirebaseDatabase;
+
+// Recibe la alarma única: muestra el aviso y arma la siguiente pidiéndola a Firebase (con la
+// persistencia activa responde aun sin red). Después de reiniciar el equipo vuelve a armarla.
+public class ReminderReceiver extends BroadcastReceiver {
+    static final String ACTION_REMIND = "com.example.tatilist.action.REMIND";
+    private static final String CHANNEL_ID = "reminders";
+    private static final String NOTIFICATION_TAG = "reminder";
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        Context appContext = context.getApplicationContext();
+        String listId;
+        long afterDueDate;
+        String afterKey;
+        if (ACTION_REMIND.equals(intent.getAction())) {
+            listId = intent.getStringExtra(ReminderScheduler.EXTRA_LIST_ID);
+            afterKey = intent.getStringExtra(ReminderScheduler.EXTRA_TASK_KEY);
+            afterDueDate = intent.getLongExtra(ReminderScheduler.EXTRA_DUE_DATE, 0);
+            showNotification(appContext, afterKey, intent.getStringExtra(ReminderScheduler.EXTRA_TITLE));
+        } else if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) {
+            listId = appContext.getSharedPreferences("tatilist", Context.MODE_PRIVATE)
+                    .getString("listId", null);
+            afterDueDate = System.currentTimeMillis();
+            afterKey = "";
+        } else {
+            return;
+        }
+        if (listId == null || afterKey == null) return;
+
+        // La consulta responde en el hilo principal; el receptor sigue vivo hasta done
+        PendingResult result = goAsync();
+        TaskRepository repository = new FirebaseTaskRepository(
+                FirebaseDatabase.getInstance().getReference("lists").child(listId));
+        ReminderScheduler.armNext(appContext, repository, listId, afterDueDate, afterKey,
+                result::finish);
+    }
+
+    private static void showNotification(Context context, String taskKey, String title) {
+        if (taskKey == null) return;
+        NotificationManagerCompat notifications = NotificationManagerCompat.from(context);
+        if (!notifications.areNotificationsEnabled()) return;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(CHANNEL_ID, "Vencimientos",
+                    NotificationManager.IMPORTANCE_DEFAULT);
+            channel.setDescription("Avisos cuando vence una tarea");
+            ((NotificationManager) context.getSystemService(Context.NOTIFICATION_SERVICE))
+                    .createNotificationChannel(channel);
+        }
+        Intent open = new Intent(context, MainActivity.class)
+                .setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        PendingIntent contentIntent = PendingIntent.getActivity(context, 0, open,
+                Build.VERSION.SDK_INT >= Build.VERSION_CODES.M ? PendingIntent.FLAG_IMMUTABLE : 0);
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CHANNEL_ID)
+                .setSmallIcon(android.R.drawable.ic_popup_reminder)
+                .setContentTitle("Vence una tarea")
+                .setContentText(title)
+                .setContentIntent(contentIntent)
+                .setAutoCancel(true)
+                .setPriority(NotificationCompat.PRIORITY_DEFAULT);
+        try {
+            notifications.notify(NOTIFICATION_TAG, taskKey.hashCode(), builder.build());
+        } catch (SecurityException e) {
+            // Sin POST_NOTIFICATIONS: se sigue armando la próxima alarma igual
+        }
+    }
+}
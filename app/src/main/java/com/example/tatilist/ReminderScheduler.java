@@ -0,0 +1,119 @@
+package com.example.tatilist;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import androidx.annotation.Nullable;
+import com.example.tatilist.MainActivity.Task;
+import com.example.tatilist.TaskRepository.Range;
+import com.google.firebase.database.DatabaseError;
+import java.util.List;
+
+// Una sola alarma para toda la app, apuntada a la tarea que vence primero. Cada vez que
+// se arma reemplaza a la anterior, así las alarmas no crecen con el tamaño de la lista.
+// Con la app abierta la elige ReminderIndex; al servidor se le pide lo que no está cargado.
+final class ReminderScheduler {
+    static final String EXTRA_LIST_ID = "listId";
+    static final String EXTRA_TASK_KEY = "taskKey";
+    static final String EXTRA_TITLE = "title";
+    static final String EXTRA_DUE_DATE = "dueDate";
+
+    // Las completadas siguen en el índice por fecha: se saltean de a páginas
+    static final int PAGE_SIZE = 20;
+
+    interface NextCallback {
+        // null si no queda ninguna pendiente
+        void onNext(@Nullable Task task);
+        void onCancelled(DatabaseError error);
+    }
+
+    private ReminderScheduler() {}
+
+    // Primera tarea pendiente que vence después de (dueDate, key), en el orden de la lista
+    static void findNext(TaskRepository repository, long dueDate, String key,
+                         NextCallback callback) {
+        repository.readTasks(Range.dated(dueDate, key, PAGE_SIZE),
+                new TaskRepository.TasksCallback() {
+            @Override
+            public void onTasks(List<Task> tasks) {
+                for (Task task : tasks) {
+                    // La ventana empieza en (dueDate, key) inclusive
+                    if (task.getFirebaseKey().equals(key) && task.dueMillis() == dueDate) continue;
+                    if (!task.isCompleted()) {
+                        callback.onNext(task);
+                        return;
+                    }
+                }
+                if (tasks.size() < PAGE_SIZE) {
+                    callback.onNext(null);
+                    return;
+                }
+                Task last = tasks.get(tasks.size() - 1);
+                findNext(repository, last.dueMillis(), last.getFirebaseKey(), callback);
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                callback.onCancelled(error);
+            }
+        });
+    }
+
+    // Arma la alarma para la siguiente pendiente, o la cancela si no hay; después llama a done
+    static void armNext(Context context, TaskRepository repository, String listId,
+                        long dueDate, String key, Runnable done) {
+        findNext(repository, dueDate, key, new NextCallback() {
+            @Override
+            public void onNext(@Nullable Task task) {
+                if (task != null) {
+                    arm(context, listId, task.getFirebaseKey(), task.getTitle(), task.dueMillis());
+                } else {
+                    cancel(context);
+                }
+                done.run();
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                done.run();
+            }
+        });
+    }
+
+    static void arm(Context context, String listId, String taskKey, String title, long dueDate) {
+        Intent intent = reminderIntent(context)
+                .putExtra(EXTRA_LIST_ID, listId)
+                .putExtra(EXTRA_TASK_KEY, taskKey)
+                .putExtra(EXTRA_TITLE, title)
+                .putExtra(EXTRA_DUE_DATE, dueDate);
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(context, 0, intent, flags());
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        // Inexacta a propósito: no necesita SCHEDULE_EXACT_ALARM y el sistema la agrupa
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, dueDate, pendingIntent);
+        } else {
+            alarmManager.set(AlarmManager.RTC_WAKEUP, dueDate, pendingIntent);
+        }
+    }
+
+    static void cancel(Context context) {
+        PendingIntent pendingIntent = PendingIntent.getBroadcast(context, 0,
+                reminderIntent(context), flags());
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        alarmManager.cancel(pendingIntent);
+        pendingIntent.cancel();
+    }
+
+    private static Intent reminderIntent(Context context) {
+        return new Intent(context, ReminderReceiver.class)
+                .setAction(ReminderReceiver.ACTION_REMIND);
+    }
+
+    private static int flags() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.M
+                ? PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
+                : PendingIntent.FLAG_UPDATE_CURRENT;
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.tatilist;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import com.example.tatilist.MainActivity.Task;
+import java.util.*;
+
+// Backend local del build type "benchmark": la lista es un InMemoryTaskRepository con tareas
+// generadas siempre iguales (semilla fija), así arranque y scroll se miden sin red ni un
+// proyecto de Firebase. En los demás builds BuildConfig.STAND_IN_BACKEND es false y R8 lo quita.
+// Las tareas se generan en otro hilo, como si llegaran de la red: el arranque medido no
+// incluye armar miles de mapas en el hilo principal.
+final class StandInBackend {
+    static final String EXTRA_SEED_TASKS = "seedTasks";
+    static final String LIST_ID = "benchmark";
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    private StandInBackend() {}
+
+    static TaskRepository create(Context context, int taskCount) {
+        InMemoryTaskRepository repository =
+                new InMemoryTaskRepository(new Handler(Looper.getMainLooper())::post);
+        Context appContext = context.getApplicationContext();
+        new Thread(() -> seed(appContext, repository, taskCount), "stand-in-seed").start();
+        return repository;
+    }
+
+    private static void seed(Context context, InMemoryTaskRepository repository, int taskCount) {
+        String[] categories = context.getResources().getStringArray(R.array.category_array);
+        Random random = new Random(42);
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(Calendar.HOUR_OF_DAY, 9);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        long firstDue = calendar.getTimeInMillis() - 30 * DAY_MS;
+
+        Map<String, Object> updates = new HashMap<>();
+        for (int i = 0; i < taskCount; i++) {
+            // Una de cada diez sin fecha, el resto repartidas en unos 8 meses
+            Long dueDate = i % 10 == 0 ? null : firstDue + (i / 20) * DAY_MS;
+            Task task = new Task("Tarea " + i,
+                    i % 3 == 0 ? "Descripción de la tarea número " + i : "",
+                    dueDate,
+                    1 + random.nextInt(3),
+                    random.nextInt(4) == 0,
+                    random.nextInt(3) == 0 ? random.nextInt(20000) / 100.0 : 0,
+                    categories[random.nextInt(categories.length)],
+                    i % 40 == 0 ? Recurrence.LEGACY_RULE : null);
+            updates.put("tasks/" + repository.newKey(), TaskMapper.toMap(task));
+        }
+        repository.update(updates, null);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.tatilist;
+
+import java.util.Objects;
+
+// Subtarea guardada en lists/{id}/subtasks/{taskKey}/{key}, fuera del nodo de la tarea
+// para que la sincronización de la lista no la descargue.
+class Subtask {
+    private String key;
+    private String title;
+    // En centavos, como Task: la suma en el resumen del padre es exacta
+    private long expenseCents;
+    private boolean completed;
+
+    public Subtask() {}
+
+    public Subtask(String title, double expense, boolean completed) {
+        this.title = title;
+        this.expenseCents = ExpenseTotals.toCents(expense);
+        this.completed = completed;
+    }
+
+    public String getKey() { return key; }
+    public void setKey(String key) { this.key = key; }
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+    // En pesos, para formularios y Firebase
+    public double getExpense() { return expenseCents / 100.0; }
+    public void setExpense(double expense) { this.expenseCents = ExpenseTotals.toCents(expense); }
+    public boolean isCompleted() { return completed; }
+    public void setCompleted(boolean completed) { this.completed = completed; }
+
+    long expenseCents() {
+        return expenseCents;
+    }
+
+    Subtask copy() {
+        Subtask copy = new Subtask();
+        copy.key = key;
+        copy.title = title;
+        copy.expenseCents = expenseCents;
+        copy.completed = completed;
+        return copy;
+    }
+
+    boolean hasSameContent(Subtask other) {
+        return Objects.equals(title, other.title) &&
+                expenseCents == other.expenseCents &&
+                completed == other.completed;
+    }
+}
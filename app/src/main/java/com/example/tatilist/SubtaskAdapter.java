@@ -0,0 +1,125 @@
+package com.example.tatilist;
+
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.CheckBox;
+import android.widget.EditText;
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListAdapter;
+import androidx.recyclerview.widget.RecyclerView;
+import java.util.Objects;
+
+// Filas de item_subtask. En el diálogo se editan en el lugar; dentro de la lista de tareas
+// son de solo lectura y el checkbox se sube directo a Firebase.
+class SubtaskAdapter extends ListAdapter<Subtask, SubtaskAdapter.SubtaskViewHolder> {
+    private static final DiffUtil.ItemCallback<Subtask> DIFF_CALLBACK =
+            new DiffUtil.ItemCallback<Subtask>() {
+                @Override
+                public boolean areItemsTheSame(@NonNull Subtask oldItem, @NonNull Subtask newItem) {
+                    // Las subtareas nuevas del diálogo todavía no tienen clave
+                    return oldItem.getKey() != null
+                            ? Objects.equals(oldItem.getKey(), newItem.getKey())
+                            : oldItem == newItem;
+                }
+
+                @Override
+                public boolean areContentsTheSame(@NonNull Subtask oldItem, @NonNull Subtask newItem) {
+                    return oldItem.hasSameContent(newItem);
+                }
+            };
+
+    interface Listener {
+        void onSubtaskCompletedChanged(Subtask subtask, boolean completed);
+    }
+
+    private final boolean editable;
+    private final Listener listener;
+
+    SubtaskAdapter(boolean editable, Listener listener) {
+        super(DIFF_CALLBACK);
+        this.editable = editable;
+        this.listener = listener;
+    }
+
+    @Override
+    public SubtaskViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.item_subtask, parent, false);
+        SubtaskViewHolder holder = new SubtaskViewHolder(view);
+        if (editable) {
+            holder.etTitle.addTextChangedListener(new AfterTextChanged() {
+                @Override
+                public void afterTextChanged(Editable text) {
+                    if (holder.bound != null) holder.bound.setTitle(text.toString());
+                }
+            });
+            holder.etExpense.addTextChangedListener(new AfterTextChanged() {
+                @Override
+                public void afterTextChanged(Editable text) {
+                    if (holder.bound != null) holder.bound.setExpense(parseExpense(text.toString()));
+                }
+            });
+            holder.cbCompleted.setOnClickListener(v -> {
+                if (holder.bound != null) holder.bound.setCompleted(holder.cbCompleted.isChecked());
+            });
+        } else {
+            holder.etTitle.setEnabled(false);
+            holder.etExpense.setEnabled(false);
+            holder.cbCompleted.setOnClickListener(v -> {
+                if (holder.bound != null && listener != null) {
+                    listener.onSubtaskCompletedChanged(holder.bound, holder.cbCompleted.isChecked());
+                }
+            });
+        }
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(SubtaskViewHolder holder, int position) {
+        Subtask subtask = getItem(position);
+        // Sin bound los TextWatcher ignoran el setText del bind
+        holder.bound = null;
+        holder.etTitle.setText(subtask.getTitle());
+        if (subtask.expenseCents() > 0) {
+            holder.etExpense.setText(editable ? String.valueOf(subtask.getExpense())
+                    : TaskFormat.formatCents(subtask.expenseCents()));
+        } else {
+            holder.etExpense.setText("");
+        }
+        holder.cbCompleted.setChecked(subtask.isCompleted());
+        holder.bound = subtask;
+    }
+
+    private static double parseExpense(String text) {
+        try {
+            return text.isEmpty() ? 0 : Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private abstract static class AfterTextChanged implements TextWatcher {
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {}
+    }
+
+    static class SubtaskViewHolder extends RecyclerView.ViewHolder {
+        CheckBox cbCompleted;
+        EditText etTitle, etExpense;
+        Subtask bound;
+
+        SubtaskViewHolder(View itemView) {
+            super(itemView);
+            cbCompleted = itemView.findViewById(R.id.cbSubtaskCompleted);
+            etTitle = itemView.findViewById(R.id.etSubtaskTitle);
+            etExpense = itemView.findViewById(R.id.etSubtaskExpense);
+        }
+    }
+}
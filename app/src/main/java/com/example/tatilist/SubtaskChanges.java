@@ -0,0 +1,68 @@
+package com.example.tatilist;
+
+import com.example.tatilist.MainActivity.Task;
+import com.google.firebase.database.ServerValue;
+import java.util.*;
+
+// Lo editado en el diálogo como rutas de un updateChildren multi-ruta, más la variación
+// de cantidad y gasto que se suma al resumen de la tarea padre.
+final class SubtaskChanges {
+    private int countDelta;
+    private long centsDelta;
+
+    private SubtaskChanges() {}
+
+    // Una subtarea sin título se elimina al guardar
+    static SubtaskChanges collect(TaskRepository repository, String taskKey,
+                                  List<Subtask> original, List<Subtask> edited,
+                                  Map<String, Object> updates) {
+        SubtaskChanges changes = new SubtaskChanges();
+        Map<String, Subtask> remaining = new HashMap<>();
+        for (Subtask subtask : original) {
+            remaining.put(subtask.getKey(), subtask);
+        }
+        String basePath = "subtasks/" + taskKey + "/";
+        for (Subtask subtask : edited) {
+            if (subtask.getTitle() == null || subtask.getTitle().trim().isEmpty()) continue;
+            Subtask before = subtask.getKey() != null ? remaining.remove(subtask.getKey()) : null;
+            if (before == null) {
+                String key = repository.newKey();
+                if (key == null) continue;
+                updates.put(basePath + key, TaskMapper.subtaskToMap(subtask));
+                changes.countDelta++;
+                changes.centsDelta += subtask.expenseCents();
+            } else if (!before.hasSameContent(subtask)) {
+                updates.put(basePath + subtask.getKey(), TaskMapper.subtaskToMap(subtask));
+                changes.centsDelta += subtask.expenseCents() - before.expenseCents();
+            }
+        }
+        for (Subtask removed : remaining.values()) {
+            updates.put(basePath + removed.getKey(), null);
+            changes.countDelta--;
+            changes.centsDelta -= removed.expenseCents();
+        }
+        return changes;
+    }
+
+    int countDelta() {
+        return countDelta;
+    }
+
+    long centsDelta() {
+        return centsDelta;
+    }
+
+    // Tarea ya existente: el resumen se sube como incremento para no pisar a otro
+    // dispositivo que esté editando subtareas de la misma tarea
+    void writeTotals(Task task, Map<String, Object> updates) {
+        task.setSubtaskTotals(task.getSubtaskCount() + countDelta,
+                task.getSubtaskExpenseCents() + centsDelta);
+        String taskPath = "tasks/" + task.getFirebaseKey() + "/";
+        if (countDelta != 0) {
+            updates.put(taskPath + TaskMapper.SUBTASK_COUNT, ServerValue.increment(countDelta));
+        }
+        if (centsDelta != 0) {
+            updates.put(taskPath + TaskMapper.SUBTASK_EXPENSE_CENTS, ServerValue.increment(centsDelta));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.tatilist;
+
+import androidx.annotation.Nullable;
+import com.google.firebase.database.DatabaseError;
+import java.util.*;
+
+// Carga las subtareas de una tarea solo cuando se expande o se edita. Las tareas expandidas
+// quedan escuchando en vivo hasta que se colapsan o la actividad se detiene.
+class SubtaskLoader {
+    interface Listener {
+        void onSubtasksChanged(String taskKey, List<Subtask> subtasks);
+    }
+
+    private final TaskRepository repository;
+    private final Listener listener;
+    private final Set<String> expanded = new HashSet<>();
+    private final Map<String, List<Subtask>> loaded = new HashMap<>();
+    private final Map<String, TaskRepository.Registration> liveListeners = new HashMap<>();
+    private boolean started;
+
+    SubtaskLoader(TaskRepository repository, Listener listener) {
+        this.repository = repository;
+        this.listener = listener;
+    }
+
+    public boolean isExpanded(String taskKey) {
+        return expanded.contains(taskKey);
+    }
+
+    // null mientras no llegó la primera carga
+    @Nullable
+    public List<Subtask> get(String taskKey) {
+        return loaded.get(taskKey);
+    }
+
+    public void toggle(String taskKey) {
+        if (expanded.remove(taskKey)) {
+            detach(taskKey);
+            loaded.remove(taskKey);
+        } else {
+            expanded.add(taskKey);
+            if (started) attach(taskKey);
+        }
+        listener.onSubtasksChanged(taskKey, get(taskKey));
+    }
+
+    public void start() {
+        started = true;
+        for (String taskKey : expanded) {
+            attach(taskKey);
+        }
+    }
+
+    public void stop() {
+        started = false;
+        for (String taskKey : new ArrayList<>(liveListeners.keySet())) {
+            detach(taskKey);
+        }
+    }
+
+    // Para el diálogo de edición: usa la copia en vivo si la tarea está expandida
+    public void loadOnce(String taskKey, Listener callback) {
+        List<Subtask> current = loaded.get(taskKey);
+        if (current != null) {
+            callback.onSubtasksChanged(taskKey, current);
+            return;
+        }
+        repository.readValue(path(taskKey), new TaskRepository.ValueCallback() {
+            @Override
+            public void onValue(@Nullable Object value) {
+                callback.onSubtasksChanged(taskKey, parse(value));
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {}
+        });
+    }
+
+    private void attach(String taskKey) {
+        if (liveListeners.containsKey(taskKey)) return;
+        liveListeners.put(taskKey, repository.listenValue(path(taskKey),
+                new TaskRepository.ValueCallback() {
+            @Override
+            public void onValue(@Nullable Object value) {
+                List<Subtask> subtasks = parse(value);
+                loaded.put(taskKey, subtasks);
+                listener.onSubtasksChanged(taskKey, subtasks);
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                detach(taskKey);
+            }
+        }));
+    }
+
+    private void detach(String taskKey) {
+        TaskRepository.Registration registration = liveListeners.remove(taskKey);
+        if (registration != null) {
+            registration.remove();
+        }
+    }
+
+    private static String path(String taskKey) {
+        return "subtasks/" + taskKey;
+    }
+
+    // En el orden de las claves, como los hijos de un DataSnapshot
+    private static List<Subtask> parse(@Nullable Object value) {
+        List<Subtask> subtasks = new ArrayList<>();
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> child : new TreeMap<>((Map<?, ?>) value).entrySet()) {
+                Subtask subtask = TaskMapper.subtaskFromMap(String.valueOf(child.getKey()),
+                        child.getValue());
+                if (subtask != null) subtasks.add(subtask);
+            }
+        }
+        return Collections.unmodifiableList(subtasks);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.tatilist;
+
+import androidx.annotation.Nullable;
+import com.example.tatilist.MainActivity.Task;
+import com.example.tatilist.TaskRepository.Range;
+import com.google.firebase.database.DatabaseError;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Archiva las completadas antes de una fecha. El servidor solo ordena por un campo: se
+// recorre por completedAt en páginas y se archivan con BulkWriter antes de pedir la siguiente.
+// Las completadas antes de que existiera completedAt no lo tienen; para esas queda una segunda
+// pasada por dueDate, como antes, que filtra las completadas de cada página. En memoria hay
+// como mucho una página.
+final class TaskArchiver {
+    static final int PAGE_SIZE = 500;
+
+    interface Listener {
+        // Cuando se leyó la última página; error si falló una lectura
+        void onDone(int archived, @Nullable DatabaseError error);
+    }
+
+    private final TaskRepository repository;
+    private final long cutoff;
+    // Recibe el resultado de cada escritura, que el servidor confirma más tarde
+    private final BulkWriter.Callback writes;
+    private final Listener listener;
+    private int archived;
+
+    private TaskArchiver(TaskRepository repository, long cutoff, BulkWriter.Callback writes,
+                         Listener listener) {
+        this.repository = repository;
+        this.cutoff = cutoff;
+        this.writes = writes;
+        this.listener = listener;
+    }
+
+    static void archiveCompleted(TaskRepository repository, long cutoff,
+                                 BulkWriter.Callback writes, Listener listener) {
+        new TaskArchiver(repository, cutoff, writes, listener).readPage(false, null);
+    }
+
+    // after: última tarea de la página anterior; la ventana empieza en ella inclusive (si no
+    // se archivó), así que se pide una de más y se descarta
+    private void readPage(boolean legacy, @Nullable Task after) {
+        int limit = after == null ? PAGE_SIZE : PAGE_SIZE + 1;
+        String afterKey = after != null ? after.getFirebaseKey() : null;
+        Range range;
+        if (legacy) {
+            range = Range.datedBetween(after != null ? after.dueMillis() : Long.MIN_VALUE,
+                    afterKey, cutoff, limit);
+        } else {
+            range = Range.completedBetween(after != null ? after.getCompletedAt() : Long.MIN_VALUE,
+                    afterKey, cutoff, limit);
+        }
+        repository.readTasks(range, new TaskRepository.TasksCallback() {
+            @Override
+            public void onTasks(List<Task> tasks) {
+                List<Task> completed = new ArrayList<>();
+                for (Task task : tasks) {
+                    if (after != null && task.getFirebaseKey().equals(afterKey)) continue;
+                    // Las que tienen completedAt ya las decidió la primera pasada
+                    if (legacy && (!task.isCompleted() || task.getCompletedAt() != 0)) continue;
+                    if (task.isCompleted()) completed.add(task);
+                }
+                // La escritura se aplica enseguida a la copia local: la próxima lectura ya no
+                // trae estas tareas aunque el servidor todavía no haya confirmado
+                archived += BulkWriter.run(repository, completed, TaskArchiver::archive, writes);
+                if (tasks.size() == limit) {
+                    readPage(legacy, tasks.get(tasks.size() - 1));
+                } else if (!legacy) {
+                    readPage(true, null);
+                } else {
+                    listener.onDone(archived, null);
+                }
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                listener.onDone(archived, error);
+            }
+        });
+    }
+
+    // Mueve la tarea a archive/ sin tocar los rollups: el gasto sigue contando. Sus subtareas
+    // se borran como al eliminarla; el resumen (cantidad y gasto) queda en la tarea archivada
+    private static boolean archive(Task task, Map<String, Object> updates,
+                                   ExpenseRollups.Delta delta) {
+        updates.put(BulkWriter.ARCHIVE + "/" + task.getFirebaseKey(), TaskMapper.toMap(task));
+        updates.put("tasks/" + task.getFirebaseKey(), null);
+        updates.put("subtasks/" + task.getFirebaseKey(), null);
+        return true;
+    }
+}
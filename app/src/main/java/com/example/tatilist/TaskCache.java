@@ -0,0 +1,322 @@
+package com.example.tatilist;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.text.TextUtils;
+import androidx.annotation.Nullable;
+import com.example.tatilist.MainActivity.Task;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Última copia conocida de las tareas de cada lista, para pintar al instante en el arranque.
+// Las escrituras pendientes sin conexión las encola la persistencia de Firebase.
+// Aparte guarda, con un índice FTS4, todas las tareas que se llegaron a cargar para la
+// búsqueda (ver FullTextSearch): la tabla tasks solo tiene lo que está cargado ahora.
+class TaskCache extends SQLiteOpenHelper {
+    private static final String DB_NAME = "tatilist_cache.db";
+    private static final int DB_VERSION = 9;
+    private static final String TABLE_TASKS = "tasks";
+    static final String TABLE_CALENDAR_EVENTS = "calendar_events";
+    private static final String TABLE_SEARCH_TASKS = "search_tasks";
+    // docid = id de search_tasks
+    private static final String TABLE_SEARCH_TEXT = "search_text";
+    private static final String[] TASK_COLUMNS = {"firebase_key", "title", "description",
+            "due_date", "priority", "completed", "expense", "category", "recurrence", "subtask_count", "subtask_expense_cents",
+            "completed_at"};
+
+    private static TaskCache instance;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    static synchronized TaskCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new TaskCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private TaskCache(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_TASKS + " (" +
+                "list_id TEXT NOT NULL, " +
+                "firebase_key TEXT NOT NULL, " +
+                "title TEXT, " +
+                "description TEXT, " +
+                "due_date INTEGER, " +
+                "priority INTEGER NOT NULL, " +
+                "completed INTEGER NOT NULL, " +
+                "expense REAL NOT NULL, " +
+                "category TEXT, " +
+                "recurrence TEXT, " +
+                "subtask_count INTEGER NOT NULL, " +
+                "subtask_expense_cents INTEGER NOT NULL, " +
+                "completed_at INTEGER NOT NULL, " +
+                "PRIMARY KEY (list_id, firebase_key))");
+        // Qué evento del calendario refleja cada tarea (ver CalendarSync)
+        db.execSQL("CREATE TABLE IF NOT EXISTS " + TABLE_CALENDAR_EVENTS + " (" +
+                "list_id TEXT NOT NULL, " +
+                "firebase_key TEXT NOT NULL, " +
+                "event_id INTEGER NOT NULL, " +
+                "fingerprint INTEGER NOT NULL, " +
+                "PRIMARY KEY (list_id, firebase_key))");
+        db.execSQL("CREATE TABLE " + TABLE_SEARCH_TASKS + " (" +
+                "id INTEGER PRIMARY KEY, " +
+                "list_id TEXT NOT NULL, " +
+                "firebase_key TEXT NOT NULL, " +
+                "title TEXT, " +
+                "description TEXT, " +
+                "due_date INTEGER, " +
+                "priority INTEGER NOT NULL, " +
+                "completed INTEGER NOT NULL, " +
+                "expense REAL NOT NULL, " +
+                "category TEXT, " +
+                "recurrence TEXT, " +
+                "subtask_count INTEGER NOT NULL, " +
+                "subtask_expense_cents INTEGER NOT NULL, " +
+                "completed_at INTEGER NOT NULL, " +
+                "UNIQUE (list_id, firebase_key))");
+        // Palabras ya normalizadas por FullTextSearch: el tokenizador simple no quita tildes.
+        // Con prefix los prefijos cortos no expanden cientos de palabras al buscar
+        db.execSQL("CREATE VIRTUAL TABLE " + TABLE_SEARCH_TEXT +
+                " USING fts4(words, prefix=\"2,3,4\")");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Las tareas son solo una caché y se reconstruyen desde Firebase. Los eventos no:
+        // sin esa tabla los eventos ya creados quedarían duplicados.
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_TASKS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SEARCH_TASKS);
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE_SEARCH_TEXT);
+        onCreate(db);
+    }
+
+    // Escucha los deltas del store y los replica en segundo plano
+    public TaskStore.Listener writerFor(String listId) {
+        return new Writer(listId);
+    }
+
+    public SearchWriter searchWriterFor(String listId, Runnable changed) {
+        return new SearchWriter(listId, changed);
+    }
+
+    public List<Task> readTasks(String listId) {
+        List<Task> tasks = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().query(TABLE_TASKS, TASK_COLUMNS,
+                "list_id = ?", new String[]{listId}, null, null, null)) {
+            while (cursor.moveToNext()) {
+                tasks.add(readTask(cursor));
+            }
+        }
+        return tasks;
+    }
+
+    private static Task readTask(Cursor cursor) {
+        Task task = new Task(cursor.getString(1), cursor.getString(2),
+                cursor.isNull(3) ? null : cursor.getLong(3), cursor.getInt(4),
+                cursor.getInt(5) != 0, cursor.getDouble(6), cursor.getString(7),
+                cursor.getString(8));
+        task.setFirebaseKey(cursor.getString(0));
+        task.setSubtaskTotals(cursor.getInt(9), cursor.getLong(10));
+        task.setCompletedAt(cursor.getLong(11));
+        return task;
+    }
+
+    // Como searchTasks, en segundo plano; callback se llama en el hilo de la caché
+    public void searchTasks(String listId, String[] terms, int limit,
+                            TaskStore.SearchCallback callback) {
+        executor.execute(() -> callback.onResults(searchTasks(listId, terms, limit)));
+    }
+
+    // Tareas de la copia de búsqueda que tienen todas las palabras (como prefijo), por fecha
+    private List<Task> searchTasks(String listId, String[] terms, int limit) {
+        // Los términos ya vienen de FullTextSearch.tokenize: solo letras y números en minúscula,
+        // así que no pueden formar operadores (OR, NEAR, -) de la sintaxis de MATCH
+        StringBuilder match = new StringBuilder();
+        for (String term : terms) {
+            match.append(term).append("* ");
+        }
+        List<Task> tasks = new ArrayList<>();
+        try (Cursor cursor = getReadableDatabase().rawQuery("SELECT t." +
+                        TextUtils.join(", t.", TASK_COLUMNS) + " FROM " + TABLE_SEARCH_TEXT +
+                        " s JOIN " + TABLE_SEARCH_TASKS + " t ON t.id = s.docid" +
+                        " WHERE s.words MATCH ? AND t.list_id = ?" +
+                        " ORDER BY t.due_date IS NULL, t.due_date, t.firebase_key LIMIT " + limit,
+                new String[]{match.toString().trim(), listId})) {
+            while (cursor.moveToNext()) {
+                tasks.add(readTask(cursor));
+            }
+        }
+        return tasks;
+    }
+
+    private void writeSearchTask(SQLiteDatabase db, String listId, Task task) {
+        ContentValues values = taskValues(listId, task);
+        ContentValues text = new ContentValues();
+        text.put("words", TextUtils.join(" ", FullTextSearch.tokenize(task.getTitle(),
+                task.getDescription(), task.getCategory())));
+        // Sin REPLACE: cambiaría el id y dejaría huérfana la fila de search_text
+        long id = searchTaskId(db, listId, task.getFirebaseKey());
+        if (id >= 0) {
+            String[] idArg = {String.valueOf(id)};
+            db.update(TABLE_SEARCH_TASKS, values, "id = ?", idArg);
+            db.update(TABLE_SEARCH_TEXT, text, "docid = ?", idArg);
+        } else {
+            id = db.insert(TABLE_SEARCH_TASKS, null, values);
+            text.put("docid", id);
+            db.insert(TABLE_SEARCH_TEXT, null, text);
+        }
+    }
+
+    private static long searchTaskId(SQLiteDatabase db, String listId, String key) {
+        try (Cursor cursor = db.query(TABLE_SEARCH_TASKS, new String[]{"id"},
+                "list_id = ? AND firebase_key = ?", new String[]{listId, key},
+                null, null, null)) {
+            return cursor.moveToNext() ? cursor.getLong(0) : -1;
+        }
+    }
+
+    private void writeTask(SQLiteDatabase db, String listId, Task task) {
+        db.insertWithOnConflict(TABLE_TASKS, null, taskValues(listId, task),
+                SQLiteDatabase.CONFLICT_REPLACE);
+    }
+
+    private static ContentValues taskValues(String listId, Task task) {
+        ContentValues values = new ContentValues();
+        values.put("list_id", listId);
+        values.put("firebase_key", task.getFirebaseKey());
+        values.put("title", task.getTitle());
+        values.put("description", task.getDescription());
+        values.put("due_date", task.getDueDate());
+        values.put("priority", task.getPriority());
+        values.put("completed", task.isCompleted());
+        values.put("expense", task.getExpense());
+        values.put("category", task.getCategory());
+        values.put("recurrence", task.getRecurrence());
+        values.put("subtask_count", task.getSubtaskCount());
+        values.put("subtask_expense_cents", task.getSubtaskExpenseCents());
+        values.put("completed_at", task.getCompletedAt());
+        return values;
+    }
+
+    // Agrupa los deltas pendientes (p. ej. la carga inicial) en una sola transacción
+    private class Writer implements TaskStore.Listener {
+        private final String listId;
+        private final Map<String, Task> pending = new LinkedHashMap<>();
+        private boolean flushScheduled;
+
+        Writer(String listId) {
+            this.listId = listId;
+        }
+
+        @Override
+        public void onTaskPut(@Nullable Task oldTask, Task task) {
+            if (oldTask == null || !oldTask.hasSameContent(task)) {
+                enqueue(task.getFirebaseKey(), task);
+            }
+        }
+
+        @Override
+        public void onTaskRemoved(Task oldTask, boolean evicted) {
+            enqueue(oldTask.getFirebaseKey(), null);
+        }
+
+        private synchronized void enqueue(String key, @Nullable Task task) {
+            pending.put(key, task);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                executor.execute(this::flush);
+            }
+        }
+
+        private void flush() {
+            Map<String, Task> batch;
+            synchronized (this) {
+                batch = new LinkedHashMap<>(pending);
+                pending.clear();
+                flushScheduled = false;
+            }
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransaction();
+            try {
+                for (Map.Entry<String, Task> entry : batch.entrySet()) {
+                    if (entry.getValue() != null) {
+                        writeTask(db, listId, entry.getValue());
+                    } else {
+                        db.delete(TABLE_TASKS, "list_id = ? AND firebase_key = ?",
+                                new String[]{listId, entry.getKey()});
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+    }
+
+    // Cambios de la copia de búsqueda, agrupados como los de Writer
+    class SearchWriter {
+        private final String listId;
+        private final Runnable changed;
+        private final Map<String, Task> pending = new LinkedHashMap<>();
+        private boolean flushScheduled;
+
+        SearchWriter(String listId, Runnable changed) {
+            this.listId = listId;
+            this.changed = changed;
+        }
+
+        void put(Task task) {
+            enqueue(task.getFirebaseKey(), task);
+        }
+
+        void delete(String key) {
+            enqueue(key, null);
+        }
+
+        private synchronized void enqueue(String key, @Nullable Task task) {
+            pending.put(key, task);
+            if (!flushScheduled) {
+                flushScheduled = true;
+                executor.execute(this::flush);
+            }
+        }
+
+        private void flush() {
+            Map<String, Task> batch;
+            synchronized (this) {
+                batch = new LinkedHashMap<>(pending);
+                pending.clear();
+                flushScheduled = false;
+            }
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransaction();
+            try {
+                for (Map.Entry<String, Task> entry : batch.entrySet()) {
+                    if (entry.getValue() != null) {
+                        writeSearchTask(db, listId, entry.getValue());
+                        continue;
+                    }
+                    long id = searchTaskId(db, listId, entry.getKey());
+                    if (id >= 0) {
+                        String[] idArg = {String.valueOf(id)};
+                        db.delete(TABLE_SEARCH_TEXT, "docid = ?", idArg);
+                        db.delete(TABLE_SEARCH_TASKS, "id = ?", idArg);
+                    }
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            changed.run();
+        }
+    }
+}
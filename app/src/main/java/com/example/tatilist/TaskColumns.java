@@ -0,0 +1,139 @@
+package com.example.tatilist;
+
+import com.example.tatilist.MainActivity.Task;
+import java.util.Arrays;
+
+// Filas del TaskStore guardadas por columnas: lo que se ordena, filtra y suma va en arreglos
+// de primitivos (fecha y centavos en long, prioridad y categoría como índices) y el texto en
+// arreglos de String. El objeto Task de una fila se arma recién cuando se publica en una
+// pestaña y se guarda hasta que la fila cambia o deja de mostrarse.
+// No es thread-safe: solo se usa desde el hilo de TaskSync.
+final class TaskColumns {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private String[] keys = new String[INITIAL_CAPACITY];
+    private String[] titles = new String[INITIAL_CAPACITY];
+    private String[] descriptions = new String[INITIAL_CAPACITY];
+    private String[] recurrences = new String[INITIAL_CAPACITY];
+    private long[] dueDates = new long[INITIAL_CAPACITY];
+    private long[] completedAts = new long[INITIAL_CAPACITY];
+    private long[] expenseCents = new long[INITIAL_CAPACITY];
+    private long[] subtaskExpenseCents = new long[INITIAL_CAPACITY];
+    private int[] categories = new int[INITIAL_CAPACITY];
+    private int[] subtaskCounts = new int[INITIAL_CAPACITY];
+    // Consultas que trajeron la fila (TaskStore.SOURCE_*)
+    private int[] sources = new int[INITIAL_CAPACITY];
+    private byte[] priorities = new byte[INITIAL_CAPACITY];
+    private boolean[] completed = new boolean[INITIAL_CAPACITY];
+    // Objeto ya armado de la fila; null si no se publicó desde el último cambio
+    private Task[] objects = new Task[INITIAL_CAPACITY];
+    // Filas borradas, se reusan antes de crecer
+    private int[] free = new int[INITIAL_CAPACITY];
+    private int freeCount;
+    private int used;
+
+    int add(Task task, int rowSources) {
+        int row;
+        if (freeCount > 0) {
+            row = free[--freeCount];
+        } else {
+            if (used == keys.length) grow(used * 2);
+            row = used++;
+        }
+        set(row, task, rowSources);
+        return row;
+    }
+
+    // Copia los campos de task; el objeto no se guarda, quien lo pasó puede seguir usándolo
+    void set(int row, Task task, int rowSources) {
+        keys[row] = task.getFirebaseKey();
+        titles[row] = task.getTitle();
+        descriptions[row] = task.getDescription();
+        recurrences[row] = task.getRecurrence();
+        dueDates[row] = task.dueMillis();
+        completedAts[row] = task.getCompletedAt();
+        expenseCents[row] = task.ownExpenseCents();
+        subtaskExpenseCents[row] = task.getSubtaskExpenseCents();
+        categories[row] = task.categoryId();
+        subtaskCounts[row] = task.getSubtaskCount();
+        sources[row] = rowSources;
+        priorities[row] = (byte) task.getPriority();
+        completed[row] = task.isCompleted();
+        objects[row] = null;
+    }
+
+    void free(int row) {
+        keys[row] = null;
+        titles[row] = null;
+        descriptions[row] = null;
+        recurrences[row] = null;
+        objects[row] = null;
+        if (freeCount == free.length) free = Arrays.copyOf(free, freeCount * 2);
+        free[freeCount++] = row;
+    }
+
+    String key(int row) {
+        return keys[row];
+    }
+
+    long dueDate(int row) {
+        return dueDates[row];
+    }
+
+    boolean isCompleted(int row) {
+        return completed[row];
+    }
+
+    int sources(int row) {
+        return sources[row];
+    }
+
+    void setSources(int row, int rowSources) {
+        sources[row] = rowSources;
+    }
+
+    // Objeto de la fila para publicar: se arma una vez y se reutiliza hasta que cambia
+    Task task(int row) {
+        Task task = objects[row];
+        if (task == null) {
+            task = build(row);
+            objects[row] = task;
+        }
+        return task;
+    }
+
+    // El ya armado si lo hay; si no, uno nuevo que no se guarda (deltas a los listeners,
+    // filas que no están en ninguna pestaña)
+    Task peek(int row) {
+        Task task = objects[row];
+        return task != null ? task : build(row);
+    }
+
+    // La fila dejó de mostrarse: el objeto se suelta, las columnas quedan
+    void release(int row) {
+        objects[row] = null;
+    }
+
+    private Task build(int row) {
+        return new Task(keys[row], titles[row], descriptions[row], dueDates[row],
+                priorities[row], completed[row], completedAts[row], expenseCents[row],
+                categories[row], recurrences[row], subtaskCounts[row], subtaskExpenseCents[row]);
+    }
+
+    private void grow(int capacity) {
+        keys = Arrays.copyOf(keys, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        recurrences = Arrays.copyOf(recurrences, capacity);
+        dueDates = Arrays.copyOf(dueDates, capacity);
+        completedAts = Arrays.copyOf(completedAts, capacity);
+        expenseCents = Arrays.copyOf(expenseCents, capacity);
+        subtaskExpenseCents = Arrays.copyOf(subtaskExpenseCents, capacity);
+        categories = Arrays.copyOf(categories, capacity);
+        subtaskCounts = Arrays.copyOf(subtaskCounts, capacity);
+        sources = Arrays.copyOf(sources, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+        completed = Arrays.copyOf(completed, capacity);
+        objects = Arrays.copyOf(objects, capacity);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.tatilist;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.DocumentsContract;
+import androidx.annotation.Nullable;
+import com.example.tatilist.MainActivity.Task;
+import com.example.tatilist.TaskRepository.Range;
+import com.google.firebase.database.DatabaseError;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Exporta las tareas de una lista a un documento elegido con el Storage Access Framework.
+// Recorre la lista por páginas en el orden de la consulta (primero con fecha, después sin
+// fecha) y escribe cada página en un hilo aparte antes de pedir la siguiente: en memoria
+// hay como mucho una página. Si falla o se cancela, el documento a medias se borra.
+final class TaskExporter {
+    static final int PAGE_SIZE = 500;
+
+    // En el hilo principal
+    interface Listener {
+        void onProgress(int tasks);
+        void onDone(int tasks, boolean cancelled, @Nullable String error);
+    }
+
+    private final ContentResolver resolver;
+    private final Uri uri;
+    private final String mimeType;
+    private final TaskRepository repository;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+    // Solo se usan en io
+    private TaskFile.RowWriter writer;
+    private int written;
+    private volatile boolean cancelled;
+    private boolean done;
+
+    TaskExporter(ContentResolver resolver, Uri uri, String mimeType, TaskRepository repository,
+                 Listener listener) {
+        this.resolver = resolver;
+        this.uri = uri;
+        this.mimeType = mimeType;
+        this.repository = repository;
+        this.listener = listener;
+    }
+
+    void start() {
+        io.execute(() -> {
+            try {
+                // Documento recién creado por ACTION_CREATE_DOCUMENT: está vacío
+                OutputStream out = resolver.openOutputStream(uri);
+                if (out == null) throw new FileNotFoundException(uri.toString());
+                writer = TaskFile.writer(mimeType, out);
+            } catch (IOException e) {
+                finish(e.getMessage());
+                return;
+            }
+            mainHandler.post(() -> readPage(false, null));
+        });
+    }
+
+    // Se detiene al terminar la página en curso
+    void cancel() {
+        cancelled = true;
+    }
+
+    // after: última tarea escrita; las ventanas empiezan en ella inclusive, así que se pide
+    // una de más y se descarta
+    private void readPage(boolean undated, @Nullable Task after) {
+        if (cancelled) {
+            io.execute(() -> finish(null));
+            return;
+        }
+        int limit = after == null ? PAGE_SIZE : PAGE_SIZE + 1;
+        String afterKey = after != null ? after.getFirebaseKey() : null;
+        Range range = undated ? Range.undated(afterKey, limit)
+                : Range.dated(after != null ? after.dueMillis() : Long.MIN_VALUE, afterKey, limit);
+        repository.readTasks(range, new TaskRepository.TasksCallback() {
+            @Override
+            public void onTasks(List<Task> tasks) {
+                boolean last = tasks.size() < limit;
+                List<Task> page = after != null && !tasks.isEmpty() &&
+                        afterKey.equals(tasks.get(0).getFirebaseKey())
+                        ? tasks.subList(1, tasks.size()) : tasks;
+                io.execute(() -> {
+                    try {
+                        for (Task task : page) {
+                            writer.write(task);
+                        }
+                    } catch (IOException e) {
+                        finish(e.getMessage());
+                        return;
+                    }
+                    written += page.size();
+                    int progress = written;
+                    mainHandler.post(() -> {
+                        listener.onProgress(progress);
+                        if (!last) {
+                            readPage(undated, tasks.get(tasks.size() - 1));
+                        } else if (!undated) {
+                            readPage(true, null);
+                        } else {
+                            io.execute(() -> finish(null));
+                        }
+                    });
+                });
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                io.execute(() -> finish(error.getMessage()));
+            }
+        });
+    }
+
+    // En io
+    private void finish(@Nullable String error) {
+        if (done) return;
+        done = true;
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                if (error == null) error = e.getMessage();
+            }
+        }
+        boolean complete = error == null && !cancelled;
+        if (!complete) {
+            try {
+                DocumentsContract.deleteDocument(resolver, uri);
+            } catch (Exception e) {
+                // El proveedor puede no permitir borrar; queda el archivo incompleto
+            }
+        }
+        int total = written;
+        String message = error;
+        mainHandler.post(() -> listener.onDone(total, !complete && message == null, message));
+        io.shutdown();
+    }
+}
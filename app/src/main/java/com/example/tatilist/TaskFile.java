@@ -0,0 +1,430 @@
+package com.example.tatilist;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+import android.util.JsonWriter;
+import androidx.annotation.Nullable;
+import com.example.tatilist.MainActivity.Task;
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+// Archivos de tareas para exportar e importar, leídos y escritos fila por fila: nunca se arma
+// el archivo entero en memoria. CSV con cabecera (columnas por nombre, en cualquier orden,
+// separadas por coma o punto y coma) o JSON: un arreglo de tareas, o un objeto clave → tarea
+// como el que exporta la consola de Firebase. Las subtareas no se incluyen.
+final class TaskFile {
+    static final String MIME_CSV = "text/csv";
+    static final String MIME_JSON = "application/json";
+    private static final String[] COLUMNS = {TaskMapper.TITLE, TaskMapper.DESCRIPTION,
+            TaskMapper.DUE_DATE, TaskMapper.PRIORITY, TaskMapper.COMPLETED, TaskMapper.EXPENSE,
+            TaskMapper.CATEGORY, TaskMapper.RECURRENCE};
+    private static final int TITLE = 0, DESCRIPTION = 1, DUE_DATE = 2, PRIORITY = 3,
+            COMPLETED = 4, EXPENSE = 5, CATEGORY = 6, RECURRENCE = 7;
+    // Nombres de columna aceptados además de los de COLUMNS, para planillas hechas a mano
+    private static final Map<String, Integer> ALIASES = new HashMap<>();
+    static {
+        for (int i = 0; i < COLUMNS.length; i++) {
+            ALIASES.put(COLUMNS[i].toLowerCase(Locale.ROOT), i);
+        }
+        ALIASES.put("título", TITLE);
+        ALIASES.put("titulo", TITLE);
+        ALIASES.put("descripción", DESCRIPTION);
+        ALIASES.put("descripcion", DESCRIPTION);
+        ALIASES.put("fecha", DUE_DATE);
+        ALIASES.put("vencimiento", DUE_DATE);
+        ALIASES.put("prioridad", PRIORITY);
+        ALIASES.put("completada", COMPLETED);
+        ALIASES.put("gasto", EXPENSE);
+        ALIASES.put("monto", EXPENSE);
+        ALIASES.put("categoría", CATEGORY);
+        ALIASES.put("categoria", CATEGORY);
+        ALIASES.put("recurrencia", RECURRENCE);
+    }
+    // ISO-8601 con milisegundos y desplazamiento: la fecha vuelve exacta al importarla, aun en
+    // otra zona horaria. Z y no XXX, que SimpleDateFormat recién entiende desde la API 24
+    private static final String CSV_DATE = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+    // Las demás, en hora local: archivos exportados antes (sin segundos) o armados a mano
+    private static final String[] DATE_PATTERNS = {CSV_DATE, "yyyy-MM-dd HH:mm",
+            "yyyy-MM-dd'T'HH:mm:ss", "yyyy-MM-dd'T'HH:mm", "yyyy-MM-dd", "dd/MM/yyyy"};
+    private static final Set<String> TRUE_VALUES = new HashSet<>(
+            Arrays.asList("true", "1", "sí", "si", "yes", "x", "verdadero"));
+    // Índice + 1 en priority_array; "Sin prioridad" si la columna falta
+    private static final String[] PRIORITIES = {"alta", "media", "baja", "sin prioridad"};
+    private static final int NO_PRIORITY = 4;
+    // Un campo CSV mayor a esto es un archivo roto (comillas sin cerrar), no una tarea
+    private static final int MAX_FIELD_CHARS = 64 * 1024;
+    private static final int MAX_LEADING_SPACE = 4096;
+
+    interface RowWriter extends Closeable {
+        void write(Task task) throws IOException;
+    }
+
+    interface RowReader extends Closeable {
+        // false al llegar al final del archivo
+        boolean next() throws IOException;
+
+        // Tarea de la última fila leída; null si la fila no es válida (sin título, datos ilegibles)
+        @Nullable
+        Task task();
+    }
+
+    private TaskFile() {}
+
+    static RowWriter writer(String mimeType, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        return MIME_JSON.equals(mimeType) ? new JsonRowWriter(writer) : new CsvRowWriter(writer);
+    }
+
+    // El formato se reconoce por el contenido: JSON si empieza con [ o {
+    static RowReader reader(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') reader.reset();
+        reader.mark(MAX_LEADING_SPACE + 1);
+        int first;
+        int skipped = 0;
+        do {
+            first = reader.read();
+        } while (first != -1 && Character.isWhitespace(first) && ++skipped < MAX_LEADING_SPACE);
+        reader.reset();
+        return first == '[' || first == '{' ? new JsonRowReader(reader) : new CsvRowReader(reader);
+    }
+
+    // Valores de una fila como texto, en el orden de COLUMNS; null si la columna falta
+    @Nullable
+    private static Task toTask(String[] values, SimpleDateFormat[] dateFormats) {
+        String title = trimmed(values[TITLE]);
+        if (title == null) return null;
+        Long dueDate;
+        double expense;
+        int priority;
+        try {
+            dueDate = parseDate(trimmed(values[DUE_DATE]), dateFormats);
+            expense = parseExpense(trimmed(values[EXPENSE]));
+            priority = parsePriority(trimmed(values[PRIORITY]));
+        } catch (InvalidValueException e) {
+            return null;
+        }
+        String completed = trimmed(values[COMPLETED]);
+        String recurrence = trimmed(values[RECURRENCE]);
+        if (Recurrence.parse(recurrence) == null) recurrence = null;
+        String description = values[DESCRIPTION] != null ? values[DESCRIPTION] : "";
+        return new Task(title, description, dueDate, priority,
+                completed != null && TRUE_VALUES.contains(completed.toLowerCase(Locale.ROOT)),
+                expense, trimmed(values[CATEGORY]), recurrence);
+    }
+
+    @Nullable
+    private static String trimmed(@Nullable String value) {
+        if (value == null) return null;
+        value = value.trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // Milisegundos tal cual (así exporta el JSON) o una fecha en hora local
+    @Nullable
+    private static Long parseDate(@Nullable String value, SimpleDateFormat[] formats)
+            throws InvalidValueException {
+        if (value == null) return null;
+        if (value.matches("-?\\d{9,18}")) return Long.parseLong(value);
+        for (SimpleDateFormat format : formats) {
+            ParsePosition position = new ParsePosition(0);
+            Date date = format.parse(value, position);
+            if (date != null && position.getIndex() == value.length()) return date.getTime();
+        }
+        throw new InvalidValueException();
+    }
+
+    // Acepta "$1.234,50", "1234.5" o "1234,5"
+    private static double parseExpense(@Nullable String value) throws InvalidValueException {
+        if (value == null) return 0;
+        String number = value.replace("$", "").replace(" ", "");
+        if (number.contains(",")) {
+            number = number.lastIndexOf(',') > number.lastIndexOf('.')
+                    ? number.replace(".", "").replace(',', '.')
+                    : number.replace(",", "");
+        }
+        try {
+            double expense = Double.parseDouble(number);
+            if (Double.isNaN(expense) || Double.isInfinite(expense)) throw new InvalidValueException();
+            return expense;
+        } catch (NumberFormatException e) {
+            throw new InvalidValueException();
+        }
+    }
+
+    private static int parsePriority(@Nullable String value) throws InvalidValueException {
+        if (value == null) return NO_PRIORITY;
+        String lower = value.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < PRIORITIES.length; i++) {
+            if (PRIORITIES[i].equals(lower)) return i + 1;
+        }
+        try {
+            int priority = Integer.parseInt(value);
+            return priority >= 1 && priority <= PRIORITIES.length ? priority : NO_PRIORITY;
+        } catch (NumberFormatException e) {
+            throw new InvalidValueException();
+        }
+    }
+
+    private static SimpleDateFormat[] dateFormats() {
+        SimpleDateFormat[] formats = new SimpleDateFormat[DATE_PATTERNS.length];
+        for (int i = 0; i < formats.length; i++) {
+            formats[i] = new SimpleDateFormat(DATE_PATTERNS[i], Locale.US);
+            formats[i].setLenient(false);
+        }
+        return formats;
+    }
+
+    private static final class InvalidValueException extends Exception {}
+
+    private static final class CsvRowWriter implements RowWriter {
+        private final Writer out;
+        private final SimpleDateFormat dateFormat = new SimpleDateFormat(CSV_DATE, Locale.US);
+
+        CsvRowWriter(Writer out) throws IOException {
+            this.out = out;
+            writeRecord(COLUMNS);
+        }
+
+        @Override
+        public void write(Task task) throws IOException {
+            writeRecord(new String[]{
+                    task.getTitle(),
+                    task.getDescription(),
+                    task.hasDueDate() ? dateFormat.format(new Date(task.dueMillis())) : "",
+                    String.valueOf(task.getPriority()),
+                    String.valueOf(task.isCompleted()),
+                    // Solo el gasto propio: el de las subtareas no viaja en el archivo
+                    BigDecimal.valueOf(task.ownExpenseCents(), 2).toPlainString(),
+                    task.getCategory(),
+                    task.getRecurrence()});
+        }
+
+        private void writeRecord(String[] fields) throws IOException {
+            for (int i = 0; i < fields.length; i++) {
+                if (i > 0) out.write(',');
+                String field = fields[i] != null ? fields[i] : "";
+                if (field.indexOf(',') < 0 && field.indexOf('"') < 0 &&
+                        field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+                    out.write(field);
+                } else {
+                    out.write('"');
+                    out.write(field.replace("\"", "\"\""));
+                    out.write('"');
+                }
+            }
+            out.write("\r\n");
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    private static final class CsvRowReader implements RowReader {
+        private final BufferedReader in;
+        private final SimpleDateFormat[] dateFormats = dateFormats();
+        private final List<String> fields = new ArrayList<>();
+        private final StringBuilder field = new StringBuilder();
+        private final int[] columns;
+        private final String[] values = new String[COLUMNS.length];
+        private final char separator;
+        private Task task;
+
+        CsvRowReader(BufferedReader in) throws IOException {
+            this.in = in;
+            // Planillas en español suelen guardar con ";" porque la coma es el decimal
+            in.mark(MAX_FIELD_CHARS);
+            String header = in.readLine();
+            in.reset();
+            separator = header != null && count(header, ';') > count(header, ',') ? ';' : ',';
+            readRecord();
+            columns = new int[fields.size()];
+            for (int i = 0; i < columns.length; i++) {
+                Integer column = ALIASES.get(fields.get(i).trim().toLowerCase(Locale.ROOT));
+                columns[i] = column != null ? column : -1;
+            }
+        }
+
+        private static int count(String text, char c) {
+            int count = 0;
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) == c) count++;
+            }
+            return count;
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            // Las líneas en blanco no cuentan como filas
+            do {
+                if (!readRecord()) return false;
+            } while (fields.size() == 1 && fields.get(0).trim().isEmpty());
+            Arrays.fill(values, null);
+            for (int i = 0; i < columns.length && i < fields.size(); i++) {
+                if (columns[i] >= 0) values[columns[i]] = fields.get(i);
+            }
+            task = toTask(values, dateFormats);
+            return true;
+        }
+
+        @Nullable
+        @Override
+        public Task task() {
+            return task;
+        }
+
+        // Un registro RFC 4180: comillas dobles, con separadores y saltos de línea dentro
+        private boolean readRecord() throws IOException {
+            fields.clear();
+            field.setLength(0);
+            boolean quoted = false;
+            boolean empty = true;
+            while (true) {
+                int c = in.read();
+                if (c == -1) {
+                    if (empty) return false;
+                    fields.add(field.toString());
+                    return true;
+                }
+                empty = false;
+                if (quoted) {
+                    if (c != '"') {
+                        append(c);
+                        continue;
+                    }
+                    in.mark(1);
+                    if (in.read() == '"') {
+                        append('"');
+                    } else {
+                        in.reset();
+                        quoted = false;
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == separator) {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == '\r') {
+                    if (c == '\r') {
+                        in.mark(1);
+                        if (in.read() != '\n') in.reset();
+                    }
+                    fields.add(field.toString());
+                    return true;
+                } else {
+                    append(c);
+                }
+            }
+        }
+
+        private void append(int c) throws IOException {
+            if (field.length() >= MAX_FIELD_CHARS) {
+                throw new IOException("Campo de más de " + MAX_FIELD_CHARS + " caracteres");
+            }
+            field.append((char) c);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static final class JsonRowWriter implements RowWriter {
+        private final JsonWriter json;
+
+        JsonRowWriter(Writer out) throws IOException {
+            json = new JsonWriter(out);
+            json.beginArray();
+        }
+
+        @Override
+        public void write(Task task) throws IOException {
+            json.beginObject();
+            json.name(TaskMapper.TITLE).value(task.getTitle());
+            json.name(TaskMapper.DESCRIPTION).value(task.getDescription());
+            if (task.hasDueDate()) json.name(TaskMapper.DUE_DATE).value(task.dueMillis());
+            json.name(TaskMapper.PRIORITY).value(task.getPriority());
+            json.name(TaskMapper.COMPLETED).value(task.isCompleted());
+            json.name(TaskMapper.EXPENSE).value(task.getExpense());
+            json.name(TaskMapper.CATEGORY).value(task.getCategory());
+            if (task.getRecurrence() != null) {
+                json.name(TaskMapper.RECURRENCE).value(task.getRecurrence());
+            }
+            json.endObject();
+        }
+
+        @Override
+        public void close() throws IOException {
+            json.endArray();
+            json.close();
+        }
+    }
+
+    private static final class JsonRowReader implements RowReader {
+        private final JsonReader json;
+        private final SimpleDateFormat[] dateFormats = dateFormats();
+        private final String[] values = new String[COLUMNS.length];
+        // Objeto clave → tarea en lugar de arreglo
+        private final boolean keyed;
+        private Task task;
+
+        JsonRowReader(Reader in) throws IOException {
+            json = new JsonReader(in);
+            keyed = json.peek() == JsonToken.BEGIN_OBJECT;
+            if (keyed) {
+                json.beginObject();
+            } else {
+                json.beginArray();
+            }
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            if (!json.hasNext()) return false;
+            if (keyed) json.nextName();
+            Arrays.fill(values, null);
+            if (json.peek() != JsonToken.BEGIN_OBJECT) {
+                json.skipValue();
+                task = null;
+                return true;
+            }
+            json.beginObject();
+            while (json.hasNext()) {
+                Integer column = ALIASES.get(json.nextName().toLowerCase(Locale.ROOT));
+                JsonToken token = json.peek();
+                if (column == null || token == JsonToken.BEGIN_ARRAY ||
+                        token == JsonToken.BEGIN_OBJECT) {
+                    json.skipValue();
+                } else if (token == JsonToken.NULL) {
+                    json.nextNull();
+                } else if (token == JsonToken.BOOLEAN) {
+                    values[column] = String.valueOf(json.nextBoolean());
+                } else {
+                    values[column] = json.nextString();
+                }
+            }
+            json.endObject();
+            task = toTask(values, dateFormats);
+            return true;
+        }
+
+        @Nullable
+        @Override
+        public Task task() {
+            return task;
+        }
+
+        @Override
+        public void close() throws IOException {
+            json.close();
+        }
+    }
+}
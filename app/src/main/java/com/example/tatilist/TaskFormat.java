@@ -0,0 +1,39 @@
+package com.example.tatilist;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+// Formateadores reutilizables; crear uno por fila generaba basura en cada bind
+final class TaskFormat {
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
+        }
+    };
+    private static final ThreadLocal<DecimalFormat> AMOUNT_FORMAT = new ThreadLocal<DecimalFormat>() {
+        @Override
+        protected DecimalFormat initialValue() {
+            // Igual que "%.2f": sin separador de miles y redondeo hacia arriba
+            DecimalFormat format = new DecimalFormat("0.00",
+                    DecimalFormatSymbols.getInstance(Locale.getDefault()));
+            format.setRoundingMode(RoundingMode.HALF_UP);
+            return format;
+        }
+    };
+
+    private TaskFormat() {}
+
+    static String formatDate(long millis) {
+        return DATE_FORMAT.get().format(new Date(millis));
+    }
+
+    static String formatCents(long cents) {
+        return "$" + AMOUNT_FORMAT.get().format(BigDecimal.valueOf(cents, 2));
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.tatilist;
+
+import android.content.ContentResolver;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.Nullable;
+import com.example.tatilist.MainActivity.Task;
+import com.google.firebase.database.DatabaseError;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Importa un archivo de tareas con memoria constante: un hilo aparte lee un bloque de filas,
+// el bloque se sube en un solo update multi-ruta con sus rollups y recién cuando se confirma
+// se lee el siguiente. Cada bloque escribe también lists/{id}/imports/{importId} con las filas
+// consumidas, en la misma escritura atómica: al retomar una importación interrumpida (cierre
+// de la app, sin conexión) se saltean exactamente esas filas, sin duplicar tareas ni totales.
+final class TaskImporter {
+    static final String IMPORTS = "imports";
+    static final int BATCH_SIZE = 500;
+    private static final String ROWS = "rows";
+    private static final String IMPORTED = "imported";
+    // Importaciones que todavía pueden escribir (una detenida termina su bloque en curso);
+    // solo desde el hilo principal
+    private static final Set<String> running = new HashSet<>();
+
+    // En el hilo principal. rows cuenta todas las filas leídas; imported, las que eran válidas
+    interface Listener {
+        void onProgress(int rows, int imported);
+        void onFinished(int rows, int imported);
+        // Cancelada o con error: puede retomarse con el mismo importId
+        void onStopped(int rows, int imported, @Nullable String error);
+    }
+
+    private final ContentResolver resolver;
+    private final Uri uri;
+    private final TaskRepository repository;
+    private final String importId;
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+    // Solo se usa en io
+    private TaskFile.RowReader reader;
+    // Confirmadas por el servidor; se leen y escriben en el hilo principal
+    private int rows;
+    private int imported;
+    private volatile boolean cancelled;
+
+    TaskImporter(ContentResolver resolver, Uri uri, TaskRepository repository, String importId,
+                 Listener listener) {
+        this.resolver = resolver;
+        this.uri = uri;
+        this.repository = repository;
+        this.importId = importId;
+        this.listener = listener;
+    }
+
+    static boolean isRunning(String importId) {
+        return running.contains(importId);
+    }
+
+    void start() {
+        running.add(importId);
+        repository.readValue(IMPORTS + "/" + importId, new TaskRepository.ValueCallback() {
+            @Override
+            public void onValue(@Nullable Object value) {
+                if (value instanceof Map) {
+                    rows = asInt(((Map<?, ?>) value).get(ROWS));
+                    imported = asInt(((Map<?, ?>) value).get(IMPORTED));
+                }
+                int skip = rows;
+                io.execute(() -> open(skip));
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                io.execute(() -> stop(error.getMessage()));
+            }
+        });
+    }
+
+    // Se detiene cuando se confirma el bloque en curso
+    void cancel() {
+        cancelled = true;
+    }
+
+    // En io
+    private void open(int skip) {
+        try {
+            InputStream in = resolver.openInputStream(uri);
+            if (in == null) throw new FileNotFoundException(uri.toString());
+            reader = TaskFile.reader(in);
+            for (int i = 0; i < skip; i++) {
+                if (!reader.next()) break;
+            }
+        } catch (IOException | IllegalStateException | SecurityException e) {
+            stop(e.getMessage());
+            return;
+        }
+        readBatch();
+    }
+
+    // En io: lee hasta BATCH_SIZE tareas válidas y las sube juntas
+    private void readBatch() {
+        if (cancelled) {
+            stop(null);
+            return;
+        }
+        Map<String, Object> updates = new HashMap<>();
+        ExpenseRollups.Delta delta = new ExpenseRollups.Delta();
+        int batchRows = 0;
+        int batchImported = 0;
+        try {
+            while (batchImported < BATCH_SIZE && reader.next()) {
+                batchRows++;
+                Task task = reader.task();
+                if (task == null) continue;
+                updates.put("tasks/" + repository.newKey(), TaskMapper.toMap(task));
+                delta.add(task, 1);
+                batchImported++;
+            }
+        } catch (IOException | IllegalStateException e) {
+            // JsonReader informa con IllegalStateException un JSON con otra forma
+            stop(e.getMessage());
+            return;
+        }
+        if (batchRows == 0) {
+            close();
+            mainHandler.post(this::complete);
+            return;
+        }
+        int readRows = batchRows;
+        int readImported = batchImported;
+        mainHandler.post(() -> {
+            updates.put(IMPORTS + "/" + importId + "/" + ROWS, rows + readRows);
+            updates.put(IMPORTS + "/" + importId + "/" + IMPORTED, imported + readImported);
+            delta.writeTo(updates);
+            // Sin conexión la confirmación llega al reconectar: mientras, no se lee más
+            repository.update(updates, error -> {
+                if (error != null) {
+                    io.execute(() -> stop(error.getMessage()));
+                    return;
+                }
+                rows += readRows;
+                imported += readImported;
+                listener.onProgress(rows, imported);
+                io.execute(this::readBatch);
+            });
+        });
+    }
+
+    // En el hilo principal: el archivo se leyó entero, el marcador ya no hace falta
+    private void complete() {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(IMPORTS + "/" + importId, null);
+        repository.update(updates, null);
+        running.remove(importId);
+        listener.onFinished(rows, imported);
+        io.shutdown();
+    }
+
+    // En io
+    private void stop(@Nullable String error) {
+        close();
+        mainHandler.post(() -> {
+            running.remove(importId);
+            listener.onStopped(rows, imported, error);
+        });
+        io.shutdown();
+    }
+
+    private void close() {
+        if (reader == null) return;
+        try {
+            reader.close();
+        } catch (IOException e) {
+            // Solo lectura: no hay nada que perder
+        }
+        reader = null;
+    }
+
+    private static int asInt(Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+}
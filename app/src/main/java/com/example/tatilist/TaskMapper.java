@@ -0,0 +1,149 @@
+package com.example.tatilist;
+
+import com.example.tatilist.MainActivity.Task;
+import com.google.firebase.database.DataSnapshot;
+import java.util.HashMap;
+import java.util.Map;
+
+// Conversión explícita entre Task y el árbol de Firebase, sin el mapeo por reflexión
+// de getValue(Task.class). Usa las mismas claves que generaba ese mapeo.
+final class TaskMapper {
+    static final String TITLE = "title";
+    static final String DESCRIPTION = "description";
+    static final String DUE_DATE = "dueDate";
+    static final String PRIORITY = "priority";
+    static final String COMPLETED = "completed";
+    static final String COMPLETED_AT = "completedAt";
+    static final String EXPENSE = "expense";
+    static final String CATEGORY = "category";
+    // Se sigue escribiendo para versiones anteriores de la app
+    static final String RECURRING = "recurring";
+    static final String RECURRENCE = "recurrence";
+    static final String SUBTASK_COUNT = "subtaskCount";
+    static final String SUBTASK_EXPENSE_CENTS = "subtaskExpenseCents";
+    static final String SUBTASK_TITLE = "title";
+    static final String SUBTASK_EXPENSE = "expense";
+    static final String SUBTASK_COMPLETED = "completed";
+
+    private TaskMapper() {}
+
+    static Task fromSnapshot(DataSnapshot snapshot) {
+        Object value = snapshot.getValue();
+        if (!(value instanceof Map)) return null;
+        Task task = fromMap((Map<?, ?>) value);
+        task.setFirebaseKey(snapshot.getKey());
+        return task;
+    }
+
+    static Task fromMap(Map<?, ?> map) {
+        Object dueDate = map.get(DUE_DATE);
+        String recurrence = asString(map.get(RECURRENCE));
+        if (recurrence == null && asBoolean(map.get(RECURRING))) {
+            recurrence = Recurrence.LEGACY_RULE;
+        }
+        Task task = new Task(
+                asString(map.get(TITLE)),
+                asString(map.get(DESCRIPTION)),
+                dueDate instanceof Number ? ((Number) dueDate).longValue() : null,
+                asInt(map.get(PRIORITY)),
+                asBoolean(map.get(COMPLETED)),
+                asDouble(map.get(EXPENSE)),
+                asString(map.get(CATEGORY)),
+                recurrence);
+        task.setSubtaskTotals(asInt(map.get(SUBTASK_COUNT)), asLong(map.get(SUBTASK_EXPENSE_CENTS)));
+        task.setCompletedAt(asLong(map.get(COMPLETED_AT)));
+        return task;
+    }
+
+    static Map<String, Object> toMap(Task task) {
+        Map<String, Object> map = new HashMap<>();
+        map.put(TITLE, task.getTitle());
+        map.put(DESCRIPTION, task.getDescription());
+        map.put(DUE_DATE, task.getDueDate());
+        map.put(PRIORITY, task.getPriority());
+        map.put(COMPLETED, task.isCompleted());
+        map.put(COMPLETED_AT, completedAt(task));
+        map.put(EXPENSE, task.getExpense());
+        map.put(CATEGORY, task.getCategory());
+        map.put(RECURRING, task.isRecurring());
+        map.put(RECURRENCE, task.getRecurrence());
+        map.put(SUBTASK_COUNT, task.getSubtaskCount());
+        map.put(SUBTASK_EXPENSE_CENTS, task.getSubtaskExpenseCents());
+        return map;
+    }
+
+    static Map<String, Object> toChangedFields(Task task) {
+        Map<String, Object> map = new HashMap<>();
+        int dirty = task.dirtyFields();
+        if ((dirty & Task.FIELD_TITLE) != 0) map.put(TITLE, task.getTitle());
+        if ((dirty & Task.FIELD_DESCRIPTION) != 0) map.put(DESCRIPTION, task.getDescription());
+        if ((dirty & Task.FIELD_DUE_DATE) != 0) map.put(DUE_DATE, task.getDueDate());
+        if ((dirty & Task.FIELD_PRIORITY) != 0) map.put(PRIORITY, task.getPriority());
+        if ((dirty & Task.FIELD_COMPLETED) != 0) {
+            map.put(COMPLETED, task.isCompleted());
+            map.put(COMPLETED_AT, completedAt(task));
+        }
+        if ((dirty & Task.FIELD_EXPENSE) != 0) map.put(EXPENSE, task.getExpense());
+        if ((dirty & Task.FIELD_CATEGORY) != 0) map.put(CATEGORY, task.getCategory());
+        if ((dirty & Task.FIELD_RECURRING) != 0) {
+            map.put(RECURRING, task.isRecurring());
+            map.put(RECURRENCE, task.getRecurrence());
+        }
+        return map;
+    }
+
+    // Sin fecha de completado (pendiente, o completada antes de que existiera) no se escribe
+    private static Long completedAt(Task task) {
+        return task.getCompletedAt() != 0 ? task.getCompletedAt() : null;
+    }
+
+    static Subtask subtaskFromMap(String key, Object value) {
+        if (!(value instanceof Map)) return null;
+        Map<?, ?> map = (Map<?, ?>) value;
+        Subtask subtask = new Subtask(asString(map.get(SUBTASK_TITLE)),
+                asDouble(map.get(SUBTASK_EXPENSE)), asBoolean(map.get(SUBTASK_COMPLETED)));
+        subtask.setKey(key);
+        return subtask;
+    }
+
+    static Map<String, Object> subtaskToMap(Subtask subtask) {
+        Map<String, Object> map = new HashMap<>();
+        map.put(SUBTASK_TITLE, subtask.getTitle());
+        map.put(SUBTASK_EXPENSE, subtask.getExpense());
+        map.put(SUBTASK_COMPLETED, subtask.isCompleted());
+        return map;
+    }
+
+    // Tamaño aproximado en JSON, sin serializar (Firebase no expone los bytes recibidos)
+    static int estimateBytes(Object value) {
+        if (value instanceof Map) {
+            int bytes = 2;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                bytes += String.valueOf(entry.getKey()).length() + 4 + estimateBytes(entry.getValue());
+            }
+            return bytes;
+        }
+        if (value instanceof String) return ((String) value).length() + 2;
+        return String.valueOf(value).length();
+    }
+
+    private static String asString(Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static int asInt(Object value) {
+        return value instanceof Number ? ((Number) value).intValue() : 0;
+    }
+
+    private static long asLong(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : 0;
+    }
+
+    private static double asDouble(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : 0;
+    }
+
+    private static boolean asBoolean(Object value) {
+        return value instanceof Boolean && (Boolean) value;
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.tatilist;
+
+import com.example.tatilist.MainActivity.Task;
+import com.example.tatilist.TaskRepository.Range;
+import com.google.firebase.database.DatabaseError;
+import java.util.*;
+
+// Ventana deslizante sobre lists/{id}/tasks ordenada por dueDate en el servidor
+// (regla ".indexOn": ["dueDate"]). Solo la ventana visible más un margen se descarga,
+// se guarda en memoria y queda escuchando en vivo.
+//
+// Firebase ordena los null primero; la app muestra las tareas sin fecha al final, así que
+// la ventana recorre primero las tareas con fecha y después las que no tienen.
+// Arranca en el día de hoy: las vencidas se cargan al subir, página por página.
+class TaskPager {
+    static final int PAGE_SIZE = 100;
+    static final int WINDOW_SIZE = 3 * PAGE_SIZE;
+    static final int PREFETCH = 30;
+
+    private final TaskSync sync;
+    private final TaskRepository repository;
+    private final Deque<Cursor> previousStarts = new ArrayDeque<>();
+    private Cursor start = Cursor.today();
+    private boolean includeUndated;
+    private boolean loading;
+    private boolean reachedStart;
+    private boolean reachedEnd;
+    // Invalida las lecturas hacia atrás que respondan después de un stop()
+    private int readGeneration;
+
+    public TaskPager(TaskSync sync, TaskRepository repository) {
+        this.sync = sync;
+        this.repository = repository;
+    }
+
+    public void start() {
+        includeUndated = false;
+        reachedStart = false;
+        sync.pinTabs();
+        attach();
+    }
+
+    public void stop() {
+        sync.stop();
+        loading = false;
+        readGeneration++;
+    }
+
+    // first y last son índices dentro de la vista "Todas" (la ventana completa)
+    public void onVisibleRange(int first, int last, List<Task> window) {
+        if (loading) return;
+        if (!reachedEnd && window.size() > PAGE_SIZE && last >= window.size() - PREFETCH) {
+            previousStarts.push(start);
+            start = Cursor.at(window.get(PAGE_SIZE));
+            includeUndated = false;
+            attach();
+        } else if (first <= PREFETCH && !previousStarts.isEmpty()) {
+            start = previousStarts.pop();
+            includeUndated = false;
+            attach();
+        } else if (first <= PREFETCH && !reachedStart && !start.undated) {
+            loadPrevious();
+        }
+    }
+
+    // Antes del inicio actual no hay ventana guardada: una lectura única hacia atrás dice
+    // dónde empieza la página anterior
+    private void loadPrevious() {
+        loading = true;
+        int gen = readGeneration;
+        Cursor from = start;
+        // Con clave, el tope incluye al propio inicio y se descarta después
+        Range range = from.key != null
+                ? Range.datedUntil(from.dueDate, from.key, PAGE_SIZE + 1)
+                : Range.datedUntil(from.dueDate - 1, null, PAGE_SIZE);
+        repository.readTasks(range, new TaskRepository.TasksCallback() {
+            @Override
+            public void onTasks(List<Task> tasks) {
+                if (gen != readGeneration) return;
+                Task first = null;
+                for (Task task : tasks) {
+                    if (!task.getFirebaseKey().equals(from.key)) {
+                        first = task;
+                        break;
+                    }
+                }
+                if (first == null) {
+                    loading = false;
+                    reachedStart = true;
+                    return;
+                }
+                start = Cursor.at(first);
+                includeUndated = false;
+                attach();
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                if (gen == readGeneration) loading = false;
+            }
+        });
+    }
+
+    private void attach() {
+        loading = true;
+        List<Range> ranges = new ArrayList<>();
+        if (!start.undated) {
+            ranges.add(Range.dated(start.dueDate, start.key, WINDOW_SIZE));
+            if (includeUndated) {
+                ranges.add(Range.undated(null, WINDOW_SIZE));
+            }
+        } else {
+            ranges.add(Range.undated(start.key, WINDOW_SIZE));
+        }
+        sync.start(ranges, childCounts -> {
+            loading = false;
+            if (!start.undated && !includeUndated && childCounts[0] < WINDOW_SIZE) {
+                // Se acabaron las tareas con fecha: la ventana sigue con las que no tienen
+                includeUndated = true;
+                attach();
+                return;
+            }
+            reachedEnd = childCounts[childCounts.length - 1] < WINDOW_SIZE;
+        });
+    }
+
+    private static final class Cursor {
+
+        final boolean undated;
+        final double dueDate;
+        final String key;
+
+        Cursor(boolean undated, double dueDate, String key) {
+            this.undated = undated;
+            this.dueDate = dueDate;
+            this.key = key;
+        }
+
+        static Cursor today() {
+            return new Cursor(false, TaskStore.startOfDay(System.currentTimeMillis()), null);
+        }
+
+        static Cursor at(Task task) {
+            return task.hasDueDate()
+                    ? new Cursor(false, task.dueMillis(), task.getFirebaseKey())
+                    : new Cursor(true, 0, task.getFirebaseKey());
+        }
+    }
+}
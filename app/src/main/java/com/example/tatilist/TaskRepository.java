@@ -0,0 +1,156 @@
+package com.example.tatilist;
+
+import androidx.annotation.Nullable;
+import com.example.tatilist.MainActivity.Task;
+import com.google.firebase.database.DatabaseError;
+import java.util.List;
+import java.util.Map;
+
+// Acceso a las tareas de una lista (lists/{id}). Las rutas de update() son relativas a la
+// lista, igual que en un updateChildren multi-ruta. FirebaseTaskRepository habla con el
+// servidor (o con el emulador local); InMemoryTaskRepository lo reemplaza en la JVM, sin red.
+interface TaskRepository {
+    // Tarea recibida sin convertir: el parseo se hace en el hilo que la consume
+    interface RemoteTask {
+        String getKey();
+
+        @Nullable
+        Task toTask();
+    }
+
+    // Eventos de una ventana de tareas, en el hilo de callbacks del repositorio
+    interface TaskEvents {
+        void onTaskAdded(RemoteTask task);
+        void onTaskChanged(RemoteTask task);
+        void onTaskRemoved(String key);
+        // Después de los onTaskAdded de la carga inicial
+        void onInitialLoad(long childCount);
+        void onCancelled(DatabaseError error);
+    }
+
+    interface TasksCallback {
+        void onTasks(List<Task> tasks);
+        void onCancelled(DatabaseError error);
+    }
+
+    interface ValueCallback {
+        void onValue(@Nullable Object value);
+        void onCancelled(DatabaseError error);
+    }
+
+    interface WriteCallback {
+        void onComplete(@Nullable DatabaseError error);
+    }
+
+    interface CompareCallback {
+        // written: el valor era el esperado y se reemplazó
+        void onComplete(boolean written, @Nullable DatabaseError error);
+    }
+
+    interface Registration {
+        void remove();
+    }
+
+    // Clave nueva, ordenada por fecha de creación como las de push()
+    String newKey();
+
+    // Todas las rutas se aplican juntas o ninguna; ServerValue.increment vale como valor
+    void update(Map<String, Object> updates, @Nullable WriteCallback callback);
+
+    Registration listenTasks(Range range, TaskEvents events);
+
+    // Escucha el valor en una ruta relativa a la lista; el primero llega al registrarse
+    Registration listenValue(String path, ValueCallback callback);
+
+    // Lectura única de una ventana, para recorrer la lista por páginas sin escucharla
+    void readTasks(Range range, TasksCallback callback);
+
+    // Lectura única del valor en una ruta relativa a la lista; null si no existe
+    void readValue(String path, ValueCallback callback);
+
+    // Reemplaza el valor en path solo si en el servidor sigue siendo expected (null: no existe)
+    void compareAndSet(String path, @Nullable Object expected, @Nullable Object value,
+                       CompareCallback callback);
+
+    // Ventana de tasks ordenada por dueDate (nulls aparte) y clave, como la consulta
+    // orderByChild("dueDate") del servidor; o por completedAt; o las completadas, por clave
+    final class Range {
+        // orderByChild("completedAt"): las fechas de la ventana son de completado y las
+        // tareas sin completedAt quedan fuera
+        final boolean byCompletedAt;
+        final boolean undated;
+        final double startDueDate;
+        @Nullable final String startKey;
+        // Tope inclusivo de las ventanas con fecha; NaN si no tiene
+        final double endDueDate;
+        @Nullable final String endKey;
+        // limitToLast: las últimas antes del tope en lugar de las primeras desde el inicio
+        final boolean last;
+        // orderByChild("completed").equalTo(true) en lugar del orden por fecha
+        final boolean completed;
+        final int limit;
+
+        private Range(boolean undated, double startDueDate, @Nullable String startKey,
+                      double endDueDate, @Nullable String endKey, boolean last, boolean completed,
+                      int limit) {
+            this(false, undated, startDueDate, startKey, endDueDate, endKey, last, completed, limit);
+        }
+
+        private Range(boolean byCompletedAt, boolean undated, double startDueDate,
+                      @Nullable String startKey, double endDueDate, @Nullable String endKey,
+                      boolean last, boolean completed, int limit) {
+            this.byCompletedAt = byCompletedAt;
+            this.undated = undated;
+            this.startDueDate = startDueDate;
+            this.startKey = startKey;
+            this.endDueDate = endDueDate;
+            this.endKey = endKey;
+            this.last = last;
+            this.completed = completed;
+            this.limit = limit;
+        }
+
+        // Tareas con fecha desde (dueDate, key); key null empieza por la primera de esa fecha
+        static Range dated(double startDueDate, @Nullable String startKey, int limit) {
+            return new Range(false, startDueDate, startKey, Double.NaN, null, false, false, limit);
+        }
+
+        // Tareas sin fecha desde key; key null empieza por la primera
+        static Range undated(@Nullable String startKey, int limit) {
+            return new Range(true, 0, startKey, Double.NaN, null, false, false, limit);
+        }
+
+        // Las últimas tareas con fecha hasta (dueDate, key) inclusive, para retroceder;
+        // key null incluye todas las de esa fecha
+        static Range datedUntil(double endDueDate, @Nullable String endKey, int limit) {
+            return new Range(false, Long.MIN_VALUE, null, endDueDate, endKey, true, false, limit);
+        }
+
+        // Tareas con fecha en [start, end)
+        static Range dueBetween(long start, long end, int limit) {
+            return datedBetween(start, null, end - 1, limit);
+        }
+
+        // Tareas con fecha desde (dueDate, key) hasta endDueDate inclusive
+        static Range datedBetween(double startDueDate, @Nullable String startKey,
+                                  double endDueDate, int limit) {
+            return new Range(false, startDueDate, startKey, endDueDate, null, false, false, limit);
+        }
+
+        // Tareas completadas desde (completedAt, key) hasta endCompletedAt inclusive
+        static Range completedBetween(double startCompletedAt, @Nullable String startKey,
+                                      double endCompletedAt, int limit) {
+            return new Range(true, false, startCompletedAt, startKey, endCompletedAt, null,
+                    false, false, limit);
+        }
+
+        // Las completadas creadas más recientemente
+        static Range completedTasks(int limit) {
+            return new Range(false, 0, null, Double.NaN, null, true, true, limit);
+        }
+
+        boolean hasEnd() {
+            return !Double.isNaN(endDueDate);
+        }
+    }
+}
@@ -0,0 +1,478 @@
+package com.example.tatilist;
+
+import androidx.annotation.Nullable;
+import com.example.tatilist.MainActivity.Task;
+import java.util.*;
+
+// Copia local de las tareas de una lista, mantenida con los deltas de Firebase.
+// Las tareas se guardan por columnas (ver TaskColumns) y cada pestaña es una vista ordenada
+// de filas, actualizada en cada delta; los objetos Task se arman solo para lo que se publica.
+// Las tareas llegan de varias consultas (la ventana de "Todas", "Hoy" y "Completadas"); cada
+// una se recuerda con las consultas que la trajeron y sale del store cuando ya no está en
+// ninguna.
+// No es thread-safe: solo se usa desde el hilo de TaskSync.
+class TaskStore {
+    static final int FILTER_ALL = 0;
+    static final int FILTER_TODAY = 1;
+    static final int FILTER_COMPLETED = 2;
+
+    // Consultas de las que viene cada tarea
+    static final int SOURCE_WINDOW = 1;
+    static final int SOURCE_TODAY = 1 << 1;
+    static final int SOURCE_COMPLETED = 1 << 2;
+    // Caché local y pruebas: se conserva hasta que cada consulta diga que no está
+    static final int ALL_SOURCES = SOURCE_WINDOW | SOURCE_TODAY | SOURCE_COMPLETED;
+
+    // Recibe cada delta aplicado (caché local, totales, etc.)
+    interface Listener {
+        void onTaskPut(@Nullable Task oldTask, Task task);
+        // evicted: salió de las consultas escuchadas pero sigue existiendo en el servidor;
+        // si no, se borró o al menos dejó de coincidir con todas (no se sabe cuál)
+        void onTaskRemoved(Task oldTask, boolean evicted);
+    }
+
+    // Busca también en lo que ya no está cargado (ver FullTextSearch). La consulta puede
+    // tardar: callback se llama en el hilo del store, o antes de volver de search
+    interface Searcher {
+        void search(String[] terms, SearchCallback callback);
+    }
+
+    interface SearchCallback {
+        void onResults(List<Task> tasks);
+    }
+
+    // Las tareas sin fecha van al final: NO_DUE_DATE es el mayor long
+    static final Comparator<Task> BY_DUE_DATE = (t1, t2) -> {
+        int result = Long.compare(t1.dueMillis(), t2.dueMillis());
+        return result != 0 ? result : compareKeys(t1, t2);
+    };
+
+    private final TaskColumns rows = new TaskColumns();
+    private final Map<String, Integer> rowsByKey = new HashMap<>();
+    private final SortedView[] views = {new SortedView(), new SortedView(), new SortedView()};
+    // Todas las tareas del store, de cualquier consulta
+    private final SortedView stored = new SortedView();
+    private final List<Listener> listeners = new ArrayList<>();
+    private final ExpenseTotals expenseTotals = new ExpenseTotals();
+    private String searchQuery = "";
+    // Se recalcula en el próximo snapshot si cambió la consulta o alguna tarea
+    private List<Task> searchResults;
+    @Nullable private Searcher searcher;
+    // Lo último que devolvió searcher; se sigue mostrando mientras llega la respuesta a una
+    // consulta nueva. Cada cambio de la búsqueda o de la copia es una generación
+    private List<Task> fullTextResults = Collections.emptyList();
+    private int searchGeneration;
+    private int requestedGeneration = -1;
+    private int resultsGeneration = -1;
+    private long todayStart, todayEnd;
+    private int currentMonth;
+
+    public TaskStore() {
+        updateTodayBounds(System.currentTimeMillis());
+        listeners.add(expenseTotals);
+    }
+
+    private static int compareKeys(Task t1, Task t2) {
+        String k1 = t1.getFirebaseKey() != null ? t1.getFirebaseKey() : "";
+        String k2 = t2.getFirebaseKey() != null ? t2.getFirebaseKey() : "";
+        return k1.compareTo(k2);
+    }
+
+    // Medianoche del día de millis en la zona del dispositivo
+    static long startOfDay(long millis) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(millis);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public void put(Task task) {
+        put(task, ALL_SOURCES);
+    }
+
+    // Agrega las consultas de source a las que ya tenía la tarea. Se copian sus campos: los
+    // cambios posteriores al objeto no llegan al store
+    public void put(Task task, int sources) {
+        String key = task.getFirebaseKey();
+        Integer existing = rowsByKey.get(key);
+        Task old = null;
+        int row;
+        if (existing != null) {
+            row = existing;
+            old = rows.peek(row);
+            unlink(row);
+            rows.set(row, task, rows.sources(row) | sources);
+        } else {
+            row = rows.add(task, sources);
+            rowsByKey.put(key, row);
+        }
+        link(row);
+        for (Listener listener : listeners) {
+            listener.onTaskPut(old, task);
+        }
+        searchResults = null;
+    }
+
+    // La tarea dejó de estar en la consulta source; si no queda en ninguna sale del store.
+    // true si cambió alguna vista
+    public boolean dropSource(String key, int source, boolean evicted) {
+        Integer row = rowsByKey.get(key);
+        if (row == null) return false;
+        int sources = rows.sources(row);
+        if ((sources & source) == 0) return false;
+        int remaining = sources & ~source;
+        if (remaining == 0) {
+            remove(key, evicted);
+            return true;
+        }
+        boolean changed = false;
+        for (int filter = 0; filter < views.length; filter++) {
+            if (matches(filter, row, sources) && !matches(filter, row, remaining)) {
+                views[filter].remove(row);
+                changed = true;
+            }
+        }
+        rows.setSources(row, remaining);
+        releaseIfHidden(row);
+        return changed;
+    }
+
+    public boolean hasSource(String key, int source) {
+        Integer row = rowsByKey.get(key);
+        return row != null && (rows.sources(row) & source) != 0;
+    }
+
+    // Borrada en el servidor
+    public Task remove(String key) {
+        return remove(key, false);
+    }
+
+    private Task remove(String key, boolean evicted) {
+        Integer row = rowsByKey.remove(key);
+        if (row == null) return null;
+        Task old = rows.peek(row);
+        unlink(row);
+        rows.free(row);
+        for (Listener listener : listeners) {
+            listener.onTaskRemoved(old, evicted);
+        }
+        searchResults = null;
+        return old;
+    }
+
+    // Fila en todas las vistas que le corresponden según sus columnas
+    private void link(int row) {
+        stored.add(row);
+        for (int filter = 0; filter < views.length; filter++) {
+            if (matches(filter, row, rows.sources(row))) {
+                views[filter].add(row);
+            }
+        }
+    }
+
+    // Al revés que link, antes de que cambien las columnas
+    private void unlink(int row) {
+        stored.remove(row);
+        for (int filter = 0; filter < views.length; filter++) {
+            if (matches(filter, row, rows.sources(row))) {
+                views[filter].remove(row);
+            }
+        }
+    }
+
+    // Si la fila ya no está en ninguna pestaña no hace falta su objeto
+    private void releaseIfHidden(int row) {
+        for (int filter = 0; filter < views.length; filter++) {
+            if (matches(filter, row, rows.sources(row))) return;
+        }
+        rows.release(row);
+    }
+
+    @Nullable
+    public Task get(String key) {
+        Integer row = rowsByKey.get(key);
+        return row != null ? rows.peek(row) : null;
+    }
+
+    public boolean contains(String key) {
+        return rowsByKey.containsKey(key);
+    }
+
+    public int size() {
+        return rowsByKey.size();
+    }
+
+    // Todas las tareas del store ordenadas por fecha, también las que no están en la ventana.
+    // Arma un objeto por fila: para recorrer el store entero alcanza con getKeys()
+    public List<Task> getTasks() {
+        List<Task> tasks = new ArrayList<>(stored.size);
+        for (int i = 0; i < stored.size; i++) {
+            tasks.add(rows.peek(stored.rows[i]));
+        }
+        return tasks;
+    }
+
+    public List<String> getKeys() {
+        List<String> keys = new ArrayList<>(stored.size);
+        for (int i = 0; i < stored.size; i++) {
+            keys.add(rows.key(stored.rows[i]));
+        }
+        return keys;
+    }
+
+    // Lista inmutable; se reutiliza mientras la vista no cambie
+    public List<Task> getView(int filter) {
+        return views[filter].snapshot();
+    }
+
+    public Views snapshot() {
+        return new Views(getView(FILTER_ALL), getView(FILTER_TODAY), getView(FILTER_COMPLETED),
+                getSearchResults(), expenseTotals.monthTotal(currentMonth),
+                expenseTotals.categoryTotals(currentMonth));
+    }
+
+    public void setSearchQuery(String query) {
+        if (query.equals(searchQuery)) return;
+        searchQuery = query;
+        searchResults = null;
+        searchGeneration++;
+        // Al empezar otra búsqueda no se muestra lo de la anterior
+        if (FullTextSearch.terms(query) == null) fullTextResults = Collections.emptyList();
+    }
+
+    public void setSearcher(@Nullable Searcher searcher) {
+        this.searcher = searcher;
+        invalidateSearch();
+    }
+
+    // La copia del Searcher cambió: se vuelve a buscar en el próximo snapshot.
+    // true si hay una búsqueda activa que refrescar
+    public boolean invalidateSearch() {
+        searchResults = null;
+        searchGeneration++;
+        return !searchQuery.isEmpty();
+    }
+
+    // Resultados de la búsqueda por fecha; null si no hay nada que buscar. Las tareas cargadas
+    // se muestran como están en memoria; si cambiaron de texto, la copia se pone al día al
+    // escribirse y entonces se vuelve a buscar (ver TaskSync.refreshSearch)
+    @Nullable
+    public List<Task> getSearchResults() {
+        if (searchResults == null) {
+            String[] terms = FullTextSearch.terms(searchQuery);
+            if (terms == null) return null;
+            requestSearch(terms);
+            List<Task> results = new ArrayList<>(fullTextResults.size());
+            for (Task task : fullTextResults) {
+                Integer row = rowsByKey.get(task.getFirebaseKey());
+                results.add(row != null ? rows.task(row) : task);
+            }
+            Collections.sort(results, BY_DUE_DATE);
+            searchResults = Collections.unmodifiableList(results);
+        }
+        return searchResults;
+    }
+
+    private void requestSearch(String[] terms) {
+        if (resultsGeneration == searchGeneration || requestedGeneration == searchGeneration) {
+            return;
+        }
+        int generation = searchGeneration;
+        requestedGeneration = generation;
+        if (searcher == null) {
+            onSearchResults(generation, Collections.<Task>emptyList());
+            return;
+        }
+        searcher.search(terms, tasks -> onSearchResults(generation, tasks));
+    }
+
+    // Las respuestas a consultas viejas se descartan
+    private void onSearchResults(int generation, List<Task> tasks) {
+        if (generation != searchGeneration) return;
+        fullTextResults = tasks;
+        resultsGeneration = generation;
+        searchResults = null;
+    }
+
+    // "Hoy" depende de la fecha actual: si cambió el día se recalcula esa vista.
+    // true si cambió el día
+    public boolean refreshToday(long now) {
+        if (now >= todayStart && now < todayEnd) return false;
+        updateTodayBounds(now);
+        SortedView today = views[FILTER_TODAY];
+        int[] previous = Arrays.copyOf(today.rows, today.size);
+        today.clear();
+        // Se filtra sobre las columnas, sin armar tareas
+        for (int i = 0; i < stored.size; i++) {
+            int row = stored.rows[i];
+            long dueDate = stored.dueDates[i];
+            if (dueDate >= todayStart && dueDate < todayEnd && !rows.isCompleted(row)) {
+                today.append(row, dueDate);
+            }
+        }
+        for (int row : previous) {
+            releaseIfHidden(row);
+        }
+        return true;
+    }
+
+    private void updateTodayBounds(long now) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(startOfDay(now));
+        todayStart = calendar.getTimeInMillis();
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        todayEnd = calendar.getTimeInMillis();
+        currentMonth = ExpenseTotals.monthBucket(now);
+    }
+
+    // "Todas" es solo la ventana, contigua para poder paginarla; "Hoy" y "Completadas" toman
+    // cualquier tarea del store que cumpla el filtro
+    private boolean matches(int filter, int row, int sources) {
+        switch (filter) {
+            case FILTER_TODAY:
+                long dueDate = rows.dueDate(row);
+                return !rows.isCompleted(row) && dueDate >= todayStart && dueDate < todayEnd;
+            case FILTER_COMPLETED:
+                return rows.isCompleted(row);
+            default:
+                return (sources & SOURCE_WINDOW) != 0;
+        }
+    }
+
+    // Copia inmutable de las tres pestañas, la búsqueda y los gastos del mes que se entrega
+    // al hilo principal
+    static final class Views {
+        static final Views EMPTY = new Views(Collections.<Task>emptyList(),
+                Collections.<Task>emptyList(), Collections.<Task>emptyList(), null, 0,
+                Collections.<String, Long>emptyMap());
+
+        private final List<Task> all, today, completed;
+        private final List<Task> searchResults;
+        private final long monthExpenseCents;
+        private final Map<String, Long> monthCategoryCents;
+
+        Views(List<Task> all, List<Task> today, List<Task> completed,
+              @Nullable List<Task> searchResults, long monthExpenseCents,
+              Map<String, Long> monthCategoryCents) {
+            this.all = all;
+            this.today = today;
+            this.completed = completed;
+            this.searchResults = searchResults;
+            this.monthExpenseCents = monthExpenseCents;
+            this.monthCategoryCents = monthCategoryCents;
+        }
+
+        @Nullable
+        List<Task> getSearchResults() {
+            return searchResults;
+        }
+
+        long getMonthExpenseCents() {
+            return monthExpenseCents;
+        }
+
+        Map<String, Long> getMonthCategoryCents() {
+            return monthCategoryCents;
+        }
+
+        List<Task> get(int filter) {
+            switch (filter) {
+                case FILTER_TODAY: return today;
+                case FILTER_COMPLETED: return completed;
+                default: return all;
+            }
+        }
+    }
+
+    // Filas ordenadas por fecha en un int[], con la fecha de cada una al lado: la búsqueda
+    // binaria compara longs contiguos y solo mira las claves cuando dos fechas empatan
+    private class SortedView {
+        int[] rows = new int[16];
+        long[] dueDates = new long[16];
+        int size;
+        List<Task> snapshot;
+
+        void add(int row) {
+            int index = search(row, TaskStore.this.rows.dueDate(row));
+            insert(index < 0 ? -index - 1 : index, row, TaskStore.this.rows.dueDate(row));
+        }
+
+        // Para llenar en orden
+        void append(int row, long dueDate) {
+            insert(size, row, dueDate);
+        }
+
+        void remove(int row) {
+            int index = search(row, TaskStore.this.rows.dueDate(row));
+            if (index < 0 || rows[index] != row) {
+                throw new IllegalStateException("Fila no encontrada: " +
+                        TaskStore.this.rows.key(row));
+            }
+            System.arraycopy(rows, index + 1, rows, index, size - index - 1);
+            System.arraycopy(dueDates, index + 1, dueDates, index, size - index - 1);
+            size--;
+            snapshot = null;
+        }
+
+        void clear() {
+            size = 0;
+            snapshot = null;
+        }
+
+        // Arma (o reutiliza) el objeto de cada fila de la vista
+        List<Task> snapshot() {
+            if (snapshot == null) {
+                Task[] tasks = new Task[size];
+                for (int i = 0; i < size; i++) {
+                    tasks[i] = TaskStore.this.rows.task(rows[i]);
+                }
+                snapshot = Collections.unmodifiableList(Arrays.asList(tasks));
+            }
+            return snapshot;
+        }
+
+        private void insert(int index, int row, long dueDate) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+                dueDates = Arrays.copyOf(dueDates, size * 2);
+            }
+            System.arraycopy(rows, index, rows, index + 1, size - index);
+            System.arraycopy(dueDates, index, dueDates, index + 1, size - index);
+            rows[index] = row;
+            dueDates[index] = dueDate;
+            size++;
+            snapshot = null;
+        }
+
+        // Como Collections.binarySearch con BY_DUE_DATE; las claves no se repiten
+        private int search(int row, long dueDate) {
+            String key = TaskStore.this.rows.key(row);
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int result = Long.compare(dueDates[mid], dueDate);
+                if (result == 0) result = TaskStore.this.rows.key(rows[mid]).compareTo(key);
+                if (result < 0) {
+                    low = mid + 1;
+                } else if (result > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
@@ -0,0 +1,331 @@
+package com.example.tatilist;
+
+import android.os.Handler;
+import android.os.Looper;
+import androidx.annotation.Nullable;
+import com.example.tatilist.MainActivity.Task;
+import com.example.tatilist.TaskRepository.Range;
+import com.example.tatilist.TaskRepository.RemoteTask;
+import com.google.firebase.database.DatabaseError;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Escucha las consultas de lists/{id}/tasks que le indiquen y aplica cada cambio como
+// delta sobre el TaskStore: la ventana paginada de "Todas" y, fijas, las de "Hoy" y
+// "Completadas", que no dependen de dónde esté la ventana. Los callbacks del repositorio
+// llegan al hilo principal; el parseo, el orden y las vistas se resuelven en un hilo propio
+// y al hilo principal solo llega el resultado final.
+class TaskSync {
+    // Ráfagas más rápidas que un frame se publican una sola vez
+    private static final long PUBLISH_DELAY_MS = 16;
+    static final int TODAY_LIMIT = 500;
+    static final int COMPLETED_LIMIT = 300;
+
+    interface Listener {
+        void onTasksChanged(TaskStore.Views views);
+        void onSyncError(DatabaseError error);
+    }
+
+    // Se llama en el hilo principal con la cantidad de hijos de cada ventana
+    interface LoadCallback {
+        void onLoaded(long[] childCounts);
+    }
+
+    private final TaskRepository repository;
+    private final TaskStore store;
+    private final Listener listener;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final Executor mainThread;
+    private final Channel window = new Channel(TaskStore.SOURCE_WINDOW);
+    private final Channel today = new Channel(TaskStore.SOURCE_TODAY);
+    private final Channel completed = new Channel(TaskStore.SOURCE_COMPLETED);
+    // Solo en el hilo principal
+    private boolean tabsPinned;
+    // "Completadas" trae las últimas por clave de a COMPLETED_LIMIT; truncated si puede haber más
+    private int completedLimit = COMPLETED_LIMIT;
+    private boolean completedTruncated;
+    // Solo desde el executor
+    private boolean publishScheduled;
+
+    public TaskSync(TaskRepository repository, TaskStore store, Listener listener) {
+        this(repository, store, new Handler(Looper.getMainLooper())::post, listener);
+    }
+
+    // mainThread reemplaza al hilo principal donde no hay Looper (pruebas en la JVM)
+    TaskSync(TaskRepository repository, TaskStore store, Executor mainThread, Listener listener) {
+        this.repository = repository;
+        this.store = store;
+        this.mainThread = mainThread;
+        this.listener = listener;
+    }
+
+    // Se registra en el hilo del store y recibe como altas las tareas que ya tiene
+    public void addStoreListener(TaskStore.Listener storeListener) {
+        executor.execute(() -> {
+            store.addListener(storeListener);
+            for (Task task : store.getTasks()) {
+                storeListener.onTaskPut(null, task);
+            }
+        });
+    }
+
+    public void removeStoreListener(TaskStore.Listener storeListener) {
+        executor.execute(() -> store.removeListener(storeListener));
+    }
+
+    // Se encola antes que cualquier delta remoto, así la caché nunca pisa datos más nuevos
+    public void restoreFromCache(TaskCache cache, String listId) {
+        executor.execute(() -> {
+            for (Task task : cache.readTasks(listId)) {
+                if (!store.contains(task.getFirebaseKey())) {
+                    store.put(task);
+                }
+            }
+            store.addListener(cache.writerFor(listId));
+            schedulePublish();
+        });
+    }
+
+    // Mueve la ventana de "Todas". El store puede traer tareas de la caché o de una ventana
+    // anterior; se conservan hasta que terminan las cargas iniciales y entonces se descartan
+    // las que ya no aparecen
+    public void start(List<Range> ranges, @Nullable LoadCallback callback) {
+        listen(window, ranges, callback);
+    }
+
+    // "Hoy" (por fecha) y "Completadas" (las últimas por clave) se escuchan aparte de la
+    // ventana; "Hoy" se vuelve a fijar cuando cambia el día
+    public void pinTabs() {
+        tabsPinned = true;
+        pinToday();
+        pinCompleted();
+    }
+
+    // Hilo principal. true si "Completadas" llegó a su límite y hay más para pedir
+    public boolean isCompletedTruncated() {
+        return completedTruncated;
+    }
+
+    // Suma otra página de completadas a la consulta
+    public void loadMoreCompleted() {
+        if (!tabsPinned || !completedTruncated) return;
+        completedLimit += COMPLETED_LIMIT;
+        completedTruncated = false;
+        pinCompleted();
+    }
+
+    private void pinCompleted() {
+        int limit = completedLimit;
+        listen(completed, Collections.singletonList(Range.completedTasks(limit)), childCounts -> {
+            completedTruncated = childCounts[0] >= limit;
+            requestPublish();
+        });
+    }
+
+    private void pinToday() {
+        long start = TaskStore.startOfDay(System.currentTimeMillis());
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(start);
+        calendar.add(Calendar.DAY_OF_MONTH, 1);
+        listen(today, Collections.singletonList(
+                Range.dueBetween(start, calendar.getTimeInMillis(), TODAY_LIMIT)), null);
+    }
+
+    public void stop() {
+        tabsPinned = false;
+        window.stop();
+        today.stop();
+        completed.stop();
+    }
+
+    // Vuelve a publicar las vistas (p. ej. si cambió el día y "Hoy" quedó vieja)
+    public void requestPublish() {
+        executor.execute(this::schedulePublish);
+    }
+
+    public void setSearchQuery(String query) {
+        executor.execute(() -> {
+            store.setSearchQuery(query);
+            schedulePublish();
+        });
+    }
+
+    // La consulta corre donde la haga searcher; la respuesta vuelve al hilo del store
+    public void setSearcher(TaskStore.Searcher searcher) {
+        executor.execute(() -> store.setSearcher((terms, callback) ->
+                searcher.search(terms, tasks -> executor.execute(() -> {
+                    callback.onResults(tasks);
+                    schedulePublish();
+                }))));
+    }
+
+    // La copia que usa el Searcher cambió
+    public void refreshSearch() {
+        executor.execute(() -> {
+            if (store.invalidateSearch()) schedulePublish();
+        });
+    }
+
+    public void shutdown() {
+        stop();
+        executor.shutdown();
+    }
+
+    private void listen(Channel channel, List<Range> ranges, @Nullable LoadCallback callback) {
+        channel.stop();
+        int gen = channel.generation;
+        executor.execute(() -> {
+            channel.activeGeneration = gen;
+            channel.owners.clear();
+            channel.initialKeys.clear();
+            channel.pendingInitialLoads = ranges.size();
+        });
+        long[] childCounts = new long[ranges.size()];
+        int[] remaining = {ranges.size()};
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < ranges.size(); i++) {
+            int index = i;
+            channel.registrations.add(repository.listenTasks(ranges.get(i), new TaskRepository.TaskEvents() {
+                @Override
+                public void onTaskAdded(RemoteTask task) {
+                    executor.execute(() -> applyTask(channel, gen, task, true));
+                }
+
+                @Override
+                public void onTaskChanged(RemoteTask task) {
+                    executor.execute(() -> applyTask(channel, gen, task, false));
+                }
+
+                @Override
+                public void onTaskRemoved(String key) {
+                    executor.execute(() -> removeTask(channel, gen, key));
+                }
+
+                @Override
+                public void onInitialLoad(long childCount) {
+                    Metrics.elapsed(Metrics.SYNC_INITIAL_LOAD, startedAt);
+                    Metrics.size(Metrics.SYNC_INITIAL_CHILDREN, "children", childCount);
+                    childCounts[index] = childCount;
+                    executor.execute(() -> onInitialLoadDone(channel, gen));
+                    if (--remaining[0] == 0 && callback != null) {
+                        callback.onLoaded(childCounts);
+                    }
+                }
+
+                @Override
+                public void onCancelled(DatabaseError error) {
+                    executor.execute(() -> abortInitialLoad(channel, gen));
+                    listener.onSyncError(error);
+                }
+            }));
+        }
+    }
+
+    private void applyTask(Channel channel, int gen, RemoteTask remoteTask, boolean added) {
+        if (gen != channel.activeGeneration) return;
+        Metrics.count(Metrics.SYNC_EVENTS);
+        long parseStart = Metrics.begin(Metrics.SYNC_PARSE);
+        Task task = remoteTask.toTask();
+        Metrics.end(Metrics.SYNC_PARSE, parseStart);
+        if (task == null) return;
+        if (added) {
+            Integer count = channel.owners.get(task.getFirebaseKey());
+            channel.owners.put(task.getFirebaseKey(), count == null ? 1 : count + 1);
+        }
+        if (channel.pendingInitialLoads > 0) {
+            channel.initialKeys.add(task.getFirebaseKey());
+        }
+        long applyStart = Metrics.begin(Metrics.SYNC_APPLY);
+        store.put(task, channel.source);
+        Metrics.end(Metrics.SYNC_APPLY, applyStart);
+        schedulePublish();
+    }
+
+    // La consulta dejó de incluir la tarea: se borró, o cambió y ya no coincide, o la
+    // empujó fuera del límite otra tarea. Sin saber cuál, no se marca como desalojada
+    private void removeTask(Channel channel, int gen, String key) {
+        if (gen != channel.activeGeneration) return;
+        Metrics.count(Metrics.SYNC_EVENTS);
+        Integer count = channel.owners.get(key);
+        if (count != null && count > 1) {
+            channel.owners.put(key, count - 1);
+            return;
+        }
+        channel.owners.remove(key);
+        long applyStart = Metrics.begin(Metrics.SYNC_APPLY);
+        boolean changed = store.dropSource(key, channel.source, false);
+        Metrics.end(Metrics.SYNC_APPLY, applyStart);
+        if (changed) {
+            schedulePublish();
+        }
+    }
+
+    // Las tareas que la consulta ya no trae siguen existiendo: se desalojan
+    private void onInitialLoadDone(Channel channel, int gen) {
+        if (gen != channel.activeGeneration || channel.pendingInitialLoads == 0) return;
+        if (--channel.pendingInitialLoads > 0) return;
+        for (String key : store.getKeys()) {
+            if (!channel.initialKeys.contains(key)) {
+                store.dropSource(key, channel.source, true);
+            }
+        }
+        channel.initialKeys.clear();
+        schedulePublish();
+    }
+
+    // Sin la carga completa no se sabe qué tareas sobran: se conservan todas
+    private void abortInitialLoad(Channel channel, int gen) {
+        if (gen != channel.activeGeneration) return;
+        channel.pendingInitialLoads = 0;
+        channel.initialKeys.clear();
+    }
+
+    private void schedulePublish() {
+        if (publishScheduled) return;
+        publishScheduled = true;
+        executor.schedule(this::publish, PUBLISH_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void publish() {
+        publishScheduled = false;
+        Metrics.count(Metrics.SYNC_PUBLISHES);
+        long start = Metrics.begin(Metrics.SYNC_PUBLISH);
+        boolean dayChanged = store.refreshToday(System.currentTimeMillis());
+        TaskStore.Views views = store.snapshot();
+        Metrics.end(Metrics.SYNC_PUBLISH, start);
+        mainThread.execute(() -> {
+            if (dayChanged && tabsPinned) pinToday();
+            listener.onTasksChanged(views);
+        });
+    }
+
+    // Las consultas de una misma fuente del store (la ventana puede ser más de una)
+    private static final class Channel {
+        final int source;
+        // Solo en el hilo principal
+        final List<TaskRepository.Registration> registrations = new ArrayList<>();
+        int generation;
+
+        // Solo se tocan desde el executor
+        int activeGeneration;
+        // Una tarea puede estar en dos consultas a la vez (bordes de página)
+        final Map<String, Integer> owners = new HashMap<>();
+        final Set<String> initialKeys = new HashSet<>();
+        int pendingInitialLoads;
+
+        Channel(int source) {
+            this.source = source;
+        }
+
+        void stop() {
+            for (TaskRepository.Registration registration : registrations) {
+                registration.remove();
+            }
+            registrations.clear();
+            generation++;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.tatilist;
+
+import android.app.Application;
+import com.google.firebase.database.FirebaseDatabase;
+
+public class TatilistApp extends Application {
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        FirebaseDatabase database = FirebaseDatabase.getInstance();
+        // Ambos deben activarse antes de cualquier otro uso de FirebaseDatabase.
+        if (!BuildConfig.DATABASE_EMULATOR.isEmpty()) {
+            String[] hostPort = BuildConfig.DATABASE_EMULATOR.split(":");
+            database.useEmulator(hostPort[0], Integer.parseInt(hostPort[1]));
+        }
+        // Las escrituras hechas sin conexión quedan en disco y se envían al reconectar.
+        database.setPersistenceEnabled(true);
+    }
+}
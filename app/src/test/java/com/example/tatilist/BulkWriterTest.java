@@ -0,0 +1,69 @@
+package com.example.tatilist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.tatilist.MainActivity.Task;
+import com.google.firebase.database.DatabaseError;
+import java.util.*;
+import org.junit.Test;
+
+// Muchas tareas van en pocas escrituras multi-ruta, cada una con sus propios incrementos
+public class BulkWriterTest {
+    private static final long DUE = 1_700_000_000_000L;
+
+    @Test
+    public void largeSelectionIsWrittenInChunks() {
+        RecordingRepository repository = new RecordingRepository();
+        List<Task> tasks = SyncHarness.seed(repository, 5000, DUE);
+        repository.writes.clear();
+
+        int[] done = {-1};
+        DatabaseError[] error = {null};
+        int changed = BulkWriter.run(repository, tasks, (task, updates, delta) -> {
+            updates.put("tasks/" + task.getFirebaseKey() + "/" + TaskMapper.COMPLETED, true);
+            return true;
+        }, (count, writeError) -> {
+            done[0] = count;
+            error[0] = writeError;
+        });
+
+        assertEquals(5000, changed);
+        assertEquals(5000, done[0]);
+        assertNull(error[0]);
+        assertEquals(3, repository.writes.size());
+        for (Map<String, Object> write : repository.writes) {
+            assertTrue(write.size() <= BulkWriter.MAX_PATHS_PER_WRITE);
+        }
+        for (Task task : tasks) {
+            assertEquals(Boolean.TRUE, repository.get("tasks/" + task.getFirebaseKey() + "/" +
+                    TaskMapper.COMPLETED));
+        }
+    }
+
+    @Test
+    public void unchangedTasksAreNotWritten() {
+        RecordingRepository repository = new RecordingRepository();
+        List<Task> tasks = SyncHarness.seed(repository, 10, DUE);
+        repository.writes.clear();
+
+        int[] done = {-1};
+        int changed = BulkWriter.run(repository, tasks, (task, updates, delta) -> false,
+                (count, error) -> done[0] = count);
+
+        assertEquals(0, changed);
+        assertEquals(0, done[0]);
+        assertTrue(repository.writes.isEmpty());
+    }
+
+    private static final class RecordingRepository extends InMemoryTaskRepository {
+        final List<Map<String, Object>> writes = new ArrayList<>();
+
+        @Override
+        public void update(Map<String, Object> updates, WriteCallback callback) {
+            writes.add(new HashMap<>(updates));
+            super.update(updates, callback);
+        }
+    }
+}
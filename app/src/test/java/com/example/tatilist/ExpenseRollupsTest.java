@@ -0,0 +1,139 @@
+package com.example.tatilist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.tatilist.MainActivity.Task;
+import java.util.*;
+import org.junit.Test;
+
+// Recalcular los totales no pierde incrementos que lleguen mientras se recalcula
+public class ExpenseRollupsTest {
+    private static final long DUE = 1_700_000_000_000L;
+
+    @Test
+    public void rebuildComputesTotalsFromTasksAndArchive() {
+        InMemoryTaskRepository repository = new InMemoryTaskRepository();
+        write(repository, "tasks/", new Task("Luz", "", DUE, 1, false, 10, "Hogar", null));
+        write(repository, "tasks/", new Task("Gas", "", DUE, 1, false, 5.5, "Hogar", null));
+        write(repository, BulkWriter.ARCHIVE + "/", new Task("Cine", "", DUE, 1, true, 7, null, null));
+        write(repository, "tasks/", new Task("Sin fecha", "", null, 1, false, 3, "Hogar", null));
+        // Un desvío que el recálculo tiene que corregir
+        repository.update(Collections.<String, Object>singletonMap(monthPath("Hogar"), 99L), null);
+
+        boolean[] result = rebuild(repository);
+        assertTrue(result[0]);
+        assertEquals(1550L, repository.get(monthPath("Hogar")));
+        assertEquals(700L, repository.get(monthPath(null)));
+        assertEquals(1, ((Number) repository.get(ExpenseRollups.VERSION)).intValue());
+    }
+
+    @Test
+    public void incrementDuringRebuildIsNotLost() {
+        RacingRepository repository = new RacingRepository();
+        write(repository, "tasks/", new Task("Luz", "", DUE, 1, false, 10, "Hogar", null));
+        // Entre la lectura y el reemplazo otro dispositivo agrega una tarea con su incremento
+        Task late = new Task("Agua", "", DUE, 1, false, 4, "Hogar", null);
+        repository.beforeFirstCompare = () -> write(repository, "tasks/", late);
+
+        boolean[] result = rebuild(repository);
+        assertTrue(result[0]);
+        assertEquals(2, repository.compares);
+        assertEquals(1400L, repository.get(monthPath("Hogar")));
+    }
+
+    @Test
+    public void rebuildGivesUpWhenRollupsNeverSettle() {
+        RacingRepository repository = new RacingRepository();
+        write(repository, "tasks/", new Task("Luz", "", DUE, 1, false, 10, "Hogar", null));
+        repository.beforeEveryCompare = () -> write(repository, "tasks/",
+                new Task("Otra", "", DUE, 1, false, 1, "Hogar", null));
+
+        boolean[] result = rebuild(repository);
+        assertFalse(result[0]);
+        assertNull(repository.get(ExpenseRollups.VERSION));
+        // Los incrementos se siguieron aplicando sobre los totales de antes
+        assertEquals(1000L + repository.compares * 100L, repository.get(monthPath("Hogar")));
+    }
+
+    @Test
+    public void ensureBuiltSkipsBuiltLists() {
+        InMemoryTaskRepository repository = new InMemoryTaskRepository();
+        write(repository, "tasks/", new Task("Luz", "", DUE, 1, false, 10, "Hogar", null));
+        repository.update(Collections.<String, Object>singletonMap(ExpenseRollups.VERSION, 1L), null);
+        repository.update(Collections.<String, Object>singletonMap(monthPath("Hogar"), 5L), null);
+
+        ExpenseRollups.ensureBuilt(repository);
+        assertEquals(5L, repository.get(monthPath("Hogar")));
+
+        repository.update(Collections.<String, Object>singletonMap(ExpenseRollups.VERSION, null), null);
+        ExpenseRollups.ensureBuilt(repository);
+        assertEquals(1000L, repository.get(monthPath("Hogar")));
+    }
+
+    // Solo reconstruye quien reserva VERSION; una reserva abandonada se retoma más tarde
+    @Test
+    public void ensureBuiltRebuildsOnlyUnderAClaim() {
+        InMemoryTaskRepository repository = new InMemoryTaskRepository();
+        write(repository, "tasks/", new Task("Luz", "", DUE, 1, false, 10, "Hogar", null));
+        repository.update(Collections.<String, Object>singletonMap(monthPath("Hogar"), 5L), null);
+        long now = DUE;
+        Map<String, Object> otherClaim = Collections.<String, Object>singletonMap("claimedAt", now - 1000);
+        repository.update(Collections.<String, Object>singletonMap(ExpenseRollups.VERSION, otherClaim), null);
+
+        int[] rebuilt = {0};
+        ExpenseRollups.ensureBuilt(repository, now, success -> rebuilt[0]++);
+        assertEquals(0, rebuilt[0]);
+        assertEquals(5L, repository.get(monthPath("Hogar")));
+
+        ExpenseRollups.ensureBuilt(repository, now + 60 * 60 * 1000L, success -> rebuilt[0]++);
+        assertEquals(1, rebuilt[0]);
+        assertEquals(1000L, repository.get(monthPath("Hogar")));
+        assertEquals(1, ((Number) repository.get(ExpenseRollups.VERSION)).intValue());
+    }
+
+    private static boolean[] rebuild(InMemoryTaskRepository repository) {
+        boolean[] result = {false, false};
+        // Los callbacks de InMemoryTaskRepository llegan antes de que vuelva la llamada
+        ExpenseRollups.rebuild(repository, success -> {
+            result[0] = success;
+            result[1] = true;
+        });
+        assertTrue(result[1]);
+        return result;
+    }
+
+    private static String monthPath(String category) {
+        return ExpenseRollups.ROLLUPS + "/" +
+                ExpenseRollups.monthKey(ExpenseTotals.monthBucket(DUE)) + "/" +
+                ExpenseRollups.categoryKey(category);
+    }
+
+    // Como la app: la tarea y su incremento en la misma escritura
+    private static void write(InMemoryTaskRepository repository, String parent, Task task) {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put(parent + repository.newKey(), TaskMapper.toMap(task));
+        new ExpenseRollups.Delta().add(task, 1).writeTo(updates);
+        repository.update(updates, null);
+    }
+
+    private static final class RacingRepository extends InMemoryTaskRepository {
+        Runnable beforeFirstCompare;
+        Runnable beforeEveryCompare;
+        int compares;
+
+        @Override
+        public void compareAndSet(String path, Object expected, Object value,
+                                  CompareCallback callback) {
+            compares++;
+            if (beforeFirstCompare != null) {
+                beforeFirstCompare.run();
+                beforeFirstCompare = null;
+            }
+            if (beforeEveryCompare != null) beforeEveryCompare.run();
+            super.compareAndSet(path, expected, value, callback);
+        }
+    }
+}
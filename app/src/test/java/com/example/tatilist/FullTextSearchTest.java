@@ -0,0 +1,28 @@
+package com.example.tatilist;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import org.junit.Test;
+
+public class FullTextSearchTest {
+    @Test
+    public void tokenizeDropsAccentsCaseAndRepeats() {
+        assertEquals(Arrays.asList("alimentacion", "pan", "2024"),
+                Arrays.asList(FullTextSearch.tokenize("Alimentación: pan", "PAN 2024", null)));
+    }
+
+    // Los términos no pueden armar operadores de MATCH
+    @Test
+    public void termsKeepOnlyWordCharacters() {
+        assertEquals(Arrays.asList("luz", "or", "x"),
+                Arrays.asList(FullTextSearch.terms("luz OR -\"x")));
+    }
+
+    @Test
+    public void termsWaitForTwoLetters() {
+        assertNull(FullTextSearch.terms("p"));
+        assertNull(FullTextSearch.terms("  "));
+        assertEquals(Arrays.asList("pagar", "l"), Arrays.asList(FullTextSearch.terms("l pagar")));
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.tatilist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import com.google.firebase.database.DatabaseError;
+import java.util.*;
+import org.junit.Test;
+
+// Las reglas de updateChildren que el servidor aplica y los tests tienen que respetar
+public class InMemoryTaskRepositoryTest {
+
+    @Test
+    public void overlappingPathsAreRejected() {
+        InMemoryTaskRepository repository = new InMemoryTaskRepository();
+        String key = repository.newKey();
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("tasks/" + key, TaskMapper.toMap(SyncHarness.task("Tarea", null, false)));
+        updates.put("tasks/" + key + "/" + TaskMapper.TITLE, "Otra");
+        try {
+            repository.update(updates, null);
+            fail("Debería rechazar rutas superpuestas");
+        } catch (IllegalArgumentException expected) {
+            // Nada se escribió
+        }
+        assertNull(readValue(repository, "tasks/" + key));
+    }
+
+    @Test
+    public void siblingPathsWithSharedPrefixAreAccepted() {
+        InMemoryTaskRepository repository = new InMemoryTaskRepository();
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("rollups/2023-1/total", 1L);
+        updates.put("rollups/2023-11/total", 2L);
+        repository.update(updates, null);
+        assertEquals(2L, ((Number) readValue(repository, "rollups/2023-11/total")).longValue());
+    }
+
+    // Como addValueEventListener: el valor actual al registrarse y después solo los cambios
+    @Test
+    public void listenValueDeliversInitialValueAndChanges() {
+        InMemoryTaskRepository repository = new InMemoryTaskRepository();
+        List<Object> values = new ArrayList<>();
+        TaskRepository.Registration registration = repository.listenValue("memberCount",
+                new TaskRepository.ValueCallback() {
+            @Override
+            public void onValue(Object value) {
+                values.add(value);
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                throw new AssertionError(error.getMessage());
+            }
+        });
+        repository.update(Collections.<String, Object>singletonMap("tasks/a/title", "Otra ruta"), null);
+        repository.update(Collections.<String, Object>singletonMap("memberCount", 2L), null);
+        registration.remove();
+        repository.update(Collections.<String, Object>singletonMap("memberCount", 3L), null);
+
+        assertEquals(Arrays.asList(null, 2L), values);
+    }
+
+    // Las ventanas escuchadas se actualizan por tarea escrita; tienen que quedar igual que
+    // una consulta nueva sobre los mismos datos
+    @Test
+    public void windowsFollowWritesLikeAFreshQuery() {
+        InMemoryTaskRepository repository = new InMemoryTaskRepository();
+        long due = 1_700_000_000_000L;
+        List<TaskRepository.Range> ranges = Arrays.asList(
+                TaskRepository.Range.dated(due + 5 * SyncHarness.DAY_MS, null, 20),
+                TaskRepository.Range.datedUntil(due + 5 * SyncHarness.DAY_MS, null, 20),
+                TaskRepository.Range.undated(null, 10),
+                TaskRepository.Range.completedTasks(15));
+        List<Map<String, Long>> windows = new ArrayList<>();
+        for (TaskRepository.Range range : ranges) {
+            windows.add(listen(repository, range));
+        }
+        Random random = new Random(3);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            Map<String, Object> updates = new HashMap<>();
+            int op = random.nextInt(4);
+            if (op == 0 && !keys.isEmpty()) {
+                updates.put("tasks/" + keys.remove(random.nextInt(keys.size())), null);
+            } else if (op == 1 && !keys.isEmpty()) {
+                String key = keys.get(random.nextInt(keys.size()));
+                updates.put("tasks/" + key + "/" + TaskMapper.DUE_DATE,
+                        due + random.nextInt(10) * SyncHarness.DAY_MS);
+                updates.put("tasks/" + key + "/" + TaskMapper.COMPLETED, random.nextBoolean());
+            } else {
+                String key = repository.newKey();
+                keys.add(key);
+                Long dueDate = random.nextInt(5) == 0 ? null : due + random.nextInt(10) * SyncHarness.DAY_MS;
+                updates.put("tasks/" + key, TaskMapper.toMap(
+                        SyncHarness.task("Tarea " + i, dueDate, random.nextInt(3) == 0)));
+            }
+            // Las escrituras fuera de tasks no mueven las ventanas
+            updates.put("rollups/total", (long) i);
+            repository.update(updates, null);
+            for (int w = 0; w < ranges.size(); w++) {
+                assertEquals(read(repository, ranges.get(w)), windows.get(w));
+            }
+        }
+    }
+
+    // Clave -> fecha de lo que la ventana entregó, aplicando sus eventos
+    private static Map<String, Long> listen(TaskRepository repository, TaskRepository.Range range) {
+        Map<String, Long> window = new HashMap<>();
+        repository.listenTasks(range, new TaskRepository.TaskEvents() {
+            @Override
+            public void onTaskAdded(TaskRepository.RemoteTask task) {
+                assertNull(window.put(task.getKey(), task.toTask().dueMillis()));
+            }
+
+            @Override
+            public void onTaskChanged(TaskRepository.RemoteTask task) {
+                assertNotNull(window.put(task.getKey(), task.toTask().dueMillis()));
+            }
+
+            @Override
+            public void onTaskRemoved(String key) {
+                assertNotNull(window.remove(key));
+            }
+
+            @Override
+            public void onInitialLoad(long childCount) {}
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                throw new AssertionError(error.getMessage());
+            }
+        });
+        return window;
+    }
+
+    private static Map<String, Long> read(TaskRepository repository, TaskRepository.Range range) {
+        Map<String, Long> tasks = new HashMap<>();
+        repository.readTasks(range, new TaskRepository.TasksCallback() {
+            @Override
+            public void onTasks(List<MainActivity.Task> loaded) {
+                for (MainActivity.Task task : loaded) {
+                    tasks.put(task.getFirebaseKey(), task.dueMillis());
+                }
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                throw new AssertionError(error.getMessage());
+            }
+        });
+        return tasks;
+    }
+
+    private static Object readValue(TaskRepository repository, String path) {
+        Object[] result = {"sin respuesta"};
+        repository.readValue(path, new TaskRepository.ValueCallback() {
+            @Override
+            public void onValue(Object value) {
+                result[0] = value;
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                throw new AssertionError(error.getMessage());
+            }
+        });
+        return result[0];
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.tatilist;
+
+import static org.junit.Assert.assertEquals;
+
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+import com.example.tatilist.MainActivity.Task;
+import com.example.tatilist.TaskRepository.Range;
+import com.example.tatilist.TaskRepository.RemoteTask;
+import com.google.firebase.database.DatabaseError;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// Un cambio remoto llega como delta de una sola tarea y termina en un solo onChanged del adapter
+public class ListScopedSyncTest {
+    private static final long FIRST_DUE = 1_700_000_000_000L;
+    private static final int TASKS = 1000;
+
+    private CountingRepository repository;
+    private SyncHarness harness;
+    private List<Task> seeded;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        repository = new CountingRepository();
+        seeded = SyncHarness.seed(repository, TASKS, FIRST_DUE);
+        harness = new SyncHarness(repository);
+        harness.sync.start(Collections.singletonList(
+                Range.dated(Long.MIN_VALUE, null, TASKS + 10)), null);
+        harness.await(views -> views.get(TaskStore.FILTER_ALL).size() == TASKS);
+        repository.reset();
+    }
+
+    @After
+    public void tearDown() {
+        harness.shutdown();
+    }
+
+    @Test
+    public void remoteEditDeliversAndParsesOneTask() throws InterruptedException {
+        String key = seeded.get(500).getFirebaseKey();
+        repository.update(Collections.<String, Object>singletonMap(
+                "tasks/" + key + "/" + TaskMapper.TITLE, "Editada"), null);
+        harness.await(views -> SyncHarness.hasTitle(views.get(TaskStore.FILTER_ALL), key, "Editada"));
+
+        assertEquals(1, repository.events.get());
+        assertEquals(1, repository.parses.get());
+    }
+
+    @Test
+    public void writesOutsideTasksDeliverNothing() throws InterruptedException {
+        Map<String, Object> updates = new HashMap<>();
+        updates.put("rollups/2023-11/total", 1500L);
+        updates.put("imports/abc/next", 500L);
+        repository.update(updates, null);
+        // Una escritura posterior marca el final: si la primera hubiera generado eventos ya llegaron
+        String key = seeded.get(0).getFirebaseKey();
+        repository.update(Collections.<String, Object>singletonMap(
+                "tasks/" + key + "/" + TaskMapper.TITLE, "Marca"), null);
+        harness.await(views -> SyncHarness.hasTitle(views.get(TaskStore.FILTER_ALL), key, "Marca"));
+
+        assertEquals(1, repository.events.get());
+    }
+
+    @Test
+    public void remoteEditDiffsToSingleChange() throws InterruptedException {
+        List<Task> before = harness.latest().get(TaskStore.FILTER_ALL);
+        String key = seeded.get(42).getFirebaseKey();
+        repository.update(Collections.<String, Object>singletonMap(
+                "tasks/" + key + "/" + TaskMapper.TITLE, "Editada"), null);
+        List<Task> after = harness.await(views ->
+                SyncHarness.hasTitle(views.get(TaskStore.FILTER_ALL), key, "Editada"))
+                .get(TaskStore.FILTER_ALL);
+
+        RecordingCallback updates = diff(before, after);
+        assertEquals(Collections.singletonList("changed 42"), updates.operations);
+    }
+
+    @Test
+    public void remoteInsertDiffsToSingleInsert() throws InterruptedException {
+        List<Task> before = harness.latest().get(TaskStore.FILTER_ALL);
+        // Entre la décima y la undécima tarea
+        Task added = SyncHarness.add(repository,
+                SyncHarness.task("Nueva", FIRST_DUE + 10 * SyncHarness.DAY_MS - 1, false));
+        List<Task> after = harness.await(views ->
+                SyncHarness.hasTitle(views.get(TaskStore.FILTER_ALL), added.getFirebaseKey(), "Nueva"))
+                .get(TaskStore.FILTER_ALL);
+
+        RecordingCallback updates = diff(before, after);
+        assertEquals(Collections.singletonList("inserted 10"), updates.operations);
+        assertEquals(added.getFirebaseKey(), after.get(10).getFirebaseKey());
+    }
+
+    private static RecordingCallback diff(List<Task> before, List<Task> after) {
+        DiffUtil.ItemCallback<Task> items = MainActivity.TaskAdapter.DIFF_CALLBACK;
+        DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return before.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return after.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return items.areItemsTheSame(before.get(oldPosition), after.get(newPosition));
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                return items.areContentsTheSame(before.get(oldPosition), after.get(newPosition));
+            }
+
+            @Override
+            public Object getChangePayload(int oldPosition, int newPosition) {
+                return items.getChangePayload(before.get(oldPosition), after.get(newPosition));
+            }
+        });
+        RecordingCallback callback = new RecordingCallback();
+        result.dispatchUpdatesTo(callback);
+        return callback;
+    }
+
+    private static final class RecordingCallback implements ListUpdateCallback {
+        final List<String> operations = new ArrayList<>();
+
+        @Override
+        public void onInserted(int position, int count) {
+            operations.add(count == 1 ? "inserted " + position : "inserted " + position + "+" + count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            operations.add(count == 1 ? "removed " + position : "removed " + position + "+" + count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            operations.add("moved " + fromPosition + "->" + toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, Object payload) {
+            operations.add(count == 1 ? "changed " + position : "changed " + position + "+" + count);
+        }
+    }
+
+    // Cuenta los eventos que entrega cada ventana y cuántas tareas se llegan a parsear
+    private static final class CountingRepository extends InMemoryTaskRepository {
+        final AtomicInteger events = new AtomicInteger();
+        final AtomicInteger parses = new AtomicInteger();
+
+        void reset() {
+            events.set(0);
+            parses.set(0);
+        }
+
+        @Override
+        public Registration listenTasks(Range range, TaskEvents events) {
+            return super.listenTasks(range, new TaskEvents() {
+                @Override
+                public void onTaskAdded(RemoteTask task) {
+                    CountingRepository.this.events.incrementAndGet();
+                    events.onTaskAdded(counted(task));
+                }
+
+                @Override
+                public void onTaskChanged(RemoteTask task) {
+                    CountingRepository.this.events.incrementAndGet();
+                    events.onTaskChanged(counted(task));
+                }
+
+                @Override
+                public void onTaskRemoved(String key) {
+                    CountingRepository.this.events.incrementAndGet();
+                    events.onTaskRemoved(key);
+                }
+
+                @Override
+                public void onInitialLoad(long childCount) {
+                    events.onInitialLoad(childCount);
+                }
+
+                @Override
+                public void onCancelled(DatabaseError error) {
+                    events.onCancelled(error);
+                }
+            });
+        }
+
+        private RemoteTask counted(RemoteTask task) {
+            return new RemoteTask() {
+                @Override
+                public String getKey() {
+                    return task.getKey();
+                }
+
+                @Override
+                public Task toTask() {
+                    parses.incrementAndGet();
+                    return task.toTask();
+                }
+            };
+        }
+    }
+}
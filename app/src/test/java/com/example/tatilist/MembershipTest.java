@@ -0,0 +1,62 @@
+package com.example.tatilist;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.*;
+import org.junit.Test;
+
+// La entrada en users y memberCount cambian juntas, una sola vez por dispositivo
+public class MembershipTest {
+
+    @Test
+    public void registeringTwiceCountsOnce() {
+        InMemoryTaskRepository repository = new InMemoryTaskRepository();
+        int[] registered = {0};
+        Membership.register(repository, "a", () -> registered[0]++);
+        Membership.register(repository, "a", () -> registered[0]++);
+        Membership.register(repository, "b", () -> registered[0]++);
+
+        assertEquals(3, registered[0]);
+        assertEquals(2L, count(repository));
+        assertEquals(true, repository.get("users/a"));
+    }
+
+    // Listas de antes de memberCount: se cuenta users una vez y después se suma
+    @Test
+    public void seedsCountFromExistingUsers() {
+        InMemoryTaskRepository repository = new InMemoryTaskRepository();
+        Map<String, Object> legacy = new HashMap<>();
+        legacy.put("users/a", true);
+        legacy.put("users/b", true);
+        repository.update(legacy, null);
+
+        Membership.register(repository, "c", () -> {});
+        assertEquals(3L, count(repository));
+    }
+
+    @Test
+    public void alreadyListedDeviceIsNotCountedAgain() {
+        InMemoryTaskRepository repository = new InMemoryTaskRepository();
+        repository.update(Collections.<String, Object>singletonMap("users/a", true), null);
+
+        Membership.register(repository, "a", () -> {});
+        assertEquals(1L, count(repository));
+    }
+
+    // Si otro dispositivo ya escribió memberCount no se vuelve a contar users
+    @Test
+    public void existingCountIsKept() {
+        InMemoryTaskRepository repository = new InMemoryTaskRepository();
+        Map<String, Object> list = new HashMap<>();
+        list.put("users/a", true);
+        list.put(Membership.MEMBER_COUNT, 5L);
+        repository.update(list, null);
+
+        Membership.register(repository, "b", () -> {});
+        assertEquals(6L, count(repository));
+    }
+
+    private static long count(InMemoryTaskRepository repository) {
+        return ((Number) repository.get(Membership.MEMBER_COUNT)).longValue();
+    }
+}
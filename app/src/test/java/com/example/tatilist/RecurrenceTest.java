@@ -0,0 +1,188 @@
+package com.example.tatilist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.tatilist.MainActivity.Task;
+import java.util.*;
+import org.junit.Test;
+
+// Fechas de la próxima instancia, en una zona con cambio de horario
+public class RecurrenceTest {
+    private static final String ZONE = "Europe/Madrid";
+
+    @Test
+    public void dayOfMonthClampsToShortMonths() throws Exception {
+        inZone(() -> {
+            Recurrence rule = Recurrence.onDayOfMonth(31);
+            // Bisiesto y no bisiesto
+            assertEquals(at(2024, 2, 29, 9, 0), rule.next(at(2024, 1, 31, 9, 0)));
+            assertEquals(at(2023, 2, 28, 9, 0), rule.next(at(2023, 1, 31, 9, 0)));
+            // Después de un mes corto vuelve al 31
+            assertEquals(at(2023, 3, 31, 9, 0), rule.next(at(2023, 2, 28, 9, 0)));
+            assertEquals(at(2023, 4, 30, 9, 0), rule.next(at(2023, 3, 31, 9, 0)));
+            // Antes del día fijo, en el mismo mes
+            assertEquals(at(2023, 5, 15, 9, 0),
+                    Recurrence.onDayOfMonth(15).next(at(2023, 5, 10, 9, 0)));
+        });
+    }
+
+    @Test
+    public void monthlyFromMonthEndKeepsLastDay() throws Exception {
+        inZone(() -> {
+            Recurrence rule = Recurrence.monthly();
+            assertEquals(at(2024, 2, 29, 9, 0), rule.next(at(2024, 1, 31, 9, 0)));
+            assertEquals(at(2023, 2, 28, 9, 0), rule.next(at(2023, 1, 31, 9, 0)));
+            // Un mes después del vencimiento anterior, no del original
+            assertEquals(at(2024, 3, 29, 9, 0), rule.next(at(2024, 2, 29, 9, 0)));
+        });
+    }
+
+    // Madrid pasa a verano el 31/03/2024 y vuelve el 27/10/2024: la hora local se mantiene
+    @Test
+    public void keepsLocalTimeAcrossDaylightSaving() throws Exception {
+        inZone(() -> {
+            long beforeSpring = at(2024, 3, 30, 9, 0);
+            assertEquals(at(2024, 3, 31, 9, 0), Recurrence.daily().next(beforeSpring));
+            assertEquals(23 * 60 * 60 * 1000L,
+                    Recurrence.daily().next(beforeSpring) - beforeSpring);
+            assertEquals(at(2024, 4, 4, 9, 0), Recurrence.weekly().next(at(2024, 3, 28, 9, 0)));
+            assertEquals(at(2024, 10, 27, 9, 0), Recurrence.daily().next(at(2024, 10, 26, 9, 0)));
+            assertEquals(at(2024, 11, 15, 9, 0), Recurrence.monthly().next(at(2024, 10, 15, 9, 0)));
+            assertEquals(at(2024, 10, 31, 9, 0),
+                    Recurrence.onDayOfMonth(31).next(at(2024, 9, 30, 9, 0)));
+        });
+    }
+
+    @Test
+    public void completingLateSkipsPastOccurrences() throws Exception {
+        inZone(() -> {
+            long due = at(2024, 1, 1, 9, 0);
+            long now = at(2024, 1, 11, 12, 0);
+            // Hoy a la misma hora, aunque ya haya pasado
+            assertEquals(at(2024, 1, 11, 9, 0), Recurrence.daily().nextAfterCompletion(due, now));
+            assertEquals(at(2024, 1, 15, 9, 0), Recurrence.weekly().nextAfterCompletion(due, now));
+            // A tiempo: la siguiente normal
+            assertEquals(at(2024, 1, 2, 9, 0),
+                    Recurrence.daily().nextAfterCompletion(due, at(2023, 12, 31, 12, 0)));
+        });
+    }
+
+    @Test
+    public void expandVisitsOccurrencesInRange() throws Exception {
+        inZone(() -> {
+            List<Long> seen = new ArrayList<>();
+            int count = Recurrence.daily().expand(at(2024, 1, 1, 9, 0), at(2024, 1, 5, 0, 0),
+                    at(2024, 1, 10, 0, 0), 100, millis -> seen.add(millis));
+            assertEquals(5, count);
+            assertEquals(Long.valueOf(at(2024, 1, 5, 9, 0)), seen.get(0));
+            assertEquals(Long.valueOf(at(2024, 1, 9, 9, 0)), seen.get(4));
+
+            assertEquals(2, Recurrence.daily().expand(at(2024, 1, 1, 9, 0), at(2024, 1, 1, 0, 0),
+                    at(2024, 2, 1, 0, 0), 2, millis -> true));
+        });
+    }
+
+    @Test
+    public void occurrenceKeyStaysInSeries() throws Exception {
+        inZone(() -> {
+            String first = Recurrence.occurrenceKey("-Kabc", at(2024, 3, 5, 9, 0));
+            assertEquals("-Kabc~20240305", first);
+            assertEquals("-Kabc~20240306", Recurrence.occurrenceKey(first, at(2024, 3, 6, 9, 0)));
+            // Misma fecha a otra hora: misma instancia
+            assertEquals(first, Recurrence.occurrenceKey("-Kabc", at(2024, 3, 5, 23, 0)));
+        });
+    }
+
+    @Test
+    public void parsesRules() {
+        assertEquals(Recurrence.DAY_OF_MONTH, Recurrence.parse("day:31").frequency);
+        assertEquals(31, Recurrence.parse("day:40").dayOfMonth);
+        assertEquals("weekly", Recurrence.parse("weekly").toRule());
+        assertNull(Recurrence.parse("day:x"));
+        assertNull(Recurrence.parse("yearly"));
+    }
+
+    // Completar dos veces la misma tarea crea una sola instancia y suma su gasto una vez
+    @Test
+    public void nextOccurrenceIsCreatedOnce() {
+        InMemoryTaskRepository repository = new InMemoryTaskRepository();
+        long now = System.currentTimeMillis();
+        Task task = new Task("Alquiler", "", now - SyncHarness.DAY_MS, 1, true, 500, "Hogar",
+                "monthly");
+        task.setFirebaseKey("-Kalquiler");
+
+        MainActivity.addNextOccurrence(repository, task, now);
+        // Otro dispositivo la completa también, sin haber visto la instancia nueva
+        MainActivity.addNextOccurrence(repository, task.copy(), now);
+
+        Map<?, ?> tasks = (Map<?, ?>) repository.get("tasks");
+        assertEquals(1, tasks.size());
+        String key = (String) tasks.keySet().iterator().next();
+        assertTrue(key.startsWith("-Kalquiler~"));
+        long rollups = 0;
+        for (Object month : ((Map<?, ?>) repository.get(ExpenseRollups.ROLLUPS)).values()) {
+            for (Object cents : ((Map<?, ?>) month).values()) {
+                rollups += ((Number) cents).longValue();
+            }
+        }
+        assertEquals(50000, rollups);
+    }
+
+    // Una reserva que nunca se cumplió se retoma pasado el plazo; una reciente no
+    @Test
+    public void abandonedClaimIsTakenOverLater() {
+        InMemoryTaskRepository repository = new InMemoryTaskRepository();
+        long now = System.currentTimeMillis();
+        Task task = new Task("Alquiler", "", now - SyncHarness.DAY_MS, 1, true, 500, "Hogar",
+                "monthly");
+        task.setFirebaseKey("-Kalquiler");
+        String key = Recurrence.occurrenceKey("-Kalquiler",
+                Recurrence.parse("monthly").nextAfterCompletion(task.dueMillis(), now));
+        String claim = MainActivity.OCCURRENCES + "/" + key;
+        repository.update(Collections.<String, Object>singletonMap(claim, now - 60_000L), null);
+
+        MainActivity.addNextOccurrence(repository, task, now);
+        assertNull(repository.get("tasks"));
+
+        long later = now + 60 * 60 * 1000L;
+        MainActivity.addNextOccurrence(repository, task, later);
+        assertEquals(1, ((Map<?, ?>) repository.get("tasks")).size());
+        assertEquals(true, repository.get(claim));
+    }
+
+    private static long at(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+
+    interface Body {
+        void run() throws Exception;
+    }
+
+    // Recurrence guarda un Calendar por hilo con la zona del momento en que se creó:
+    // se corre en un hilo nuevo para que tome la zona de la prueba
+    private static void inZone(Body body) throws Exception {
+        TimeZone previous = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone(ZONE));
+        Throwable[] failure = {null};
+        try {
+            Thread thread = new Thread(() -> {
+                try {
+                    body.run();
+                } catch (Throwable t) {
+                    failure[0] = t;
+                }
+            });
+            thread.start();
+            thread.join();
+        } finally {
+            TimeZone.setDefault(previous);
+        }
+        if (failure[0] instanceof Error) throw (Error) failure[0];
+        if (failure[0] != null) throw (Exception) failure[0];
+    }
+}
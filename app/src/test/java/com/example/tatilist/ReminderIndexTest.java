@@ -0,0 +1,49 @@
+package com.example.tatilist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.example.tatilist.MainActivity.Task;
+import org.junit.Test;
+
+// El índice local sigue los deltas: solo las pendientes con fecha, en orden de vencimiento
+public class ReminderIndexTest {
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    public void firstIsTheEarliestPendingFromNow() {
+        ReminderIndex.DueIndex index = new ReminderIndex.DueIndex();
+        index.put(TaskStoreTest.keyed("a", SyncHarness.task("Vencida", NOW - 1000, false)));
+        Task later = TaskStoreTest.keyed("b", SyncHarness.task("Después", NOW + 2000, false));
+        Task sooner = TaskStoreTest.keyed("c", SyncHarness.task("Antes", NOW + 1000, false));
+        index.put(later);
+        index.put(sooner);
+        index.put(TaskStoreTest.keyed("d", SyncHarness.task("Hecha", NOW + 500, true)));
+
+        assertEquals(sooner, index.first(NOW));
+        assertEquals(sooner, index.first(NOW + 1000));
+        assertEquals(later, index.first(NOW + 1001));
+    }
+
+    @Test
+    public void followsChangesAndRemovals() {
+        ReminderIndex.DueIndex index = new ReminderIndex.DueIndex();
+        Task task = TaskStoreTest.keyed("a", SyncHarness.task("Pagar", NOW + 1000, false));
+        Task other = TaskStoreTest.keyed("b", SyncHarness.task("Llamar", NOW + 2000, false));
+        index.put(task);
+        index.put(other);
+
+        Task moved = task.copy();
+        moved.setDueDate(NOW + 3000);
+        index.put(moved);
+        assertEquals(other, index.first(NOW));
+
+        Task done = other.copy();
+        done.setCompleted(true);
+        index.put(done);
+        assertEquals(moved, index.first(NOW));
+
+        index.remove("a");
+        assertNull(index.first(NOW));
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.tatilist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.example.tatilist.MainActivity.Task;
+import com.google.firebase.database.DatabaseError;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+// La próxima tarea a vencer sale de la lista completa del servidor, no de lo cargado
+public class ReminderSchedulerTest {
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    public void skipsCompletedTasksAcrossPages() throws Exception {
+        InMemoryTaskRepository repository = new InMemoryTaskRepository();
+        SyncHarness.add(repository, SyncHarness.task("Vencida", NOW - SyncHarness.DAY_MS, false));
+        for (int i = 0; i < ReminderScheduler.PAGE_SIZE * 2 + 3; i++) {
+            SyncHarness.add(repository, SyncHarness.task("Hecha " + i, NOW + i * 1000L, true));
+        }
+        Task next = SyncHarness.add(repository,
+                SyncHarness.task("Siguiente", NOW + SyncHarness.DAY_MS, false));
+
+        assertEquals(next.getFirebaseKey(), findNext(repository, NOW, "").getFirebaseKey());
+    }
+
+    @Test
+    public void startsAfterTheNotifiedTask() throws Exception {
+        InMemoryTaskRepository repository = new InMemoryTaskRepository();
+        Task notified = SyncHarness.add(repository, SyncHarness.task("Avisada", NOW, false));
+        Task sameTime = SyncHarness.add(repository, SyncHarness.task("Misma hora", NOW, false));
+
+        assertEquals(sameTime.getFirebaseKey(),
+                findNext(repository, NOW, notified.getFirebaseKey()).getFirebaseKey());
+        assertNull(findNext(repository, NOW, sameTime.getFirebaseKey()));
+    }
+
+    private static Task findNext(TaskRepository repository, long dueDate, String key)
+            throws Exception {
+        CompletableFuture<Task> result = new CompletableFuture<>();
+        ReminderScheduler.findNext(repository, dueDate, key, new ReminderScheduler.NextCallback() {
+            @Override
+            public void onNext(Task task) {
+                result.complete(task);
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                result.completeExceptionally(new AssertionError(error.getMessage()));
+            }
+        });
+        return result.get(5, TimeUnit.SECONDS);
+    }
+}
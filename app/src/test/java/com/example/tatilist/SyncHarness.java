@@ -0,0 +1,100 @@
+package com.example.tatilist;
+
+import com.example.tatilist.MainActivity.Task;
+import com.google.firebase.database.DatabaseError;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+// TaskSync sobre un InMemoryTaskRepository, con el hilo principal reemplazado por una cola:
+// las pruebas esperan a que se publique el estado que buscan en lugar de dormir.
+final class SyncHarness {
+    static final long DAY_MS = 24L * 60 * 60 * 1000;
+    private static final long TIMEOUT_MS = 5000;
+
+    final InMemoryTaskRepository repository;
+    final TaskStore store = new TaskStore();
+    final TaskSync sync;
+    private final BlockingQueue<TaskStore.Views> published = new LinkedBlockingQueue<>();
+    private final AtomicInteger publishes = new AtomicInteger();
+    private volatile TaskStore.Views latest = TaskStore.Views.EMPTY;
+
+    SyncHarness(InMemoryTaskRepository repository) {
+        this.repository = repository;
+        this.sync = new TaskSync(repository, store, Runnable::run, new TaskSync.Listener() {
+            @Override
+            public void onTasksChanged(TaskStore.Views views) {
+                latest = views;
+                publishes.incrementAndGet();
+                published.add(views);
+            }
+
+            @Override
+            public void onSyncError(DatabaseError error) {
+                throw new AssertionError(error.getMessage());
+            }
+        });
+    }
+
+    TaskStore.Views latest() {
+        return latest;
+    }
+
+    int publishes() {
+        return publishes.get();
+    }
+
+    // Las vistas publicadas que cumplen la condición; falla si no llegan a tiempo
+    TaskStore.Views await(Predicate<TaskStore.Views> condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        TaskStore.Views views = latest;
+        while (!condition.test(views)) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) throw new AssertionError("No se publicó el estado esperado");
+            TaskStore.Views next = published.poll(remaining, TimeUnit.MILLISECONDS);
+            if (next != null) views = next;
+        }
+        return views;
+    }
+
+    void shutdown() {
+        sync.shutdown();
+    }
+
+    static Task task(String title, Long dueDate, boolean completed) {
+        return new Task(title, "", dueDate, 1, completed, 0, null, null);
+    }
+
+    // Escribe la tarea con una clave nueva y la devuelve con esa clave
+    static Task add(InMemoryTaskRepository repository, Task task) {
+        String key = repository.newKey();
+        repository.update(Collections.<String, Object>singletonMap("tasks/" + key,
+                TaskMapper.toMap(task)), null);
+        task.setFirebaseKey(key);
+        return task;
+    }
+
+    // count tareas pendientes, una por día desde firstDue; todas en una sola escritura
+    static List<Task> seed(InMemoryTaskRepository repository, int count, long firstDue) {
+        Map<String, Object> updates = new HashMap<>();
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Task task = task("Tarea " + i, firstDue + i * DAY_MS, false);
+            task.setFirebaseKey(repository.newKey());
+            updates.put("tasks/" + task.getFirebaseKey(), TaskMapper.toMap(task));
+            tasks.add(task);
+        }
+        repository.update(updates, null);
+        return tasks;
+    }
+
+    static boolean hasTitle(List<Task> tasks, String key, String title) {
+        for (Task task : tasks) {
+            if (key.equals(task.getFirebaseKey())) return title.equals(task.getTitle());
+        }
+        return false;
+    }
+}
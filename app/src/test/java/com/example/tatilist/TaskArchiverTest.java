@@ -0,0 +1,110 @@
+package com.example.tatilist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import com.example.tatilist.MainActivity.Task;
+import com.google.firebase.database.DatabaseError;
+import java.util.*;
+import org.junit.Test;
+
+// Archivar recorre la lista por páginas y mueve solo las completadas hasta la fecha de corte
+public class TaskArchiverTest {
+    private static final long FIRST_DUE = 1_700_000_000_000L;
+
+    @Test
+    public void archivesCompletedTasksAcrossPages() {
+        InMemoryTaskRepository repository = new InMemoryTaskRepository();
+        List<Task> tasks = new ArrayList<>();
+        Map<String, Object> updates = new HashMap<>();
+        // Tres páginas hasta el corte; una de cada tres tareas sigue pendiente
+        int count = TaskArchiver.PAGE_SIZE * 3;
+        for (int i = 0; i < count; i++) {
+            Task task = SyncHarness.task("Tarea " + i, FIRST_DUE + i * 60_000L, i % 3 != 0);
+            task.setFirebaseKey(repository.newKey());
+            updates.put("tasks/" + task.getFirebaseKey(), TaskMapper.toMap(task));
+            tasks.add(task);
+        }
+        repository.update(updates, null);
+        long cutoff = tasks.get(count - 100).dueMillis();
+
+        int[] result = {-1};
+        TaskArchiver.archiveCompleted(repository, cutoff, (changed, error) -> {
+            if (error != null) throw new AssertionError(error.getMessage());
+        }, (archived, error) -> {
+            assertNull(error);
+            result[0] = archived;
+        });
+
+        int expected = 0;
+        for (Task task : tasks) {
+            Object current = readValue(repository, "tasks/" + task.getFirebaseKey());
+            Object archived = readValue(repository, BulkWriter.ARCHIVE + "/" + task.getFirebaseKey());
+            if (task.isCompleted() && task.dueMillis() <= cutoff) {
+                expected++;
+                assertNull(current);
+                assertNotNull(archived);
+            } else {
+                assertNotNull(current);
+                assertNull(archived);
+            }
+        }
+        assertEquals(expected, result[0]);
+    }
+
+    // Con completedAt cuenta cuándo se completó, no el vencimiento: entran las sin fecha y
+    // queda afuera una vencida hace mucho pero completada recién. Las subtareas se van con ella
+    @Test
+    public void archivesByCompletionTimeWithSubtasks() {
+        InMemoryTaskRepository repository = new InMemoryTaskRepository();
+        long cutoff = FIRST_DUE;
+        Map<String, Object> updates = new HashMap<>();
+        List<Task> old = new ArrayList<>();
+        // Más de una página de completadas antes del corte, sin fecha de vencimiento
+        for (int i = 0; i < TaskArchiver.PAGE_SIZE + 10; i++) {
+            Task task = completed(repository, "Vieja " + i, null, cutoff - 1000L * (i + 1));
+            updates.put("tasks/" + task.getFirebaseKey(), TaskMapper.toMap(task));
+            old.add(task);
+        }
+        Task recent = completed(repository, "Reciente", FIRST_DUE - 365 * SyncHarness.DAY_MS,
+                cutoff + 1000);
+        updates.put("tasks/" + recent.getFirebaseKey(), TaskMapper.toMap(recent));
+        updates.put("subtasks/" + old.get(0).getFirebaseKey() + "/s1/title", "Subtarea");
+        repository.update(updates, null);
+
+        int[] result = {-1};
+        TaskArchiver.archiveCompleted(repository, cutoff, (changed, error) -> {
+            if (error != null) throw new AssertionError(error.getMessage());
+        }, (archived, error) -> result[0] = archived);
+
+        assertEquals(old.size(), result[0]);
+        assertNull(readValue(repository, "tasks/" + old.get(0).getFirebaseKey()));
+        assertNull(readValue(repository, "subtasks/" + old.get(0).getFirebaseKey()));
+        assertNotNull(readValue(repository, "tasks/" + recent.getFirebaseKey()));
+    }
+
+    private static Task completed(TaskRepository repository, String title, Long due,
+                                  long completedAt) {
+        Task task = SyncHarness.task(title, due, true);
+        task.setCompletedAt(completedAt);
+        task.setFirebaseKey(repository.newKey());
+        return task;
+    }
+
+    private static Object readValue(TaskRepository repository, String path) {
+        Object[] result = {null};
+        repository.readValue(path, new TaskRepository.ValueCallback() {
+            @Override
+            public void onValue(Object value) {
+                result[0] = value;
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                throw new AssertionError(error.getMessage());
+            }
+        });
+        return result[0];
+    }
+}
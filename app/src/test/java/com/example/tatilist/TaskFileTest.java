@@ -0,0 +1,62 @@
+package com.example.tatilist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.tatilist.MainActivity.Task;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Calendar;
+import java.util.TimeZone;
+import org.junit.Test;
+
+public class TaskFileTest {
+    // 2024-03-30 23:59:58.765 UTC: segundos y milisegundos, y otro día en Madrid
+    private static final long DUE = 1_711_843_198_765L;
+
+    @Test
+    public void csvKeepsExactDueDateAcrossTimeZones() throws IOException {
+        TimeZone original = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("Europe/Madrid"));
+            String csv = writeCsv(SyncHarness.task("Pagar luz", DUE, false));
+            assertTrue(csv, csv.contains("2024-03-31T00:59:58.765+0100"));
+
+            TimeZone.setDefault(TimeZone.getTimeZone("America/Argentina/Buenos_Aires"));
+            assertEquals(DUE, readSingle(csv).dueMillis());
+        } finally {
+            TimeZone.setDefault(original);
+        }
+    }
+
+    // Los archivos exportados con el formato anterior se siguen importando en hora local
+    @Test
+    public void csvReadsMinutePrecisionDates() throws IOException {
+        String csv = "title,dueDate\r\nPagar luz,2024-03-31 09:30\r\n";
+        Calendar expected = Calendar.getInstance();
+        expected.clear();
+        expected.set(2024, Calendar.MARCH, 31, 9, 30);
+        assertEquals(expected.getTimeInMillis(), readSingle(csv).dueMillis());
+    }
+
+    private static String writeCsv(Task task) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (TaskFile.RowWriter writer = TaskFile.writer(TaskFile.MIME_CSV, out)) {
+            writer.write(task);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static Task readSingle(String file) throws IOException {
+        try (TaskFile.RowReader reader = TaskFile.reader(
+                new ByteArrayInputStream(file.getBytes(StandardCharsets.UTF_8)))) {
+            assertTrue(reader.next());
+            Task task = reader.task();
+            assertFalse(reader.next());
+            return task;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.tatilist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.example.tatilist.MainActivity.Task;
+import java.util.*;
+import org.junit.Test;
+
+// El mismo árbol que escribía getValue(Task.class), ida y vuelta sin pérdidas
+public class TaskMapperTest {
+    private static final long DUE = 1_700_000_000_000L;
+
+    @Test
+    public void roundTripKeepsEveryField() {
+        Task task = new Task("Pagar luz", "Antes del 10", DUE, 3, true, 1234.56, "Hogar",
+                "weekly");
+        task.setSubtaskTotals(2, 450);
+
+        Task back = TaskMapper.fromMap(TaskMapper.toMap(task));
+        assertTrue(back.hasSameContent(task));
+        assertEquals(Long.valueOf(DUE), back.getDueDate());
+        assertEquals(123456, back.ownExpenseCents());
+        assertEquals(123456 + 450, back.expenseCents());
+        assertEquals("weekly", back.getRecurrence());
+        assertEquals(0, back.dirtyFields());
+    }
+
+    @Test
+    public void roundTripWithoutDueDateOrRecurrence() {
+        Task task = new Task("Sin fecha", null, null, 1, false, 0, null, null);
+        Map<String, Object> map = TaskMapper.toMap(task);
+        assertNull(map.get(TaskMapper.DUE_DATE));
+        assertEquals(Boolean.FALSE, map.get(TaskMapper.RECURRING));
+
+        Task back = TaskMapper.fromMap(map);
+        assertFalse(back.hasDueDate());
+        assertFalse(back.isRecurring());
+        assertTrue(back.hasSameContent(task));
+    }
+
+    // Versiones anteriores solo escribían recurring: true (una vez al mes)
+    @Test
+    public void legacyRecurringFlagReadsAsMonthly() {
+        Map<String, Object> map = new HashMap<>();
+        map.put(TaskMapper.TITLE, "Alquiler");
+        map.put(TaskMapper.DUE_DATE, DUE);
+        map.put(TaskMapper.RECURRING, true);
+
+        Task task = TaskMapper.fromMap(map);
+        assertEquals(Recurrence.LEGACY_RULE, task.getRecurrence());
+        // Al volver a escribirla se mantiene el campo viejo para esas versiones
+        assertEquals(Boolean.TRUE, TaskMapper.toMap(task).get(TaskMapper.RECURRING));
+    }
+
+    @Test
+    public void legacyMapWithoutNewFieldsUsesDefaults() {
+        Map<String, Object> map = new HashMap<>();
+        map.put(TaskMapper.TITLE, "Vieja");
+
+        Task task = TaskMapper.fromMap(map);
+        assertEquals("Vieja", task.getTitle());
+        assertFalse(task.hasDueDate());
+        assertFalse(task.isCompleted());
+        assertFalse(task.isRecurring());
+        assertEquals(0, task.getSubtaskCount());
+        assertEquals(0, task.expenseCents());
+    }
+
+    // Firebase entrega enteros como Long y decimales como Double
+    @Test
+    public void numbersAreReadWhateverTheirType() {
+        Map<String, Object> map = new HashMap<>();
+        map.put(TaskMapper.DUE_DATE, (double) DUE);
+        map.put(TaskMapper.PRIORITY, 2L);
+        map.put(TaskMapper.EXPENSE, 15L);
+        map.put(TaskMapper.SUBTASK_COUNT, 3L);
+        map.put(TaskMapper.SUBTASK_EXPENSE_CENTS, 99.0);
+
+        Task task = TaskMapper.fromMap(map);
+        assertEquals(DUE, task.dueMillis());
+        assertEquals(2, task.getPriority());
+        assertEquals(1500, task.ownExpenseCents());
+        assertEquals(3, task.getSubtaskCount());
+        assertEquals(99, task.getSubtaskExpenseCents());
+    }
+
+    @Test
+    public void completedAtFollowsCompletion() {
+        Task task = new Task("Pagar luz", "", DUE, 1, false, 10, "Hogar", null);
+        long before = System.currentTimeMillis();
+        task.setCompleted(true);
+        assertTrue(task.getCompletedAt() >= before);
+        assertEquals(task.getCompletedAt(), TaskMapper.fromMap(TaskMapper.toMap(task)).getCompletedAt());
+
+        task.clearDirtyFields();
+        task.setCompleted(false);
+        assertEquals(0, task.getCompletedAt());
+        Map<String, Object> changed = TaskMapper.toChangedFields(task);
+        assertTrue(changed.containsKey(TaskMapper.COMPLETED_AT));
+        assertNull(changed.get(TaskMapper.COMPLETED_AT));
+    }
+
+    @Test
+    public void changedFieldsOnlyIncludeDirtyOnes() {
+        Task task = TaskMapper.fromMap(TaskMapper.toMap(
+                new Task("Pagar luz", "", DUE, 1, false, 10, "Hogar", null)));
+        assertTrue(TaskMapper.toChangedFields(task).isEmpty());
+
+        task.setCompleted(true);
+        task.setExpense(12);
+        Map<String, Object> changed = TaskMapper.toChangedFields(task);
+        // Completar sube también cuándo
+        assertEquals(new HashSet<>(Arrays.asList(TaskMapper.COMPLETED, TaskMapper.COMPLETED_AT,
+                TaskMapper.EXPENSE)), changed.keySet());
+        assertEquals(Boolean.TRUE, changed.get(TaskMapper.COMPLETED));
+        assertEquals(task.getCompletedAt(), changed.get(TaskMapper.COMPLETED_AT));
+        assertEquals(12.0, changed.get(TaskMapper.EXPENSE));
+
+        // La regla nueva se sube junto con el campo viejo
+        task.clearDirtyFields();
+        task.setRecurrence("daily");
+        changed = TaskMapper.toChangedFields(task);
+        assertEquals(Boolean.TRUE, changed.get(TaskMapper.RECURRING));
+        assertEquals("daily", changed.get(TaskMapper.RECURRENCE));
+    }
+
+    // El gasto de la subtarea queda en centavos, como el de la tarea; en Firebase sigue en pesos
+    @Test
+    public void subtaskExpenseIsKeptInCents() {
+        Map<String, Object> map = new HashMap<>();
+        map.put(TaskMapper.SUBTASK_TITLE, "Pan");
+        map.put(TaskMapper.SUBTASK_EXPENSE, 0.1 + 0.2);
+        Subtask subtask = TaskMapper.subtaskFromMap("a", map);
+        assertEquals(30, subtask.expenseCents());
+        assertEquals(0.3, TaskMapper.subtaskToMap(subtask).get(TaskMapper.SUBTASK_EXPENSE));
+
+        Subtask edited = subtask.copy();
+        edited.setExpense(0.3);
+        assertTrue(edited.hasSameContent(subtask));
+        edited.setExpense(0.31);
+        assertFalse(edited.hasSameContent(subtask));
+    }
+}
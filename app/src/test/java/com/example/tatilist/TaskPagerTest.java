@@ -0,0 +1,125 @@
+package com.example.tatilist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.example.tatilist.MainActivity.Task;
+import java.util.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+// La ventana arranca en hoy y "Hoy"/"Completadas" no dependen de dónde esté
+public class TaskPagerTest {
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+    private static final int OVERDUE = 400;
+    private static final int TODAY = 5;
+    private static final int UPCOMING = 600;
+    private static final int COMPLETED = 50;
+
+    private InMemoryTaskRepository repository;
+    private SyncHarness harness;
+    private TaskPager pager;
+    private long todayStart;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        repository = new InMemoryTaskRepository();
+        todayStart = TaskStore.startOfDay(System.currentTimeMillis());
+        Map<String, Object> updates = new HashMap<>();
+        // Vencidas, de la más vieja a ayer
+        for (int i = OVERDUE; i > 0; i--) {
+            put(updates, SyncHarness.task("Vencida " + i, todayStart - i * SyncHarness.DAY_MS, false));
+        }
+        for (int i = 0; i < TODAY; i++) {
+            put(updates, SyncHarness.task("Hoy " + i, todayStart + i * HOUR_MS, false));
+        }
+        for (int i = 1; i <= UPCOMING; i++) {
+            put(updates, SyncHarness.task("Próxima " + i, todayStart + i * SyncHarness.DAY_MS, false));
+        }
+        // Completadas hace mucho: antes que cualquier vencida
+        for (int i = 0; i < COMPLETED; i++) {
+            put(updates, SyncHarness.task("Hecha " + i,
+                    todayStart - (OVERDUE + 10 + i) * SyncHarness.DAY_MS, true));
+        }
+        repository.update(updates, null);
+
+        harness = new SyncHarness(repository);
+        pager = new TaskPager(harness.sync, repository);
+        pager.start();
+        harness.await(views -> views.get(TaskStore.FILTER_ALL).size() == TaskPager.WINDOW_SIZE &&
+                views.get(TaskStore.FILTER_TODAY).size() == TODAY &&
+                views.get(TaskStore.FILTER_COMPLETED).size() == COMPLETED);
+    }
+
+    @After
+    public void tearDown() {
+        harness.shutdown();
+    }
+
+    private void put(Map<String, Object> updates, Task task) {
+        updates.put("tasks/" + repository.newKey(), TaskMapper.toMap(task));
+    }
+
+    @Test
+    public void windowStartsAtTodayWithTabsComplete() {
+        TaskStore.Views views = harness.latest();
+        List<Task> all = views.get(TaskStore.FILTER_ALL);
+        assertEquals(todayStart, all.get(0).dueMillis());
+        assertEquals("Hoy 0", all.get(0).getTitle());
+        for (Task task : views.get(TaskStore.FILTER_TODAY)) {
+            assertTrue(task.getTitle().startsWith("Hoy"));
+        }
+        for (Task task : views.get(TaskStore.FILTER_COMPLETED)) {
+            assertTrue(task.getTitle().startsWith("Hecha"));
+        }
+    }
+
+    @Test
+    public void slidingForwardKeepsTabs() throws InterruptedException {
+        for (int slide = 1; slide <= 3; slide++) {
+            List<Task> window = harness.latest().get(TaskStore.FILTER_ALL);
+            Task expectedFirst = window.get(TaskPager.PAGE_SIZE);
+            pager.onVisibleRange(window.size() - 10, window.size() - 1, window);
+            harness.await(views -> !views.get(TaskStore.FILTER_ALL).isEmpty() &&
+                    views.get(TaskStore.FILTER_ALL).get(0).getFirebaseKey()
+                            .equals(expectedFirst.getFirebaseKey()));
+        }
+        // La ventana ya no tiene las de hoy, pero el store sí
+        TaskStore.Views views = harness.await(v -> v.get(TaskStore.FILTER_ALL).get(0).dueMillis() >
+                todayStart + SyncHarness.DAY_MS);
+        assertEquals(TODAY, views.get(TaskStore.FILTER_TODAY).size());
+        assertEquals(COMPLETED, views.get(TaskStore.FILTER_COMPLETED).size());
+        // Las de ventanas anteriores que no están en ninguna consulta se desalojaron
+        int expected = TaskPager.WINDOW_SIZE + TODAY + COMPLETED;
+        assertEquals(expected, harness.store.size());
+    }
+
+    @Test
+    public void scrollingUpLoadsOverdueTasks() throws InterruptedException {
+        List<Task> window = harness.latest().get(TaskStore.FILTER_ALL);
+        pager.onVisibleRange(0, 10, window);
+        TaskStore.Views views = harness.await(v -> v.get(TaskStore.FILTER_ALL).get(0).dueMillis() <
+                todayStart);
+        List<Task> all = views.get(TaskStore.FILTER_ALL);
+        assertEquals(todayStart - TaskPager.PAGE_SIZE * SyncHarness.DAY_MS, all.get(0).dueMillis());
+        assertEquals(TaskPager.WINDOW_SIZE, all.size());
+
+        // Más atrás se acaban las vencidas pendientes y quedan las completadas más viejas
+        for (int page = 0; page < 10; page++) {
+            pager.onVisibleRange(0, 10, harness.latest().get(TaskStore.FILTER_ALL));
+        }
+        views = harness.await(v -> v.get(TaskStore.FILTER_ALL).get(0).getTitle()
+                .equals("Hecha " + (COMPLETED - 1)));
+        assertEquals(TaskPager.WINDOW_SIZE, views.get(TaskStore.FILTER_ALL).size());
+    }
+
+    @Test
+    public void taskCompletedOutsideWindowMovesBetweenTabs() throws InterruptedException {
+        Task today = harness.latest().get(TaskStore.FILTER_TODAY).get(2);
+        repository.update(Collections.<String, Object>singletonMap(
+                "tasks/" + today.getFirebaseKey() + "/" + TaskMapper.COMPLETED, true), null);
+        TaskStore.Views views = harness.await(v -> v.get(TaskStore.FILTER_TODAY).size() == TODAY - 1);
+        assertEquals(COMPLETED + 1, views.get(TaskStore.FILTER_COMPLETED).size());
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.tatilist;
+
+import static org.junit.Assert.assertEquals;
+
+import com.example.tatilist.MainActivity.Task;
+import java.util.*;
+import org.junit.Test;
+
+// Mide el TaskStore con muchas tareas sintéticas en la JVM: carga, armado de vistas, filtro
+// de "Hoy" y suma de gastos. Los tiempos sirven para comparar versiones en la misma máquina,
+// no como números absolutos del teléfono; lo que sí se comprueba es que los resultados sean
+// los mismos que recorriendo todas las tareas.
+public class TaskStoreBenchmarkTest {
+    static final int TASKS = 50_000;
+    private static final String[] CATEGORIES =
+            {"Comida", "Transporte", "Hogar", "Salud", "Ocio", "Servicios", "Otros"};
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    @Test
+    public void storeWithManyTasks() {
+        List<Task> tasks = generate();
+        long heapBefore = usedHeap();
+        TaskStore store = new TaskStore();
+        long start = System.nanoTime();
+        for (Task task : tasks) {
+            store.put(task);
+        }
+        long put = micros(start);
+        // Sin contar las tareas de entrada, que la prueba sigue teniendo
+        long storeBytes = usedHeap() - heapBefore;
+
+        start = System.nanoTime();
+        TaskStore.Views views = store.snapshot();
+        long snapshot = micros(start);
+        // Los objetos que se arman para publicar "Todas", "Hoy" y "Completadas"
+        long publishedBytes = usedHeap() - heapBefore - storeBytes;
+
+        // Mañana a esta hora: obliga a recalcular la pestaña
+        long tomorrow = System.currentTimeMillis() + DAY_MS;
+        start = System.nanoTime();
+        store.refreshToday(tomorrow);
+        int today = store.getView(TaskStore.FILTER_TODAY).size();
+        long filterToday = micros(start);
+
+        // Centavos exactos contra sumar los montos en double
+        start = System.nanoTime();
+        long cents = 0;
+        for (Task task : views.get(TaskStore.FILTER_ALL)) {
+            cents += task.expenseCents();
+        }
+        long sum = micros(start);
+        double amount = 0;
+        for (Task task : views.get(TaskStore.FILTER_ALL)) {
+            amount += task.getExpense();
+        }
+        long drift = ExpenseTotals.toCents(amount) - cents;
+
+        System.out.println(String.format(Locale.US, "%d tareas: carga %d ms, vistas %d ms, " +
+                        "\"Hoy\" %d us (%d tareas), suma %d us; en double se desvía %d centavos",
+                TASKS, put / 1000, snapshot / 1000, filterToday, today, sum, drift));
+        System.out.println(String.format(Locale.US, "memoria: store %d bytes por tarea, " +
+                        "objetos publicados %d bytes por tarea",
+                storeBytes / TASKS, publishedBytes / TASKS));
+
+        assertEquals(TASKS, views.get(TaskStore.FILTER_ALL).size());
+        long dayStart = TaskStore.startOfDay(tomorrow);
+        int expectedToday = 0;
+        int expectedCompleted = 0;
+        for (Task task : tasks) {
+            if (task.isCompleted()) expectedCompleted++;
+            else if (task.hasDueDate() && TaskStore.startOfDay(task.dueMillis()) == dayStart) {
+                expectedToday++;
+            }
+        }
+        assertEquals(expectedToday, today);
+        assertEquals(expectedCompleted, views.get(TaskStore.FILTER_COMPLETED).size());
+    }
+
+    // Como llegan de Firebase: cada tarea con su propia copia del nombre de la categoría
+    private static List<Task> generate() {
+        Random random = new Random(42);
+        long firstDue = System.currentTimeMillis() - 180 * DAY_MS;
+        List<Task> tasks = new ArrayList<>(TASKS);
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < TASKS; i++) {
+            map.put(TaskMapper.TITLE, "Tarea " + i);
+            map.put(TaskMapper.DESCRIPTION, "");
+            map.put(TaskMapper.DUE_DATE, i % 10 == 0 ? null
+                    : firstDue + (long) (random.nextDouble() * 365 * DAY_MS));
+            map.put(TaskMapper.PRIORITY, (long) (1 + random.nextInt(4)));
+            map.put(TaskMapper.COMPLETED, random.nextInt(4) == 0);
+            map.put(TaskMapper.EXPENSE, random.nextInt(100000) / 100.0);
+            map.put(TaskMapper.CATEGORY, new String(CATEGORIES[random.nextInt(CATEGORIES.length)]));
+            Task task = TaskMapper.fromMap(map);
+            task.setFirebaseKey(String.format(Locale.US, "-K%018d", i));
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    // Aproximado: depende de que la JVM haga caso a gc()
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long micros(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1000;
+    }
+}
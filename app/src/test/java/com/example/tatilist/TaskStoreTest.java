@@ -0,0 +1,262 @@
+package com.example.tatilist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.example.tatilist.MainActivity.Task;
+import java.util.*;
+import org.junit.Test;
+
+public class TaskStoreTest {
+    private static final long DUE = 1_700_000_000_000L;
+    private static final long DAY = SyncHarness.DAY_MS;
+
+    // Cada pestaña tiene exactamente lo que diría recorrer todas las tareas, en orden
+    @Test
+    public void viewsMatchTheirFilters() {
+        TaskStore store = new TaskStore();
+        long today = TaskStore.startOfDay(DUE);
+        store.refreshToday(today + 1000);
+        List<Task> tasks = new ArrayList<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            Long due = i % 10 == 0 ? null : today + (random.nextInt(7) - 3) * DAY + random.nextInt(1000);
+            Task task = keyed(String.format(Locale.US, "k%03d", i),
+                    SyncHarness.task("Tarea " + i, due, random.nextInt(3) == 0));
+            tasks.add(task);
+            store.put(task);
+        }
+        // Algunas cambian de estado, otras salen
+        for (int i = 0; i < 50; i++) {
+            Task changed = tasks.get(i).copy();
+            changed.setCompleted(!changed.isCompleted());
+            tasks.set(i, changed);
+            store.put(changed);
+        }
+        for (int i = 450; i < 500; i++) {
+            store.remove(tasks.get(i).getFirebaseKey());
+        }
+        tasks = tasks.subList(0, 450);
+
+        List<Task> all = new ArrayList<>(tasks);
+        Collections.sort(all, TaskStore.BY_DUE_DATE);
+        List<Task> pending = new ArrayList<>();
+        List<Task> completed = new ArrayList<>();
+        for (Task task : all) {
+            if (task.isCompleted()) completed.add(task);
+            else if (task.hasDueDate() && TaskStore.startOfDay(task.dueMillis()) == today) pending.add(task);
+        }
+        TaskStore.Views views = store.snapshot();
+        assertSameTasks(all, views.get(TaskStore.FILTER_ALL));
+        assertSameTasks(pending, views.get(TaskStore.FILTER_TODAY));
+        assertSameTasks(completed, views.get(TaskStore.FILTER_COMPLETED));
+    }
+
+    @Test
+    public void refreshTodayMovesTheTabAtMidnight() {
+        TaskStore store = new TaskStore();
+        long today = TaskStore.startOfDay(DUE);
+        long tomorrow = TaskStore.startOfDay(today + DAY + DAY / 2);
+        store.refreshToday(today + 1000);
+        Task dueToday = keyed("a", SyncHarness.task("Hoy", today + 9 * 3_600_000L, false));
+        Task dueTomorrow = keyed("b", SyncHarness.task("Mañana", tomorrow + 9 * 3_600_000L, false));
+        Task doneTomorrow = keyed("c", SyncHarness.task("Hecha", tomorrow + 10 * 3_600_000L, true));
+        store.put(dueToday);
+        store.put(dueTomorrow);
+        store.put(doneTomorrow);
+        assertSameTasks(Collections.singletonList(dueToday), store.getView(TaskStore.FILTER_TODAY));
+
+        assertFalse(store.refreshToday(tomorrow - 1));
+        assertTrue(store.refreshToday(tomorrow));
+        assertSameTasks(Collections.singletonList(dueTomorrow), store.getView(TaskStore.FILTER_TODAY));
+        // Lo que llega después usa el día nuevo
+        Task late = keyed("d", SyncHarness.task("Tarde", tomorrow + 20 * 3_600_000L, false));
+        store.put(late);
+        assertSameTasks(Arrays.asList(dueTomorrow, late), store.getView(TaskStore.FILTER_TODAY));
+    }
+
+    // "Todas" es solo la ventana; las pestañas siguen mostrando lo que trajeron sus consultas
+    @Test
+    public void droppingTheWindowKeepsTabsThatStillHaveTheTask() {
+        TaskStore store = new TaskStore();
+        store.refreshToday(DUE);
+        Task done = keyed("a", SyncHarness.task("Hecha", DUE - 30 * DAY, true));
+        Task old = keyed("b", SyncHarness.task("Vieja", DUE - 30 * DAY, false));
+        store.put(done, TaskStore.SOURCE_WINDOW | TaskStore.SOURCE_COMPLETED);
+        store.put(old, TaskStore.SOURCE_WINDOW);
+
+        assertTrue(store.dropSource("a", TaskStore.SOURCE_WINDOW, true));
+        assertTrue(store.dropSource("b", TaskStore.SOURCE_WINDOW, true));
+        assertFalse(store.dropSource("b", TaskStore.SOURCE_WINDOW, true));
+
+        assertEquals(Collections.<Task>emptyList(), store.getView(TaskStore.FILTER_ALL));
+        assertSameTasks(Collections.singletonList(done), store.getView(TaskStore.FILTER_COMPLETED));
+        assertTrue(store.contains("a"));
+        assertFalse(store.contains("b"));
+    }
+
+    // Los gastos del mes siguen cada alta, cambio y baja, en centavos exactos
+    @Test
+    public void monthTotalsFollowDeltas() {
+        TaskStore store = new TaskStore();
+        store.refreshToday(DUE);
+        Task a = keyed("a", new Task("A", "", DUE, 1, false, 0.1, "Comida", null));
+        Task b = keyed("b", new Task("B", "", DUE, 1, true, 0.2, "Hogar", null));
+        Task otherMonth = keyed("c", new Task("C", "", DUE - 60 * DAY, 1, false, 5, "Comida", null));
+        store.put(a);
+        store.put(b);
+        store.put(otherMonth);
+        assertEquals(30, store.snapshot().getMonthExpenseCents());
+
+        Task edited = a.copy();
+        edited.setExpense(1.25);
+        store.put(edited);
+        store.remove("b");
+        TaskStore.Views views = store.snapshot();
+        assertEquals(125, views.getMonthExpenseCents());
+        assertEquals(Collections.singletonMap("Comida", 125L), views.getMonthCategoryCents());
+    }
+
+    @Test
+    public void searchShowsLoadedTasksAsTheyAreInMemory() {
+        TaskStore store = new TaskStore();
+        Task loaded = keyed("a", SyncHarness.task("Pagar luz", DUE + 2 * SyncHarness.DAY_MS, false));
+        store.put(loaded);
+        // La copia tiene la cargada con el título viejo y otra que ya no está cargada
+        Task stale = keyed("a", SyncHarness.task("Pagar agua", DUE + 2 * SyncHarness.DAY_MS, false));
+        Task unloaded = keyed("b", SyncHarness.task("Pagar gas", DUE, false));
+        List<String[]> queries = new ArrayList<>();
+        store.setSearcher((terms, callback) -> {
+            queries.add(terms);
+            callback.onResults(Arrays.asList(stale, unloaded));
+        });
+
+        store.setSearchQuery("pag");
+        List<Task> results = store.getSearchResults();
+
+        assertSameTasks(Arrays.asList(unloaded, loaded), results);
+        assertEquals(1, queries.size());
+        assertEquals(Collections.singletonList("pag"), Arrays.asList(queries.get(0)));
+    }
+
+    @Test
+    public void searchWithoutSearcherFindsNothing() {
+        TaskStore store = new TaskStore();
+        store.put(keyed("a", SyncHarness.task("Pagar luz", DUE, false)));
+        store.setSearchQuery("pagar");
+        assertEquals(Collections.emptyList(), store.getSearchResults());
+    }
+
+    @Test
+    public void invalidateReportsWhetherASearchIsActive() {
+        TaskStore store = new TaskStore();
+        assertFalse(store.invalidateSearch());
+        store.setSearchQuery("pagar");
+        assertTrue(store.invalidateSearch());
+    }
+
+    @Test
+    public void fullCopyIsQueriedAgainOnlyWhenInvalidated() {
+        TaskStore store = new TaskStore();
+        int[] queries = {0};
+        store.setSearcher((terms, callback) -> {
+            queries[0]++;
+            callback.onResults(Collections.emptyList());
+        });
+        store.setSearchQuery("pagar");
+        store.getSearchResults();
+        store.put(keyed("a", SyncHarness.task("Pagar luz", DUE, false)));
+        store.getSearchResults();
+        assertEquals(1, queries[0]);
+
+        store.invalidateSearch();
+        store.getSearchResults();
+        assertEquals(2, queries[0]);
+    }
+
+    // Mientras llega la respuesta se sigue mostrando la anterior; la de una consulta vieja
+    // se descarta
+    @Test
+    public void slowSearchKeepsPreviousResultsAndDropsStaleAnswers() {
+        TaskStore store = new TaskStore();
+        Task luz = keyed("a", SyncHarness.task("Pagar luz", DUE, false));
+        Task gas = keyed("b", SyncHarness.task("Pagar gas", DUE, false));
+        List<TaskStore.SearchCallback> pending = new ArrayList<>();
+        store.setSearcher((terms, callback) -> pending.add(callback));
+
+        store.setSearchQuery("pagar");
+        assertEquals(Collections.emptyList(), store.getSearchResults());
+        pending.get(0).onResults(Arrays.asList(luz, gas));
+        assertEquals(Arrays.asList(luz, gas), store.getSearchResults());
+
+        store.setSearchQuery("pagar l");
+        assertEquals(Arrays.asList(luz, gas), store.getSearchResults());
+        store.setSearchQuery("pagar lu");
+        store.getSearchResults();
+        assertEquals(3, pending.size());
+        pending.get(1).onResults(Arrays.asList(luz, gas));
+        assertEquals(Arrays.asList(luz, gas), store.getSearchResults());
+        pending.get(2).onResults(Collections.singletonList(luz));
+        assertEquals(Collections.singletonList(luz), store.getSearchResults());
+    }
+
+    @Test
+    public void shortQueryDoesNotSearch() {
+        TaskStore store = new TaskStore();
+        store.setSearcher((terms, callback) -> {
+            throw new AssertionError("No debería buscar");
+        });
+        store.setSearchQuery("p");
+        assertNull(store.getSearchResults());
+    }
+
+    // El store guarda columnas y arma sus propios objetos: cada fila se reutiliza mientras no
+    // cambie, y lo que se haga después con el objeto que se le pasó no la toca
+    @Test
+    public void rowsAreCopiedAndBuiltOncePerChange() {
+        TaskStore store = new TaskStore();
+        store.refreshToday(DUE);
+        Task task = keyed("a", new Task("A", "d", DUE, 2, false, 12.34, "Comida", "weekly"));
+        task.setSubtaskTotals(2, 150);
+        store.put(task);
+        Task shown = store.getView(TaskStore.FILTER_ALL).get(0);
+        assertTrue(shown.hasSameContent(task));
+        assertEquals("Comida", shown.getCategory());
+        assertEquals(1234, shown.ownExpenseCents());
+        assertEquals(0, shown.dirtyFields());
+
+        task.setTitle("Cambiada en el objeto");
+        assertSame(shown, store.snapshot().get(TaskStore.FILTER_ALL).get(0));
+        assertEquals("A", store.get("a").getTitle());
+
+        store.put(task);
+        Task updated = store.getView(TaskStore.FILTER_ALL).get(0);
+        assertNotSame(shown, updated);
+        assertEquals("Cambiada en el objeto", updated.getTitle());
+        assertEquals("A", shown.getTitle());
+    }
+
+    static void assertSameTasks(List<Task> expected, List<Task> actual) {
+        assertEquals(keys(expected), keys(actual));
+        for (int i = 0; i < expected.size(); i++) {
+            assertTrue(expected.get(i).getFirebaseKey(), expected.get(i).hasSameContent(actual.get(i)));
+        }
+    }
+
+    private static List<String> keys(List<Task> tasks) {
+        List<String> keys = new ArrayList<>();
+        for (Task task : tasks) {
+            keys.add(task.getFirebaseKey());
+        }
+        return keys;
+    }
+
+    static Task keyed(String key, Task task) {
+        task.setFirebaseKey(key);
+        return task;
+    }
+}
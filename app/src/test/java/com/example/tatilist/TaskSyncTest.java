@@ -0,0 +1,168 @@
+package com.example.tatilist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.example.tatilist.MainActivity.Task;
+import com.example.tatilist.TaskRepository.Range;
+import java.util.*;
+import java.util.concurrent.Executor;
+import org.junit.After;
+import org.junit.Test;
+
+public class TaskSyncTest {
+    private static final long FIRST_DUE = 1_700_000_000_000L;
+
+    private SyncHarness harness;
+
+    @After
+    public void tearDown() {
+        if (harness != null) harness.shutdown();
+    }
+
+    // Una ráfaga de cambios que llega junta se publica una sola vez
+    @Test
+    public void burstOfEditsIsPublishedOnce() throws InterruptedException {
+        HeldExecutor callbacks = new HeldExecutor();
+        InMemoryTaskRepository repository = new InMemoryTaskRepository(callbacks);
+        List<Task> tasks = SyncHarness.seed(repository, 100, FIRST_DUE);
+        harness = new SyncHarness(repository);
+        harness.sync.start(Collections.singletonList(Range.dated(Long.MIN_VALUE, null, 200)), null);
+        callbacks.release();
+        harness.await(views -> views.get(TaskStore.FILTER_ALL).size() == 100);
+        int before = harness.publishes();
+
+        for (int i = 0; i < 50; i++) {
+            repository.update(Collections.<String, Object>singletonMap("tasks/" +
+                    tasks.get(i).getFirebaseKey() + "/" + TaskMapper.TITLE, "Ráfaga " + i), null);
+        }
+        callbacks.release();
+        harness.await(views -> SyncHarness.hasTitle(views.get(TaskStore.FILTER_ALL),
+                tasks.get(49).getFirebaseKey(), "Ráfaga 49"));
+
+        assertEquals(before + 1, harness.publishes());
+        for (int i = 0; i < 50; i++) {
+            assertTrue(SyncHarness.hasTitle(harness.latest().get(TaskStore.FILTER_ALL),
+                    tasks.get(i).getFirebaseKey(), "Ráfaga " + i));
+        }
+    }
+
+    // Al mover la ventana las tareas que siguen en ella no salen nunca; las que quedaron
+    // afuera se desalojan recién cuando termina la carga nueva
+    @Test
+    public void movingWindowKeepsOverlapAndEvictsTheRest() throws InterruptedException {
+        InMemoryTaskRepository repository = new InMemoryTaskRepository();
+        List<Task> tasks = SyncHarness.seed(repository, 100, FIRST_DUE);
+        harness = new SyncHarness(repository);
+        RecordingListener removals = new RecordingListener();
+        harness.sync.addStoreListener(removals);
+        harness.sync.start(Collections.singletonList(Range.dated(Long.MIN_VALUE, null, 30)), null);
+        harness.await(views -> views.get(TaskStore.FILTER_ALL).size() == 30);
+
+        Task first = tasks.get(20);
+        harness.sync.start(Collections.singletonList(
+                Range.dated(first.dueMillis(), first.getFirebaseKey(), 30)), null);
+        List<Task> all = harness.await(views -> {
+            List<Task> view = views.get(TaskStore.FILTER_ALL);
+            return view.size() == 30 && view.get(0).getFirebaseKey().equals(first.getFirebaseKey());
+        }).get(TaskStore.FILTER_ALL);
+
+        for (int i = 0; i < 30; i++) {
+            assertEquals(tasks.get(20 + i).getFirebaseKey(), all.get(i).getFirebaseKey());
+        }
+        Set<String> evicted = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            evicted.add(tasks.get(i).getFirebaseKey());
+        }
+        assertEquals(evicted, removals.evicted());
+        assertTrue(removals.deleted().isEmpty());
+        assertEquals(30, harness.store.size());
+    }
+
+    // Una tarea en el borde de dos páginas sigue cargada si solo una de ellas la suelta
+    @Test
+    public void boundaryTaskStaysWhileAnotherPageHasIt() throws InterruptedException {
+        InMemoryTaskRepository repository = new InMemoryTaskRepository();
+        List<Task> tasks = SyncHarness.seed(repository, 40, FIRST_DUE);
+        harness = new SyncHarness(repository);
+        Task boundary = tasks.get(10);
+        harness.sync.start(Arrays.asList(Range.dated(Long.MIN_VALUE, null, 11),
+                Range.dated(boundary.dueMillis(), boundary.getFirebaseKey(), 10)), null);
+        harness.await(views -> views.get(TaskStore.FILTER_ALL).size() == 20);
+
+        // Empuja la última tarea de la primera página fuera de su límite
+        Task earlier = SyncHarness.add(repository,
+                SyncHarness.task("Antes", FIRST_DUE - SyncHarness.DAY_MS, false));
+        List<Task> all = harness.await(views -> SyncHarness.hasTitle(
+                views.get(TaskStore.FILTER_ALL), earlier.getFirebaseKey(), "Antes"))
+                .get(TaskStore.FILTER_ALL);
+
+        assertEquals(21, all.size());
+        assertTrue(SyncHarness.hasTitle(all, boundary.getFirebaseKey(), boundary.getTitle()));
+    }
+
+    // Un borrado en el servidor llega como quitada en vivo, no como desalojo
+    @Test
+    public void remoteDeleteIsNotAnEviction() throws InterruptedException {
+        InMemoryTaskRepository repository = new InMemoryTaskRepository();
+        List<Task> tasks = SyncHarness.seed(repository, 10, FIRST_DUE);
+        harness = new SyncHarness(repository);
+        RecordingListener removals = new RecordingListener();
+        harness.sync.addStoreListener(removals);
+        harness.sync.start(Collections.singletonList(Range.dated(Long.MIN_VALUE, null, 20)), null);
+        harness.await(views -> views.get(TaskStore.FILTER_ALL).size() == 10);
+
+        String key = tasks.get(3).getFirebaseKey();
+        repository.update(Collections.<String, Object>singletonMap("tasks/" + key, null), null);
+        List<Task> all = harness.await(views -> views.get(TaskStore.FILTER_ALL).size() == 9)
+                .get(TaskStore.FILTER_ALL);
+
+        assertFalse(SyncHarness.hasTitle(all, key, tasks.get(3).getTitle()));
+        assertEquals(Collections.singleton(key), removals.deleted());
+        assertTrue(removals.evicted().isEmpty());
+    }
+
+    // Se llama desde el hilo de TaskSync
+    private static final class RecordingListener implements TaskStore.Listener {
+        private final Set<String> evicted = new HashSet<>();
+        private final Set<String> deleted = new HashSet<>();
+
+        @Override
+        public void onTaskPut(Task oldTask, Task task) {}
+
+        @Override
+        public synchronized void onTaskRemoved(Task oldTask, boolean evicted) {
+            (evicted ? this.evicted : deleted).add(oldTask.getFirebaseKey());
+        }
+
+        synchronized Set<String> evicted() {
+            return new HashSet<>(evicted);
+        }
+
+        synchronized Set<String> deleted() {
+            return new HashSet<>(deleted);
+        }
+    }
+
+    // Retiene los callbacks del repositorio para entregarlos todos de una vez
+    static final class HeldExecutor implements Executor {
+        private final List<Runnable> held = new ArrayList<>();
+
+        @Override
+        public synchronized void execute(Runnable command) {
+            held.add(command);
+        }
+
+        void release() {
+            List<Runnable> batch;
+            synchronized (this) {
+                batch = new ArrayList<>(held);
+                held.clear();
+            }
+            for (Runnable command : batch) {
+                command.run();
+            }
+        }
+    }
+}
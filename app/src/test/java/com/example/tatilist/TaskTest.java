@@ -0,0 +1,74 @@
+package com.example.tatilist;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.example.tatilist.MainActivity.Task;
+import org.junit.Test;
+
+// Los textos de la fila se formatean una vez por instancia y se rehacen solo al cambiar el dato
+public class TaskTest {
+    private static final long DUE = 1_700_000_000_000L;
+
+    @Test
+    public void rowTextsAreFormattedOnce() {
+        Task task = SyncHarness.task("Pagar luz", DUE, false);
+        task.setExpense(12.5);
+
+        assertSame(task.dueDateText(), task.dueDateText());
+        assertSame(task.expenseText(), task.expenseText());
+        assertSame(task.subtasksText(), task.subtasksText());
+        assertEquals(TaskFormat.formatDate(DUE), task.dueDateText());
+        assertEquals(TaskFormat.formatCents(1250), task.expenseText());
+    }
+
+    @Test
+    public void settersInvalidateRowTexts() {
+        Task task = SyncHarness.task("Pagar luz", DUE, false);
+        task.setExpense(12.5);
+        String dueText = task.dueDateText();
+        String expenseText = task.expenseText();
+
+        task.setDueDate(DUE + SyncHarness.DAY_MS);
+        task.setExpense(20);
+        assertEquals(TaskFormat.formatDate(DUE + SyncHarness.DAY_MS), task.dueDateText());
+        assertEquals(TaskFormat.formatCents(2000), task.expenseText());
+        assertFalse(dueText.equals(task.dueDateText()));
+        assertFalse(expenseText.equals(task.expenseText()));
+
+        // Las subtareas suman al gasto de la fila
+        task.setSubtaskTotals(2, 350);
+        assertEquals(TaskFormat.formatCents(2350), task.expenseText());
+        assertEquals("2 subtareas", task.subtasksText());
+
+        task.setDueDate(null);
+        assertNull(task.dueDateText());
+    }
+
+    @Test
+    public void copyKeepsFormattedTexts() {
+        Task task = SyncHarness.task("Pagar luz", DUE, false);
+        String dueText = task.dueDateText();
+        String expenseText = task.expenseText();
+
+        Task copy = task.copy();
+        assertSame(dueText, copy.dueDateText());
+        assertSame(expenseText, copy.expenseText());
+        assertTrue(copy.hasSameContent(task));
+    }
+
+    @Test
+    public void settersTrackOnlyRealChanges() {
+        Task task = SyncHarness.task("Pagar luz", DUE, false);
+        task.setTitle("Pagar luz");
+        task.setDueDate(DUE);
+        assertEquals(0, task.dirtyFields());
+
+        task.setTitle("Pagar gas");
+        task.setCompleted(true);
+        assertEquals(Task.FIELD_TITLE | Task.FIELD_COMPLETED, task.dirtyFields());
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.tatilist.benchmark;
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import kotlin.Unit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+// Genera el baseline profile recorriendo arranque y scroll. Necesita un dispositivo con
+// API 33+ (o 28+ con root): ./gradlew :app:generateBaselineProfile lo corre y deja el
+// resultado en app/src/main/generated/baselineProfiles, que se commitea.
+@RunWith(AndroidJUnit4.class)
+public class BaselineProfileGenerator {
+    @Rule
+    public BaselineProfileRule rule = new BaselineProfileRule();
+
+    @Test
+    public void generate() {
+        rule.collect(Benchmarks.TARGET_PACKAGE, scope -> {
+            scope.pressHome();
+            Benchmarks.startAndWaitForTasks(scope);
+            Benchmarks.flingTasks(scope);
+            return Unit.INSTANCE;
+        });
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.tatilist.benchmark;
+
+import android.content.Intent;
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.Direction;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+// Lo común a los benchmarks: la app abre una lista local de 5.000 tareas generadas
+// (StandInBackend en el build type "benchmark"), sin red ni Firebase.
+final class Benchmarks {
+    static final String TARGET_PACKAGE = "com.example.tatilist";
+    static final int SEED_TASKS = 5000;
+    // Igual que StandInBackend.EXTRA_SEED_TASKS
+    private static final String EXTRA_SEED_TASKS = "seedTasks";
+    private static final long TIMEOUT_MS = 10_000;
+
+    private Benchmarks() {}
+
+    // Abre la app y espera a que se pinte la primera tarea
+    static void startAndWaitForTasks(MacrobenchmarkScope scope) {
+        Intent intent = new Intent(Intent.ACTION_MAIN);
+        intent.setClassName(TARGET_PACKAGE, TARGET_PACKAGE + ".MainActivity");
+        intent.putExtra(EXTRA_SEED_TASKS, SEED_TASKS);
+        scope.startActivityAndWait(intent);
+        scope.getDevice().wait(Until.hasObject(By.res(TARGET_PACKAGE, "tvTitle")), TIMEOUT_MS);
+    }
+
+    // Varios flings hacia abajo (cruza páginas del TaskPager) y uno de vuelta
+    static void flingTasks(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        UiObject2 list = device.findObject(By.res(TARGET_PACKAGE, "recyclerView"));
+        // Lejos de los bordes para no disparar los gestos del sistema
+        list.setGestureMargin(device.getDisplayWidth() / 5);
+        for (int i = 0; i < 4; i++) {
+            list.fling(Direction.DOWN);
+            device.waitForIdle();
+        }
+        list.fling(Direction.UP);
+        device.waitForIdle();
+    }
+}
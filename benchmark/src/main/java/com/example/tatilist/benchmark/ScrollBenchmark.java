@@ -0,0 +1,37 @@
+package com.example.tatilist.benchmark;
+
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.Metric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.Collections;
+import kotlin.Unit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+// Duración de frames (frameDurationCpuMs, frameOverrunMs) al hacer fling sobre la lista
+// de 5.000 tareas. El arranque queda fuera de la medición.
+@RunWith(AndroidJUnit4.class)
+public class ScrollBenchmark {
+    private static final int ITERATIONS = 5;
+
+    @Rule
+    public MacrobenchmarkRule rule = new MacrobenchmarkRule();
+
+    @Test
+    public void flingTasks() {
+        rule.measureRepeated(Benchmarks.TARGET_PACKAGE,
+                Collections.<Metric>singletonList(new FrameTimingMetric()),
+                StartupBenchmark.withProfileIfAvailable(), StartupMode.WARM, ITERATIONS,
+                scope -> {
+                    Benchmarks.startAndWaitForTasks(scope);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    Benchmarks.flingTasks(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.tatilist.benchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.Metric;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import java.util.Collections;
+import kotlin.Unit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+// Arranque hasta la primera tarea. timeToFullDisplay sale del reportFullyDrawn() que
+// MainActivity llama cuando se ve la primera tarea; timeToInitialDisplay es el primer frame.
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+    private static final int ITERATIONS = 10;
+
+    @Rule
+    public MacrobenchmarkRule rule = new MacrobenchmarkRule();
+
+    // Con el baseline profile si la app trae uno (ver BaselineProfileGenerator); sin él
+    // mide lo mismo que coldStartupWithoutProfile en lugar de fallar
+    @Test
+    public void coldStartup() {
+        measure(StartupMode.COLD, withProfileIfAvailable());
+    }
+
+    // Referencia para ver cuánto aporta el baseline profile
+    @Test
+    public void coldStartupWithoutProfile() {
+        measure(StartupMode.COLD, new CompilationMode.None());
+    }
+
+    @Test
+    public void warmStartup() {
+        measure(StartupMode.WARM, withProfileIfAvailable());
+    }
+
+    static CompilationMode withProfileIfAvailable() {
+        return new CompilationMode.Partial(BaselineProfileMode.UseIfAvailable);
+    }
+
+    private void measure(StartupMode startupMode, CompilationMode compilationMode) {
+        rule.measureRepeated(Benchmarks.TARGET_PACKAGE,
+                Collections.<Metric>singletonList(new StartupTimingMetric()),
+                compilationMode, startupMode, ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    Benchmarks.startAndWaitForTasks(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+}